@@ -0,0 +1,36 @@
+package org.jbehave.asciidoctor.maven;
+
+import java.io.File;
+
+import org.asciidoctor.Asciidoctor;
+import org.asciidoctor.OptionsBuilder;
+import org.asciidoctor.SafeMode;
+
+/**
+ * Converts reports with an Asciidoctor instance of its own, created once and
+ * kept warm for every report its worker converts.
+ */
+public class AsciidoctorReportConverter implements ReportConverter {
+
+	public static final Factory FACTORY = new Factory() {
+		@Override
+		public ReportConverter create() {
+			return new AsciidoctorReportConverter();
+		}
+	};
+
+	private final Asciidoctor asciidoctor = Asciidoctor.Factory.create();
+
+	@Override
+	public void convert(File report, File targetDirectory) {
+		this.asciidoctor.convertFile(report, OptionsBuilder.options()
+				.toDir(targetDirectory).mkDirs(true).safe(SafeMode.UNSAFE)
+				.asMap());
+	}
+
+	@Override
+	public void close() {
+		this.asciidoctor.shutdown();
+	}
+
+}
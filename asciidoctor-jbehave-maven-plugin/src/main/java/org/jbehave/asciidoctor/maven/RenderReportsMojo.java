@@ -0,0 +1,72 @@
+package org.jbehave.asciidoctor.maven;
+
+import java.io.File;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * Renders the AsciiDoc reports of a JBehave run to HTML, in parallel and
+ * skipping those unchanged since they were last rendered.
+ * 
+ * @goal render
+ * @phase post-integration-test
+ * @threadSafe
+ */
+public class RenderReportsMojo extends AbstractMojo {
+
+	/**
+	 * Directory the reporter wrote its reports to.
+	 * 
+	 * @parameter property="asciidoctor.jbehave.reportDirectory"
+	 *            default-value="${project.build.directory}/jbehave"
+	 */
+	private File reportDirectory;
+
+	/**
+	 * Directory the HTML is rendered to, next to the reports by default.
+	 * 
+	 * @parameter property="asciidoctor.jbehave.outputDirectory"
+	 *            default-value="${project.build.directory}/jbehave"
+	 */
+	private File outputDirectory;
+
+	/**
+	 * Number of workers, one per core by default.
+	 * 
+	 * @parameter property="asciidoctor.jbehave.threads"
+	 */
+	private int threads;
+
+	/**
+	 * @parameter property="asciidoctor.jbehave.skip" default-value="false"
+	 */
+	private boolean skip;
+
+	@Override
+	public void execute() throws MojoExecutionException {
+
+		if (this.skip || !this.reportDirectory.isDirectory()) {
+			getLog().info("No reports to render in " + this.reportDirectory);
+			return;
+		}
+
+		int parallelism = this.threads > 0 ? this.threads : Runtime
+				.getRuntime().availableProcessors();
+		long start = System.currentTimeMillis();
+
+		try {
+			int rendered = new ReportRenderer(this.reportDirectory,
+					this.outputDirectory, parallelism,
+					AsciidoctorReportConverter.FACTORY).render();
+			getLog().info(
+					"Rendered " + rendered + " reports to "
+							+ this.outputDirectory + " with " + parallelism
+							+ " workers in "
+							+ (System.currentTimeMillis() - start) + " ms");
+		} catch (ReportRenderingFailed e) {
+			throw new MojoExecutionException(e.getMessage(), e);
+		}
+	}
+
+}
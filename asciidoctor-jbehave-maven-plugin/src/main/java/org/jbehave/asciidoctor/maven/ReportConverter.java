@@ -0,0 +1,24 @@
+package org.jbehave.asciidoctor.maven;
+
+import java.io.Closeable;
+import java.io.File;
+
+/**
+ * Converts AsciiDoc reports to HTML. A converter is only ever used by the one
+ * worker thread it was created for.
+ */
+public interface ReportConverter extends Closeable {
+
+	/**
+	 * Converts the report into <code>targetDirectory</code>, named after the
+	 * report with an <code>.html</code> extension.
+	 */
+	void convert(File report, File targetDirectory);
+
+	public interface Factory {
+
+		ReportConverter create();
+
+	}
+
+}
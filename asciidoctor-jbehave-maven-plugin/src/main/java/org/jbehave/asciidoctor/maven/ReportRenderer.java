@@ -0,0 +1,354 @@
+package org.jbehave.asciidoctor.maven;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Renders every <code>.adoc</code> report under a directory to HTML on a
+ * fork-join pool, each worker converting with a converter of its own.
+ * <p>
+ * The checksum of every rendered report is kept in
+ * <code>.rendered-checksums</code> in the output directory, and a report whose
+ * checksum has not changed since and whose HTML is still there is not
+ * rendered again. The checksum of a report covers the files it includes, so
+ * an index only including stories is rendered again when one of them
+ * changes.
+ * <p>
+ * Files the reporter writes next to the reports that are not reports of
+ * their own, the run status and delta and the fragments of an archive, are
+ * not rendered.
+ */
+public class ReportRenderer {
+
+	public static final String CHECKSUMS = ".rendered-checksums";
+
+	private static final String REPORT_EXTENSION = ".adoc";
+	private static final String HTML_EXTENSION = ".html";
+	private static final String INCLUDE = "include::";
+	// written at the top of the report directory
+	private static final Set<String> NOT_REPORTS = new HashSet<String>(
+			Arrays.asList("status.adoc", "delta.adoc"));
+	// fragments of an archive are named after their SHA-1, ab/cdef...adoc
+	private static final Pattern FRAGMENT = Pattern
+			.compile("(^|.*/)[0-9a-f]{2}/[0-9a-f]{38}\\.adoc");
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final File reportDirectory;
+	private final File outputDirectory;
+	private final int parallelism;
+	private final ReportConverter.Factory converters;
+
+	public ReportRenderer(File reportDirectory, File outputDirectory,
+			int parallelism, ReportConverter.Factory converters) {
+		this.reportDirectory = reportDirectory;
+		this.outputDirectory = outputDirectory;
+		this.parallelism = parallelism;
+		this.converters = converters;
+	}
+
+	/**
+	 * Returns the number of reports rendered, those up to date are not
+	 * counted.
+	 */
+	public int render() {
+
+		List<String> reports = new ArrayList<String>();
+		collectReports(this.reportDirectory, "", reports);
+		Collections.sort(reports);
+
+		Properties previous = loadChecksums();
+		Map<String, String> checksums = new ConcurrentHashMap<String, String>();
+		Map<File, String> fileChecksums = new ConcurrentHashMap<File, String>();
+		Queue<String> failed = new ConcurrentLinkedQueue<String>();
+		Queue<Throwable> causes = new ConcurrentLinkedQueue<Throwable>();
+		AtomicInteger rendered = new AtomicInteger();
+
+		final Queue<ReportConverter> created = new ConcurrentLinkedQueue<ReportConverter>();
+		ThreadLocal<ReportConverter> converter = new ThreadLocal<ReportConverter>() {
+			@Override
+			protected ReportConverter initialValue() {
+				ReportConverter converter = ReportRenderer.this.converters
+						.create();
+				created.add(converter);
+				return converter;
+			}
+		};
+
+		ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+		try {
+			pool.invoke(new RenderReports(reports, 0, reports.size(), previous,
+					checksums, fileChecksums, converter, rendered, failed,
+					causes));
+		} finally {
+			pool.shutdown();
+			for (ReportConverter each : created) {
+				close(each);
+			}
+		}
+
+		// failed reports keep no checksum so the next run retries them
+		saveChecksums(checksums);
+
+		if (!failed.isEmpty()) {
+			List<String> failedReports = new ArrayList<String>(failed);
+			Collections.sort(failedReports);
+			throw new ReportRenderingFailed(failedReports, causes.peek());
+		}
+
+		return rendered.get();
+	}
+
+	private void collectReports(File directory, String relativePath,
+			List<String> reports) {
+
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+
+		for (File file : files) {
+			String path = relativePath + file.getName();
+			if (file.isDirectory()) {
+				collectReports(file, path + "/", reports);
+			} else if (file.getName().endsWith(REPORT_EXTENSION)
+					&& !NOT_REPORTS.contains(path)
+					&& !FRAGMENT.matcher(path).matches()) {
+				reports.add(path);
+			}
+		}
+	}
+
+	private void renderReport(String report, Properties previous,
+			Map<String, String> checksums, Map<File, String> fileChecksums,
+			ThreadLocal<ReportConverter> converter, AtomicInteger rendered) {
+
+		File source = new File(this.reportDirectory, report);
+		String checksum = checksumOf(source, fileChecksums,
+				new HashSet<File>());
+
+		int slash = report.lastIndexOf('/');
+		File targetDirectory = slash > -1 ? new File(this.outputDirectory,
+				report.substring(0, slash)) : this.outputDirectory;
+		File html = new File(targetDirectory, source.getName().substring(0,
+				source.getName().length() - REPORT_EXTENSION.length())
+				+ HTML_EXTENSION);
+
+		if (!checksum.equals(previous.getProperty(report)) || !html.isFile()) {
+			converter.get().convert(source, targetDirectory);
+			rendered.incrementAndGet();
+		}
+
+		checksums.put(report, checksum);
+	}
+
+	/**
+	 * SHA-1 of the file followed by the checksums of the files it includes,
+	 * those already being summed up the include chain left out.
+	 */
+	private static String checksumOf(File file, Map<File, String> checksums,
+			Set<File> including) {
+
+		File canonical = canonical(file);
+		String checksum = checksums.get(canonical);
+		if (checksum != null) {
+			return checksum;
+		}
+
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+
+		List<File> includes = new ArrayList<File>();
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(
+					new DigestInputStream(new FileInputStream(file), digest),
+					UTF_8));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int attributes = line.lastIndexOf('[');
+				if (line.startsWith(INCLUDE) && attributes > INCLUDE.length()) {
+					includes.add(new File(file.getParentFile(), line.substring(
+							INCLUDE.length(), attributes)));
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to read " + file, e);
+		} finally {
+			close(reader);
+		}
+
+		including.add(canonical);
+		for (File include : includes) {
+			if (!include.isFile()) {
+				digest.update((byte) '-');
+			} else if (!including.contains(canonical(include))) {
+				digest.update(checksumOf(include, checksums, including)
+						.getBytes(UTF_8));
+			}
+		}
+		including.remove(canonical);
+
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(
+					Character.forDigit(b & 0xF, 16));
+		}
+		checksum = hex.toString();
+
+		checksums.put(canonical, checksum);
+		return checksum;
+	}
+
+	private static File canonical(File file) {
+		try {
+			return file.getCanonicalFile();
+		} catch (IOException e) {
+			return file.getAbsoluteFile();
+		}
+	}
+
+	private Properties loadChecksums() {
+
+		Properties checksums = new Properties();
+		File file = new File(this.outputDirectory, CHECKSUMS);
+
+		if (!file.isFile()) {
+			return checksums;
+		}
+
+		InputStream input = null;
+		try {
+			input = new FileInputStream(file);
+			checksums.load(input);
+		} catch (IOException e) {
+			// rendering everything again is always safe
+			checksums.clear();
+		} finally {
+			close(input);
+		}
+
+		return checksums;
+	}
+
+	private void saveChecksums(Map<String, String> checksums) {
+
+		this.outputDirectory.mkdirs();
+		File file = new File(this.outputDirectory, CHECKSUMS);
+
+		Properties sorted = new Properties();
+		sorted.putAll(new TreeMap<String, String>(checksums));
+
+		OutputStream output = null;
+		try {
+			output = new FileOutputStream(file);
+			sorted.store(output, "checksums of the reports rendered to HTML");
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to write " + file, e);
+		} finally {
+			close(output);
+		}
+	}
+
+	private static void close(Closeable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	/**
+	 * Splits the reports in halves until a single one is left to render.
+	 */
+	@SuppressWarnings("serial")
+	private final class RenderReports extends RecursiveAction {
+
+		private final List<String> reports;
+		private final int from;
+		private final int to;
+		private final Properties previous;
+		private final Map<String, String> checksums;
+		private final Map<File, String> fileChecksums;
+		private final ThreadLocal<ReportConverter> converter;
+		private final AtomicInteger rendered;
+		private final Queue<String> failed;
+		private final Queue<Throwable> causes;
+
+		private RenderReports(List<String> reports, int from, int to,
+				Properties previous, Map<String, String> checksums,
+				Map<File, String> fileChecksums,
+				ThreadLocal<ReportConverter> converter, AtomicInteger rendered,
+				Queue<String> failed, Queue<Throwable> causes) {
+			this.reports = reports;
+			this.from = from;
+			this.to = to;
+			this.previous = previous;
+			this.checksums = checksums;
+			this.fileChecksums = fileChecksums;
+			this.converter = converter;
+			this.rendered = rendered;
+			this.failed = failed;
+			this.causes = causes;
+		}
+
+		@Override
+		protected void compute() {
+
+			if (this.to - this.from > 1) {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(split(this.from, middle), split(middle, this.to));
+				return;
+			}
+
+			for (int i = this.from; i < this.to; i++) {
+				String report = this.reports.get(i);
+				try {
+					renderReport(report, this.previous, this.checksums,
+							this.fileChecksums, this.converter, this.rendered);
+				} catch (RuntimeException e) {
+					this.failed.add(report);
+					this.causes.add(e);
+				}
+			}
+		}
+
+		private RenderReports split(int from, int to) {
+			return new RenderReports(this.reports, from, to, this.previous,
+					this.checksums, this.fileChecksums, this.converter,
+					this.rendered, this.failed, this.causes);
+		}
+	}
+
+}
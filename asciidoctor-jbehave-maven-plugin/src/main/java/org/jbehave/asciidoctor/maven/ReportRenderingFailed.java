@@ -0,0 +1,20 @@
+package org.jbehave.asciidoctor.maven;
+
+import java.util.List;
+
+@SuppressWarnings("serial")
+public class ReportRenderingFailed extends RuntimeException {
+
+	private final List<String> failedReports;
+
+	public ReportRenderingFailed(List<String> failedReports, Throwable cause) {
+		super("Failed to render " + failedReports.size() + " reports "
+				+ failedReports, cause);
+		this.failedReports = failedReports;
+	}
+
+	public List<String> getFailedReports() {
+		return failedReports;
+	}
+
+}
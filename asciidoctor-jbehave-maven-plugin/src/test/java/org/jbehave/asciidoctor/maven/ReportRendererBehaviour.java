@@ -0,0 +1,167 @@
+package org.jbehave.asciidoctor.maven;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReportRendererBehaviour {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private final AtomicInteger created = new AtomicInteger();
+	private final Set<String> workers = Collections
+			.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	@Test
+	public void shouldOnlyRenderReportsChangedSinceTheLastRendering()
+			throws IOException {
+
+		File reports = temporaryFolder.newFolder("jbehave");
+		write(new File(reports, "first.adoc"), "= First");
+		write(new File(reports, "org/second.adoc"), "= Second");
+		File html = temporaryFolder.newFolder("html");
+
+		assertThat(renderer(reports, html).render(), is(2));
+		assertThat(new File(html, "org/second.html").isFile(), is(true));
+
+		assertThat(renderer(reports, html).render(), is(0));
+
+		write(new File(reports, "first.adoc"), "= First again");
+		assertThat(renderer(reports, html).render(), is(1));
+
+		new File(html, "org/second.html").delete();
+		assertThat(renderer(reports, html).render(), is(1));
+	}
+
+	@Test
+	public void shouldCreateOneConverterPerWorker() throws IOException {
+
+		File reports = temporaryFolder.newFolder("jbehave");
+		for (int i = 0; i < 64; i++) {
+			write(new File(reports, "story" + i + ".adoc"), "= Story " + i);
+		}
+
+		assertThat(renderer(reports, reports).render(), is(64));
+		assertThat(this.created.get(), is(this.workers.size()));
+	}
+
+	@Test
+	public void shouldRetryReportsThatFailedToRender() throws IOException {
+
+		File reports = temporaryFolder.newFolder("jbehave");
+		write(new File(reports, "good.adoc"), "= Good");
+		write(new File(reports, "broken.adoc"), "= Broken");
+
+		try {
+			renderer(reports, reports).render();
+			fail("broken report rendered");
+		} catch (ReportRenderingFailed e) {
+			assertThat(e.getFailedReports(), containsInAnyOrder("broken.adoc"));
+		}
+
+		write(new File(reports, "broken.adoc"), "= Fixed");
+		assertThat(renderer(reports, reports).render(), is(1));
+	}
+
+	@Test
+	public void shouldRenderAgainReportsWhoseIncludesChanged()
+			throws IOException {
+
+		File reports = temporaryFolder.newFolder("jbehave");
+		write(new File(reports, "index.adoc"),
+				"include::first.adoc[]\n\ninclude::org/second.adoc[]\n");
+		write(new File(reports, "first.adoc"), "= First");
+		write(new File(reports, "org/second.adoc"), "= Second");
+
+		assertThat(renderer(reports, reports).render(), is(3));
+		assertThat(renderer(reports, reports).render(), is(0));
+
+		write(new File(reports, "org/second.adoc"), "= Second again");
+		assertThat(renderer(reports, reports).render(), is(2));
+	}
+
+	@Test
+	public void shouldNotRenderFilesThatAreNotReports() throws IOException {
+
+		File reports = temporaryFolder.newFolder("jbehave");
+		String fragment = "fragments/3f/786850e387550fdab836ed7e6dc881de23001b.adoc";
+		write(new File(reports, "status.adoc"), "= Status");
+		write(new File(reports, "delta.adoc"), "= Delta");
+		write(new File(reports, fragment), "== Scenario");
+		write(new File(reports, "story.adoc"), "include::" + fragment + "[]");
+		write(new File(reports, "org/status.adoc"), "= Status story");
+
+		assertThat(renderer(reports, reports).render(), is(2));
+		assertThat(new File(reports, "status.html").exists(), is(false));
+		assertThat(new File(reports, "org/status.html").isFile(), is(true));
+	}
+
+	private ReportRenderer renderer(File reports, File html) {
+		return new ReportRenderer(reports, html, 4,
+				new ReportConverter.Factory() {
+					@Override
+					public ReportConverter create() {
+						created.incrementAndGet();
+						return new WritingConverter();
+					}
+				});
+	}
+
+	private static void write(File file, String content) throws IOException {
+		file.getParentFile().mkdirs();
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(content.getBytes("UTF-8"));
+		} finally {
+			output.close();
+		}
+	}
+
+	private final class WritingConverter implements ReportConverter {
+
+		@Override
+		public void convert(File report, File targetDirectory) {
+
+			workers.add(Thread.currentThread().getName());
+
+			String content;
+			try {
+				content = new String(Files.readAllBytes(report.toPath()),
+						"UTF-8");
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+
+			if (content.contains("Broken")) {
+				throw new IllegalStateException("cannot render " + report);
+			}
+
+			String name = report.getName().replace(".adoc", ".html");
+			try {
+				write(new File(targetDirectory, name), content);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+}
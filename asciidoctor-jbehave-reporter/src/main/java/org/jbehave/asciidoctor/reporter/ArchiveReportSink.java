@@ -0,0 +1,145 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Writes a story report as a thin document of <code>include::</code>
+ * references to fragments kept in a {@link FragmentStore}. Content is split
+ * before every section and block title, together with the anchor and
+ * attribute lines preceding it, so scenarios and blocks unchanged between
+ * runs are the very same fragment.
+ * <p>
+ * Content is split as it is written, only the fragment being written is held.
+ */
+public class ArchiveReportSink implements ReportSink {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final String LINE_SEPARATOR = System
+			.getProperty("line.separator");
+
+	private final ReportSink document;
+	private final FragmentStore store;
+	private final String includePrefix;
+
+	private final Buffer line = new Buffer();
+	private final Buffer pending = new Buffer();
+	private final Buffer fragment = new Buffer();
+
+	public ArchiveReportSink(ReportSink document, FragmentStore store,
+			String includePrefix) {
+		this.document = document;
+		this.store = store;
+		this.includePrefix = includePrefix;
+	}
+
+	@Override
+	public void write(CharSequence content) {
+		byte[] bytes = content.toString().getBytes(UTF_8);
+		write(bytes, 0, bytes.length);
+	}
+
+	@Override
+	public void write(ByteBuffer... content) {
+		byte[] chunk = new byte[4096];
+		for (ByteBuffer buffer : content) {
+			while (buffer.hasRemaining()) {
+				int length = Math.min(chunk.length, buffer.remaining());
+				buffer.get(chunk, 0, length);
+				write(chunk, 0, length);
+			}
+		}
+	}
+
+	private void write(byte[] bytes, int offset, int length) {
+		int start = offset;
+		for (int i = offset; i < offset + length; i++) {
+			if (bytes[i] == '\n') {
+				this.line.write(bytes, start, i + 1 - start);
+				lineCompleted();
+				start = i + 1;
+			}
+		}
+		this.line.write(bytes, start, offset + length - start);
+	}
+
+	private void lineCompleted() {
+
+		byte[] line = this.line.bytes();
+		int length = this.line.size();
+
+		if (isAttribute(line, length)) {
+			this.pending.write(line, 0, length);
+		} else {
+			if (isTitle(line, length) && this.fragment.size() > 0) {
+				storeFragment();
+			}
+			this.fragment.write(this.pending.bytes(), 0, this.pending.size());
+			this.pending.reset();
+			this.fragment.write(line, 0, length);
+		}
+
+		this.line.reset();
+	}
+
+	private void storeFragment() {
+		String path = this.store.store(this.fragment.bytes(),
+				this.fragment.size());
+		this.document.write("include::" + this.includePrefix + path + "[]"
+				+ LINE_SEPARATOR);
+		this.fragment.reset();
+	}
+
+	/**
+	 * Anchors, roles and block attributes belong with what follows them.
+	 */
+	private static boolean isAttribute(byte[] line, int length) {
+		return length > 1 && line[0] == '[';
+	}
+
+	/**
+	 * Section titles, <code>== Scenario</code>, and block titles,
+	 * <code>.Narrative</code>.
+	 */
+	private static boolean isTitle(byte[] line, int length) {
+
+		if (length > 1 && line[0] == '.') {
+			return Character.isLetter(line[1]);
+		}
+
+		int level = 0;
+		while (level < length && line[level] == '=') {
+			level++;
+		}
+		return level > 0 && level < length && line[level] == ' ';
+	}
+
+	@Override
+	public void flush() {
+		this.document.flush();
+	}
+
+	@Override
+	public void close() {
+
+		if (this.line.size() > 0) {
+			lineCompleted();
+		}
+		this.fragment.write(this.pending.bytes(), 0, this.pending.size());
+		this.pending.reset();
+		if (this.fragment.size() > 0) {
+			storeFragment();
+		}
+
+		this.document.close();
+	}
+
+	private static final class Buffer extends ByteArrayOutputStream {
+
+		private byte[] bytes() {
+			return this.buf;
+		}
+	}
+
+}
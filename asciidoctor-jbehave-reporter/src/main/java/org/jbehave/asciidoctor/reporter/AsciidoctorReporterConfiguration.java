@@ -0,0 +1,533 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class AsciidoctorReporterConfiguration {
+
+	private int initialSectionLevel = 0;
+	private ReportSinkFactory sinkFactory = ReportSinkFactory.PRINT_STREAM;
+	private int sinkBufferSize = FileChannelReportSink.DEFAULT_BUFFER_SIZE;
+	private FlushPolicy flushPolicy = FlushPolicy.ON_BUFFER_FULL;
+	private ChunkAllocator storyContentAllocator = new HeapChunkAllocator();
+	private FragmentTemplates templates = FragmentTemplates.defaults();
+	private ReportingOverheadProfiler overheadProfiler;
+	private boolean jsonLinesSidecar;
+	private List<ReportListener> listeners = new ArrayList<ReportListener>();
+	private boolean progressiveReport;
+	private long progressiveFlushInterval = 5000;
+	private int progressiveFlushBytes = 64 * 1024;
+	private File statusFile;
+	private ProgressStatus progressStatus;
+	private StepLineCache stepLineCache;
+	private ReportFileLayout reportFileLayout = ReportFileLayout.FLAT;
+	private ReportManifest reportManifest;
+	private boolean runSummary;
+	private File deltaBaseline;
+	private RunSummary runSummaryListener;
+	private DeltaReport deltaReport;
+	private boolean storyStatistics;
+	private StepLatencies stepLatencies;
+	private StepWatchdog stepWatchdog;
+	private DurationCharts durationCharts;
+	private int liveDashboardPort = -1;
+	private File storyDurationHistoryFile;
+	private StoryDurationHistory storyDurationHistory;
+	private FragmentStore fragmentStore;
+	private FailureDiff failureDiff = new FailureDiff();
+	private boolean failureSignal;
+	private FailureSignalCallback failureSignalCallback;
+	private FailureSignal failureSignalListener;
+	private boolean dryRunCatalogue;
+	private DryRunCatalogue catalogue;
+	private LiveDashboard liveDashboard;
+	private ReportEventPublisher liveDashboardEvents;
+
+	public int initialSectionLevel() {
+		return initialSectionLevel;
+	}
+
+	public ReportSinkFactory sinkFactory() {
+		return sinkFactory;
+	}
+
+	public int sinkBufferSize() {
+		return sinkBufferSize;
+	}
+
+	public FlushPolicy flushPolicy() {
+		return flushPolicy;
+	}
+
+	public ChunkAllocator storyContentAllocator() {
+		return storyContentAllocator;
+	}
+
+	public FragmentTemplates templates() {
+		return templates;
+	}
+
+	public ReportingOverheadProfiler overheadProfiler() {
+		return overheadProfiler;
+	}
+
+	public boolean jsonLinesSidecar() {
+		return jsonLinesSidecar;
+	}
+
+	public List<ReportListener> listeners() {
+		return Collections.unmodifiableList(listeners);
+	}
+
+	public boolean progressiveReport() {
+		return progressiveReport;
+	}
+
+	public long progressiveFlushInterval() {
+		return progressiveFlushInterval;
+	}
+
+	public int progressiveFlushBytes() {
+		return progressiveFlushBytes;
+	}
+
+	/**
+	 * The status of the run shared by the reporters of every story, kept in
+	 * the configured status file or in <code>status.adoc</code> of the given
+	 * output directory.
+	 */
+	public synchronized ProgressStatus progressStatus(File outputDirectory) {
+		if (progressStatus == null) {
+			progressStatus = new ProgressStatus(statusFile != null ? statusFile
+					: new File(outputDirectory, ProgressStatus.STATUS_FILE),
+					ProgressStatus.DEFAULT_MIN_INTERVAL_MILLIS, templates);
+		}
+		return progressStatus;
+	}
+
+	public StepLineCache stepLineCache() {
+		return stepLineCache;
+	}
+
+	public ReportFileLayout reportFileLayout() {
+		return reportFileLayout;
+	}
+
+	/**
+	 * The manifest shared by the reporters of every story, kept in the given
+	 * output directory.
+	 */
+	public synchronized ReportManifest reportManifest(File outputDirectory) {
+		if (reportManifest == null) {
+			reportManifest = new ReportManifest(outputDirectory);
+		}
+		return reportManifest;
+	}
+
+	public boolean runSummary() {
+		return runSummary;
+	}
+
+	public boolean failureSignal() {
+		return failureSignal;
+	}
+
+	/**
+	 * The failure signal shared by the reporters of every story, kept in
+	 * <code>failure-signal.jsonl</code> of the given output directory.
+	 */
+	public synchronized FailureSignal failureSignal(File outputDirectory) {
+		if (failureSignalListener == null) {
+			failureSignalListener = new FailureSignal(new File(
+					outputDirectory, FailureSignal.SIGNAL_FILE),
+					failureSignalCallback);
+		}
+		return failureSignalListener;
+	}
+
+	public boolean dryRunCatalogue() {
+		return dryRunCatalogue;
+	}
+
+	/**
+	 * The catalogue shared by the reporters of every story of a dry run, kept
+	 * in <code>catalogue.adoc</code> of the given output directory.
+	 */
+	public synchronized DryRunCatalogue dryRunCatalogue(File outputDirectory) {
+		if (catalogue == null) {
+			catalogue = new DryRunCatalogue(new File(outputDirectory,
+					DryRunCatalogue.CATALOGUE_FILE), templates, sinkBufferSize);
+		}
+		return catalogue;
+	}
+
+	public File deltaBaseline() {
+		return deltaBaseline;
+	}
+
+	/**
+	 * The run summary shared by the reporters of every story, kept in
+	 * <code>run-summary.tsv</code> of the given output directory.
+	 */
+	public synchronized RunSummary runSummary(File outputDirectory) {
+		if (runSummaryListener == null) {
+			runSummaryListener = new RunSummary(new File(outputDirectory,
+					RunSummary.SUMMARY_FILE));
+		}
+		return runSummaryListener;
+	}
+
+	/**
+	 * The comparison with the baseline shared by the reporters of every
+	 * story, written to <code>delta.adoc</code> of the given output
+	 * directory.
+	 */
+	public synchronized DeltaReport deltaReport(File outputDirectory) {
+		if (deltaReport == null) {
+			deltaReport = new DeltaReport(deltaBaseline, new File(
+					outputDirectory, DeltaReport.DELTA_FILE),
+					DeltaReport.DEFAULT_SLOWDOWN_FACTOR,
+					DeltaReport.DEFAULT_MIN_SLOWDOWN_MILLIS, templates);
+		}
+		return deltaReport;
+	}
+
+	public boolean storyStatistics() {
+		return storyStatistics;
+	}
+
+	public StepLatencies stepLatencies() {
+		return stepLatencies;
+	}
+
+	public StepWatchdog stepWatchdog() {
+		return stepWatchdog;
+	}
+
+	public DurationCharts durationCharts() {
+		return durationCharts;
+	}
+
+	public int liveDashboardPort() {
+		return liveDashboardPort;
+	}
+
+	public FailureDiff failureDiff() {
+		return failureDiff;
+	}
+
+	public FragmentStore fragmentStore() {
+		return fragmentStore;
+	}
+
+	public File storyDurationHistoryFile() {
+		return storyDurationHistoryFile;
+	}
+
+	public synchronized StoryDurationHistory storyDurationHistory() {
+		if (storyDurationHistory == null) {
+			storyDurationHistory = new StoryDurationHistory(
+					storyDurationHistoryFile);
+		}
+		return storyDurationHistory;
+	}
+
+	/**
+	 * The dashboard once the first story has started, otherwise
+	 * <code>null</code>.
+	 */
+	public synchronized LiveDashboard liveDashboard() {
+		return liveDashboard;
+	}
+
+	/**
+	 * Events feeding the dashboard of the given output directory, started the
+	 * first time any reporter asks.
+	 */
+	public synchronized ReportEventPublisher liveDashboardEvents(
+			File outputDirectory) {
+		if (liveDashboardEvents == null) {
+			liveDashboard = new LiveDashboard(liveDashboardPort, outputDirectory);
+			liveDashboardEvents = new ReportEventPublisher();
+			liveDashboardEvents.subscribe(liveDashboard);
+		}
+		return liveDashboardEvents;
+	}
+
+	public AsciidoctorReporterConfiguration withInitialSectionLevel(
+			int initialSectionLevel) {
+		this.initialSectionLevel = initialSectionLevel;
+		return this;
+	}
+
+	public AsciidoctorReporterConfiguration withSinkFactory(
+			ReportSinkFactory sinkFactory) {
+		this.sinkFactory = sinkFactory;
+		return this;
+	}
+
+	public AsciidoctorReporterConfiguration withSinkBufferSize(
+			int sinkBufferSize) {
+		this.sinkBufferSize = sinkBufferSize;
+		return this;
+	}
+
+	public AsciidoctorReporterConfiguration withFlushPolicy(
+			FlushPolicy flushPolicy) {
+		this.flushPolicy = flushPolicy;
+		return this;
+	}
+
+	/**
+	 * Keeps the content of in-flight stories in the given allocator, e.g. a
+	 * {@link DirectChunkPool} shared by all story threads to take it off the
+	 * heap.
+	 */
+	public AsciidoctorReporterConfiguration withStoryContentAllocator(
+			ChunkAllocator storyContentAllocator) {
+		this.storyContentAllocator = storyContentAllocator;
+		return this;
+	}
+
+	public AsciidoctorReporterConfiguration withTemplates(
+			FragmentTemplates templates) {
+		this.templates = templates;
+		return this;
+	}
+
+	/**
+	 * Profiles every reporter callback, adding a reporting overhead table to
+	 * each story and the suite totals to the <code>AfterStories</code> report.
+	 */
+	public AsciidoctorReporterConfiguration withOverheadProfiling(
+			boolean overheadProfiling) {
+		this.overheadProfiler = overheadProfiling ? new ReportingOverheadProfiler()
+				: null;
+		return this;
+	}
+
+	/**
+	 * Writes the events of every story as JSON Lines next to its report, in
+	 * the same pass as the AsciiDoc output.
+	 */
+	public AsciidoctorReporterConfiguration withJsonLinesSidecar(
+			boolean jsonLinesSidecar) {
+		this.jsonLinesSidecar = jsonLinesSidecar;
+		return this;
+	}
+
+	/**
+	 * Registers a listener shared by the reporters of every story, so it must
+	 * be thread safe when stories run in parallel.
+	 */
+	public AsciidoctorReporterConfiguration withListener(
+			ReportListener listener) {
+		this.listeners.add(listener);
+		return this;
+	}
+
+	/**
+	 * Writes completed scenarios as they finish, and in between whenever the
+	 * flush interval has elapsed or the flush bytes are buffered, instead of
+	 * the whole story at its end. The story result is then written as a
+	 * trailing section and the run status is kept in a status file. Stories
+	 * only flush while running with live callbacks, otherwise the concurrent
+	 * reporter replays them at the story end, see
+	 * {@link LiveStoryReporterBuilder}.
+	 */
+	public AsciidoctorReporterConfiguration withProgressiveReport(
+			boolean progressiveReport) {
+		this.progressiveReport = progressiveReport;
+		return this;
+	}
+
+	public AsciidoctorReporterConfiguration withProgressiveFlushInterval(
+			long progressiveFlushIntervalMillis) {
+		this.progressiveFlushInterval = progressiveFlushIntervalMillis;
+		return this;
+	}
+
+	public AsciidoctorReporterConfiguration withProgressiveFlushBytes(
+			int progressiveFlushBytes) {
+		this.progressiveFlushBytes = progressiveFlushBytes;
+		return this;
+	}
+
+	public AsciidoctorReporterConfiguration withStatusFile(File statusFile) {
+		this.statusFile = statusFile;
+		return this;
+	}
+
+	/**
+	 * Renders each distinct successful, ignorable, pending or not performed
+	 * step line once and reuses its bytes afterwards. Share the cache between
+	 * configurations to share it between suites.
+	 */
+	public AsciidoctorReporterConfiguration withStepLineCache(
+			StepLineCache stepLineCache) {
+		this.stepLineCache = stepLineCache;
+		return this;
+	}
+
+	/**
+	 * Places story reports below the output directory following the layout,
+	 * listing them in a {@link ReportManifest} and rewriting links between
+	 * stories to match.
+	 */
+	public AsciidoctorReporterConfiguration withReportFileLayout(
+			ReportFileLayout reportFileLayout) {
+		this.reportFileLayout = reportFileLayout;
+		return this;
+	}
+
+	/**
+	 * Writes a compact summary of every scenario of the run, to be used as
+	 * the baseline of later runs.
+	 */
+	public AsciidoctorReporterConfiguration withRunSummary(boolean runSummary) {
+		this.runSummary = runSummary;
+		return this;
+	}
+
+	/**
+	 * Compares the run with the run summary of a previous one, writing only
+	 * what changed to <code>delta.adoc</code>. Until the baseline exists, as on
+	 * a first run, every scenario is new.
+	 */
+	public AsciidoctorReporterConfiguration withDeltaBaseline(
+			File deltaBaseline) {
+		this.deltaBaseline = deltaBaseline;
+		return this;
+	}
+
+	/**
+	 * Adds a table counting the steps of every scenario by outcome, its
+	 * examples and elapsed time next to the story result.
+	 */
+	public AsciidoctorReporterConfiguration withStoryStatistics(
+			boolean storyStatistics) {
+		this.storyStatistics = storyStatistics;
+		return this;
+	}
+
+	/**
+	 * Keeps a latency histogram of every step pattern across the suite,
+	 * reported in the <code>AfterStories</code> report. Step latencies are
+	 * measured between live callbacks, see {@link LiveStoryReporterBuilder}.
+	 */
+	public AsciidoctorReporterConfiguration withStepLatencies(
+			boolean stepLatencies) {
+		this.stepLatencies = stepLatencies ? new StepLatencies() : null;
+		return this;
+	}
+
+	/**
+	 * Watches for steps running past the watchdog threshold, and reports the
+	 * step a cancelled story was stuck in with its stack. Steps are only seen
+	 * as they start with live callbacks, see {@link LiveStoryReporterBuilder}.
+	 */
+	public AsciidoctorReporterConfiguration withStepWatchdog(
+			StepWatchdog stepWatchdog) {
+		this.stepWatchdog = stepWatchdog;
+		return this;
+	}
+
+	/**
+	 * Writes a chart of the slowest scenarios next to every story report and a
+	 * histogram of story durations next to the <code>AfterStories</code> one,
+	 * both embedded under the story result.
+	 */
+	public AsciidoctorReporterConfiguration withDurationCharts(
+			boolean durationCharts) {
+		this.durationCharts = durationCharts ? new DurationCharts() : null;
+		return this;
+	}
+
+	/**
+	 * Serves a page following the run on the given port of the loopback
+	 * interface, <code>0</code> for any free one, see {@link LiveDashboard}.
+	 * Once the first story has started the page is at
+	 * <code>liveDashboard().getUrl()</code>. The page only follows running
+	 * steps with live callbacks, otherwise the concurrent reporter replays a
+	 * story at its end, see {@link LiveStoryReporterBuilder}.
+	 */
+	public AsciidoctorReporterConfiguration withLiveDashboard(int port) {
+		this.liveDashboardPort = port;
+		return this;
+	}
+
+	/**
+	 * Keeps the duration of every story in the given file across runs, for
+	 * {@link StoryOrdering} to schedule the longest stories first. The file
+	 * should live outside the build directory to survive a clean, and stories
+	 * are only timed with live callbacks, see {@link LiveStoryReporterBuilder}.
+	 */
+	public AsciidoctorReporterConfiguration withStoryDurationHistory(
+			File historyFile) {
+		this.storyDurationHistoryFile = historyFile;
+		return this;
+	}
+
+	/**
+	 * Shows the differences of long expected and actual values of failed
+	 * steps and outcomes instead of both values, <code>null</code> to always
+	 * show them whole.
+	 */
+	public AsciidoctorReporterConfiguration withFailureDiff(
+			FailureDiff failureDiff) {
+		this.failureDiff = failureDiff;
+		return this;
+	}
+
+	/**
+	 * Writes every failed step of the run, the first one first, to a signal
+	 * file while the suite is running, see {@link FailureSignal}. Failures are
+	 * only signalled as the steps fail with live callbacks, otherwise not
+	 * before the failing story finishes, see {@link LiveStoryReporterBuilder}.
+	 */
+	public AsciidoctorReporterConfiguration withFailureSignal(
+			boolean failureSignal) {
+		this.failureSignal = failureSignal;
+		return this;
+	}
+
+	/**
+	 * Signals failures to the given callback too, as well as to the signal
+	 * file, as early as the callbacks are live, see
+	 * {@link LiveStoryReporterBuilder}.
+	 */
+	public AsciidoctorReporterConfiguration withFailureSignal(
+			FailureSignalCallback callback) {
+		this.failureSignal = true;
+		this.failureSignalCallback = callback;
+		return this;
+	}
+
+	/**
+	 * Renders only the structure of stories, scenarios and steps once JBehave
+	 * reports a dry run, into a single catalogue of every story instead of a
+	 * report per story, see {@link DryRunCatalogue}. Story report files are
+	 * only created for stories that are not dry runs.
+	 */
+	public AsciidoctorReporterConfiguration withDryRunCatalogue(
+			boolean dryRunCatalogue) {
+		this.dryRunCatalogue = dryRunCatalogue;
+		return this;
+	}
+
+	/**
+	 * Writes story reports as <code>include::</code> references to fragments
+	 * stored once by content in the given directory. Runs sharing the
+	 * directory share every fragment that did not change, see
+	 * {@link ArchiveReportSink}. Fragments outlive the runs that stored them
+	 * until {@link FragmentStore#sweep(java.util.List) swept}.
+	 */
+	public AsciidoctorReporterConfiguration withArchive(File fragmentDirectory) {
+		this.fragmentStore = fragmentDirectory != null ? new FragmentStore(
+				fragmentDirectory) : null;
+		return this;
+	}
+
+}
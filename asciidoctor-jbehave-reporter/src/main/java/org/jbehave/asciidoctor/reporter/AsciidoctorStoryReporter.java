@@ -1,7 +1,14 @@
 package org.jbehave.asciidoctor.reporter;
 
+import static org.jbehave.asciidoctor.reporter.ReportFragment.*;
+
+import java.io.File;
 import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.Map;
 import java.util.Set;
 
@@ -25,53 +32,46 @@ import org.jbehave.core.reporters.StoryReporterBuilder;
 
 public class AsciidoctorStoryReporter implements StoryReporter {
 
-	private static final String FAILED_COLOR = "red";
-	private static final String SUCCESS_COLOR = "green";
-	private static final String WARNING_COLOR = "yellow";
-
-	private enum StoryResult {
-		SUCCESS, FAIL, SUCCESS_WITH_WARNING;
-	}
-
-	private static final String SUCCESS_STORY = "rocket";
-	private static final String SUCCESS_WITH_WARNING = "truck";
-	private static final String FAILED_STORY = "ambulance";
-	private static final String SUCCESS_STEP = "thumbs-up";
-	private static final String FAIL_STEP = "thumbs-down";
-	private static final String PENDING_STEP = "spinner";
-	private static final String NOT_PERFORMED_STEP = "unlink";
-	private static final String RESTARTED_STEP = "rotate-right";
-	private static final String IGNORABLE_STEP = "volume-off";
-	// both below icons should be adapted for font awesome 4 when Asciidoctor
-	// support it.
-	private static final String NOT_ALLOWED = "minus-sign";
-	private static final String CANCELLED = "remove-circle";
-
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
 	private static final int SECTION_KEY = 0;
-	private static final String NEW_LINE = System.getProperty("line.separator");
 
-	private PrintStream printer;
-	private StringBuilder currentStoryContent = new StringBuilder();
+	private ReportSink sink;
+	private StoryContentBuffer currentStoryContent;
 	private StoryResult currentStoryResult = StoryResult.SUCCESS;
+	private FragmentTemplates templates;
+	private List<ReportListener> listeners;
+	private LinkedList<StoryState> stories = new LinkedList<StoryState>();
+	private long stepStart;
+	private boolean progressiveReport;
+	private long progressiveFlushInterval;
+	private int progressiveFlushBytes;
+	private long lastFlush = System.nanoTime();
+	private StepLineCache stepLineCache;
+	private LayoutPrintStreamFactory storyFiles;
+	private boolean storyStatistics;
+	private StoryStatistics statistics;
+	private StepLatencies stepLatencies;
+	private StepWatchdog stepWatchdog;
+	private DurationCharts durationCharts;
+	private DurationCharts.SlowestScenarios slowestScenarios;
+	private File reportFile;
+	private FailureDiff failureDiff;
+	private DryRunCatalogue catalogue;
+	private boolean skeleton;
 
 	private Keywords keywords;
 
 	private int initialLevel = SECTION_KEY;
 
-	public static final Format ASCIIDOC = new Format("ADOC") {
-
-		@Override
-		public StoryReporter createStoryReporter(
-				FilePrintStreamFactory factory,
-				StoryReporterBuilder storyReporterBuilder) {
-			factory.useConfiguration(storyReporterBuilder
-					.fileConfiguration("adoc"));
-			return new AsciidoctorStoryReporter(factory.createPrintStream(),
-					storyReporterBuilder.keywords(), SECTION_KEY);
-		}
-	};
+	public static final Format ASCIIDOC = ASCIIDOC(SECTION_KEY);
 
 	public static final Format ASCIIDOC(final int initialSectionLevel) {
+		return ASCIIDOC(new AsciidoctorReporterConfiguration()
+				.withInitialSectionLevel(initialSectionLevel));
+	}
+
+	public static final Format ASCIIDOC(
+			final AsciidoctorReporterConfiguration configuration) {
 		return new Format("ADOC") {
 
 			@Override
@@ -80,28 +80,175 @@ public class AsciidoctorStoryReporter implements StoryReporter {
 					StoryReporterBuilder storyReporterBuilder) {
 				factory.useConfiguration(storyReporterBuilder
 						.fileConfiguration("adoc"));
-				return new AsciidoctorStoryReporter(
-						factory.createPrintStream(),
-						storyReporterBuilder.keywords(), initialSectionLevel);
+				return newStoryReporter(factory, storyReporterBuilder,
+						configuration);
 			}
 		};
 	}
 
+	private static StoryReporter newStoryReporter(
+			FilePrintStreamFactory factory,
+			StoryReporterBuilder storyReporterBuilder,
+			AsciidoctorReporterConfiguration configuration) {
+
+		LayoutPrintStreamFactory storyFiles = null;
+
+		if (configuration.reportFileLayout() != ReportFileLayout.FLAT) {
+			storyFiles = new LayoutPrintStreamFactory(factory,
+					configuration.reportFileLayout(),
+					configuration.reportManifest(storyReporterBuilder
+							.outputDirectory()),
+					storyReporterBuilder.codeLocation());
+			factory = storyFiles;
+		}
+
+		ReportSink sink;
+		File outputFile = null;
+
+		if (configuration.dryRunCatalogue()) {
+			sink = new LazyReportSink(factory, configuration);
+		} else {
+			sink = configuration.sinkFactory().createReportSink(factory,
+					configuration);
+		}
+
+		// resolving the file creates it, which a dry run only has to if asked
+		// for files next to it
+		if (!configuration.dryRunCatalogue()
+				|| configuration.jsonLinesSidecar()
+				|| configuration.fragmentStore() != null
+				|| configuration.durationCharts() != null) {
+			outputFile = factory.getOutputFile() != null ? factory
+					.getOutputFile() : ReportSinkFactory.outputFileOf(factory);
+		}
+
+		if (configuration.fragmentStore() != null) {
+			sink = new ArchiveReportSink(sink, configuration.fragmentStore(),
+					configuration.fragmentStore().includePrefix(outputFile));
+		}
+
+		AsciidoctorStoryReporter reporter = new AsciidoctorStoryReporter(sink,
+				storyReporterBuilder.keywords(), configuration);
+		reporter.storyFiles = storyFiles;
+		reporter.reportFile = outputFile;
+
+		if (configuration.dryRunCatalogue()) {
+			reporter.catalogue = configuration
+					.dryRunCatalogue(storyReporterBuilder.outputDirectory());
+		}
+
+		if (configuration.jsonLinesSidecar()) {
+			reporter.addListener(new JsonLinesSidecar(
+					new FileChannelReportSink(JsonLinesSidecar
+							.sidecarFileOf(outputFile), configuration
+							.sinkBufferSize(), FlushPolicy.ON_BUFFER_FULL)));
+		}
+
+		if (configuration.progressiveReport()) {
+			reporter.addListener(configuration
+					.progressStatus(storyReporterBuilder.outputDirectory()));
+		}
+
+		if (configuration.runSummary()) {
+			reporter.addListener(configuration.runSummary(storyReporterBuilder
+					.outputDirectory()));
+		}
+
+		if (configuration.failureSignal()) {
+			reporter.addListener(configuration
+					.failureSignal(storyReporterBuilder.outputDirectory()));
+		}
+
+		if (configuration.deltaBaseline() != null) {
+			reporter.addListener(configuration
+					.deltaReport(storyReporterBuilder.outputDirectory()));
+		}
+
+		if (configuration.storyDurationHistoryFile() != null) {
+			reporter.addListener(configuration.storyDurationHistory());
+		}
+
+		if (configuration.liveDashboardPort() >= 0) {
+			reporter.addListener(configuration
+					.liveDashboardEvents(storyReporterBuilder.outputDirectory()));
+		}
+
+		if (configuration.overheadProfiler() != null) {
+			return new ProfilingStoryReporter(reporter,
+					configuration.overheadProfiler());
+		}
+
+		return reporter;
+	}
+
 	public AsciidoctorStoryReporter(PrintStream output, Keywords keywords,
 			int initialSectionLevel) {
+		this(new PrintStreamReportSink(output), keywords, initialSectionLevel);
+	}
+
+	public AsciidoctorStoryReporter(ReportSink sink, Keywords keywords,
+			int initialSectionLevel) {
+		this(sink, keywords, new AsciidoctorReporterConfiguration()
+				.withInitialSectionLevel(initialSectionLevel));
+	}
+
+	public AsciidoctorStoryReporter(ReportSink sink, Keywords keywords,
+			AsciidoctorReporterConfiguration configuration) {
 
-		this.printer = output;
+		this.sink = sink;
 		this.keywords = keywords;
-		this.initialLevel = initialSectionLevel;
+		this.initialLevel = configuration.initialSectionLevel();
+		this.templates = configuration.templates();
+		this.listeners = new ArrayList<ReportListener>(
+				configuration.listeners());
+		this.currentStoryContent = new StoryContentBuffer(
+				configuration.storyContentAllocator());
+		this.progressiveReport = configuration.progressiveReport();
+		this.progressiveFlushInterval = TimeUnit.MILLISECONDS
+				.toNanos(configuration.progressiveFlushInterval());
+		this.progressiveFlushBytes = configuration.progressiveFlushBytes();
+		this.stepLineCache = configuration.stepLineCache();
+		this.storyStatistics = configuration.storyStatistics();
+		this.stepLatencies = configuration.stepLatencies();
+		this.stepWatchdog = configuration.stepWatchdog();
+		this.durationCharts = configuration.durationCharts();
+		this.failureDiff = configuration.failureDiff();
 	}
 
 	@Override
 	public void afterExamples() {
 	}
 
+	public void addListener(ReportListener listener) {
+		this.listeners.add(listener);
+	}
+
 	@Override
 	public void afterScenario() {
+
 		this.initialLevel--;
+
+		StoryState story = this.stories.peek();
+
+		if (story != null && story.scenarioTitle != null) {
+			if (this.slowestScenarios != null && this.stories.size() == 1) {
+				this.slowestScenarios.add(story.scenarioTitle,
+						System.nanoTime() - story.scenarioStart,
+						story.scenarioResult);
+			}
+			publish(ReportEvent.scenarioFinished(story.path, story.givenStory,
+					story.scenarioTitle, story.scenarioResult,
+					System.nanoTime() - story.scenarioStart));
+			story.scenarioTitle = null;
+		}
+
+		if (this.statistics != null && this.stories.size() == 1) {
+			this.statistics.scenarioFinished();
+		}
+
+		if (this.progressiveReport) {
+			flushProgress();
+		}
 	}
 
 	@Override
@@ -109,102 +256,144 @@ public class AsciidoctorStoryReporter implements StoryReporter {
 
 		this.initialLevel--;
 
-		if (!givenStory) {
-			this.printer.print(renderStoryResult());
-			this.currentStoryContent = new StringBuilder();
+		StoryState current = this.stories.peek();
+
+		if (!givenStory && this.stepLatencies != null && current != null
+				&& ProfilingStoryReporter.AFTER_STORIES.equals(current.path)) {
+			this.currentStoryContent.append(this.stepLatencies
+					.render(this.templates));
+		}
+
+		if (!givenStory && this.skeleton) {
+			if (current != null && isSuiteStory(current.path)) {
+				this.currentStoryContent.release();
+			} else {
+				this.catalogue.add(this.currentStoryContent);
+			}
+			this.sink.close();
+			this.skeleton = false;
+		} else if (!givenStory && this.progressiveReport) {
+			render(STORY_RESULT_TRAILER, getStoryLead(current));
+			this.currentStoryContent.drainTo(this.sink, "");
+			this.sink.close();
+			this.currentStoryResult = StoryResult.SUCCESS;
+		} else if (!givenStory) {
+			this.currentStoryContent.drainTo(this.sink, getStoryLead(current));
+			// one reporter is created per story, so its output is complete.
+			this.sink.close();
 			this.currentStoryResult = StoryResult.SUCCESS;
 		} else {
-			this.currentStoryContent.append("'''").append(NEW_LINE)
-					.append(NEW_LINE);
+			render(GIVEN_STORY_END);
 		}
 
-	}
+		if (!givenStory && this.catalogue != null && current != null
+				&& ProfilingStoryReporter.AFTER_STORIES.equals(current.path)) {
+			this.catalogue.close();
+		}
+
+		StoryState story = this.stories.poll();
+
+		if (story != null) {
+
+			StoryState parent = this.stories.peek();
+			if (parent != null) {
+				parent.addResult(story.result);
+			}
+
+			publish(ReportEvent.storyFinished(story.path, givenStory,
+					story.result, System.nanoTime() - story.start));
+
+			if (!givenStory && this.stepWatchdog != null) {
+				this.stepWatchdog.storyFinished(story.path);
+			}
+		}
 
-	private String renderStoryResult() {
-		return String.format(this.currentStoryContent.toString(),
-				getStoryResult());
 	}
 
 	@Override
 	public void beforeExamples(List<String> steps, ExamplesTable table) {
 
-		StringBuilder output = new StringBuilder();
-
-		output.append(".Examples").append(NEW_LINE).append("****")
-				.append(NEW_LINE);
-		output.append(renderSteps(steps));
-		output.append(renderExamplesTable(table));
-		output.append("****").append(NEW_LINE).append(NEW_LINE);
-
-		this.currentStoryContent.append(output.toString());
+		render(EXAMPLES_START);
+		renderSteps(steps);
+		renderExamplesTable(table);
+		render(EXAMPLES_END);
 
 	}
 
-	private String renderExamplesTable(ExamplesTable examplesTable) {
+	private void renderExamplesTable(ExamplesTable examplesTable) {
 
 		List<String> headers = examplesTable.getHeaders();
-		StringBuilder tableInformation = new StringBuilder(
-				"[options=\"header\"]" + NEW_LINE);
-		tableInformation.append(".Examples").append(NEW_LINE);
-		tableInformation.append("|===").append(NEW_LINE);
+
+		render(EXAMPLES_TABLE_START);
 
 		for (String header : headers) {
-			tableInformation.append("|").append(header);
+			render(EXAMPLES_HEADER, header);
 		}
-		tableInformation.append(NEW_LINE);
-
-		tableInformation.append(renderContentTable(examplesTable, headers));
+		render(EXAMPLES_HEADER_END);
 
-		tableInformation.append("|===").append(NEW_LINE).append(NEW_LINE);
+		renderContentTable(examplesTable, headers);
 
-		return tableInformation.toString();
+		render(EXAMPLES_TABLE_END);
 	}
 
-	private String renderContentTable(ExamplesTable examplesTable,
+	private void renderContentTable(ExamplesTable examplesTable,
 			List<String> headers) {
 
-		StringBuilder tableInformation = new StringBuilder();
-
 		for (int numberOfRow = 0; numberOfRow < examplesTable.getRowCount(); numberOfRow++) {
 
 			Map<String, String> row = examplesTable.getRow(numberOfRow);
 
 			for (String header : headers) {
-				tableInformation.append("|").append(row.get(header))
-						.append(NEW_LINE);
+				render(EXAMPLES_CELL, row.get(header));
 			}
 
-			tableInformation.append(NEW_LINE);
+			render(EXAMPLES_ROW_END);
 
 		}
-		return tableInformation.toString();
 	}
 
-	private String renderSteps(List<String> steps) {
+	private void renderSteps(List<String> steps) {
 
-		StringBuilder stepsInformation = new StringBuilder(".Steps" + NEW_LINE);
-		stepsInformation.append("----").append(NEW_LINE);
+		render(EXAMPLES_STEPS_START);
 		for (String step : steps) {
-			stepsInformation.append(step).append(NEW_LINE);
+			render(EXAMPLES_STEP, step);
 		}
-
-		stepsInformation.append("----").append(NEW_LINE);
-		stepsInformation.append(NEW_LINE);
-
-		return stepsInformation.toString();
+		render(EXAMPLES_STEPS_END);
 	}
 
 	@Override
 	public void beforeScenario(String scenarioTitle) {
 
 		this.initialLevel++;
-		this.currentStoryContent.append(renderTitle(scenarioTitle,
-				this.initialLevel));
+		renderTitle(scenarioTitle, this.initialLevel);
+
+		StoryState story = this.stories.peek();
+
+		if (story != null) {
+			story.scenarios++;
+			// untitled scenarios are told apart by their place in the story
+			story.scenarioTitle = scenarioTitle != null
+					&& scenarioTitle.length() > 0 ? scenarioTitle : "Scenario "
+					+ story.scenarios;
+			story.scenarioStart = System.nanoTime();
+			story.scenarioResult = StoryResult.SUCCESS;
+			publish(ReportEvent.scenarioStarted(story.path, story.givenStory,
+					story.scenarioTitle));
+		}
+
+		if (this.statistics != null && this.stories.size() == 1) {
+			this.statistics.scenarioStarted(story.scenarioTitle);
+		}
 	}
 
 	@Override
 	public void beforeStep(String step) {
-		
+		this.stepStart = System.nanoTime();
+
+		StoryState story = this.stories.peekLast();
+		if (this.stepWatchdog != null && story != null && !this.skeleton) {
+			this.stepWatchdog.stepStarted(story.path, replaceParenthesis(step));
+		}
 	}
 
 	@Override
@@ -212,103 +401,155 @@ public class AsciidoctorStoryReporter implements StoryReporter {
 
 		this.initialLevel++;
 
-		StringBuilder outputContent = new StringBuilder();
+		this.stories.push(new StoryState(story.getPath(), givenStory));
+
+		if (this.storyStatistics && !givenStory && !this.skeleton) {
+			this.statistics = new StoryStatistics();
+			this.statistics.storyStarted();
+		}
+		if (this.durationCharts != null && !givenStory && !this.skeleton) {
+			this.slowestScenarios = new DurationCharts.SlowestScenarios();
+		}
+		publish(ReportEvent.storyStarted(story.getPath(), givenStory));
 
-		outputContent.append("[[").append(changeInvalidCharacters(story.getName())).append("]]")
-				.append(NEW_LINE).append(getInitialSection(this.initialLevel))
-				.append(" ").append(story.getName())
-				.append(getSuffix(givenStory)).append(NEW_LINE)
-				.append(NEW_LINE);
+		String anchor = changeInvalidCharacters(story.getName());
+		String section = getInitialSection(this.initialLevel);
 
-		if (!givenStory) {
-			outputContent.append("%s").append(NEW_LINE).append(NEW_LINE);
+		if (givenStory) {
+			render(GIVEN_STORY, anchor, section, story.getName());
+		} else if (this.skeleton) {
+			render(SKELETON_STORY, anchor, section, story.getName());
+		} else {
+			render(STORY, anchor, section, story.getName(),
+					FragmentTemplate.STORY_RESULT);
 		}
 
 		Description description = story.getDescription();
 		if (isDescriptionProvided(description)) {
-			outputContent.append(renderDescription(description));
+			render(DESCRIPTION, description.asString());
 		}
 
 		Meta meta = story.getMeta();
 		if (isMetaProvided(meta)) {
-			outputContent.append(renderMetaInformation(meta));
+			renderMetaInformation(meta);
 		}
 
-		this.currentStoryContent.append(outputContent);
-
 	}
 
 	private String changeInvalidCharacters(String title) {
 		return title.replace('/', '_').replace('\\', '_');
 	}
-	
-	private String getSuffix(boolean givenStory) {
-		return givenStory ? " [GivenStory]" : "";
-	}
 
 	@Override
 	public void dryRun() {
+		this.skeleton = this.catalogue != null;
+	}
+
+	/**
+	 * Renders the step without its outcome in the skeleton of a dry run,
+	 * which keeps no result.
+	 */
+	private boolean renderedAsSkeleton(String step) {
+
+		if (!this.skeleton) {
+			return false;
+		}
+
+		renderStep(SKELETON_STEP, step);
+		return true;
+	}
+
+	private static boolean isSuiteStory(String path) {
+		return ProfilingStoryReporter.AFTER_STORIES.equals(path)
+				|| "BeforeStories".equals(path);
 	}
 
 	@Override
 	public void example(Map<String, String> tableRow) {
+		if (this.statistics != null) {
+			this.statistics.example();
+		}
 	}
 
 	@Override
 	public void failed(String step, Throwable cause) {
 
-		this.currentStoryResult = StoryResult.FAIL;
+		if (renderedAsSkeleton(step)) {
+			return;
+		}
 
-		StringBuilder failedChunk = new StringBuilder(formatStep(step) + " ");
-		failedChunk.append(getIcon(FAIL_STEP, FAILED_COLOR));
-		failedChunk.append(NEW_LINE).append(NEW_LINE);
-		failedChunk.append("[IMPORTANT]");
-		failedChunk.append(NEW_LINE);
-		failedChunk.append("====");
-		failedChunk.append(cause.getCause().getMessage() + NEW_LINE);
-		failedChunk.append("====");
-		failedChunk.append(NEW_LINE + NEW_LINE);
+		String message = cause.getCause().getMessage();
+		String[] compared = this.failureDiff != null ? this.failureDiff
+				.comparedValues(message) : null;
 
-		this.currentStoryContent.append(failedChunk.toString());
+		if (compared != null) {
+			FailureDiff.Comparison comparison = this.failureDiff.compare(
+					compared[0], compared[1]);
+			renderStep(FAILED_DIFF, step, comparison.summary(),
+					comparison.delimiter(), comparison.hunks());
+		} else {
+			renderStep(FAILED, step, message);
+		}
+		stepFinished(step, StepOutcome.FAILED, FailureFingerprint.of(cause));
 
 	}
 
 	@Override
 	public void failedOutcomes(String step, OutcomesTable table) {
 
-		this.currentStoryResult = StoryResult.FAIL;
+		if (renderedAsSkeleton(step)) {
+			return;
+		}
 
-		StringBuilder output = new StringBuilder();
-		output.append(formatStep(step)).append(" ").append(getIcon(FAIL_STEP, FAILED_COLOR))
-				.append(NEW_LINE);
+		renderStep(FAILED_OUTCOMES_START, step);
 
 		List<String> outcomeFields = table.getOutcomeFields();
 
-		output.append("[options=\"header\"]").append(NEW_LINE);
-		output.append("|===").append(NEW_LINE);
-
 		for (String outcomeField : outcomeFields) {
-			output.append("|").append(outcomeField);
+			render(OUTCOME_FIELD, outcomeField);
 		}
 
-		output.append(NEW_LINE);
-		
+		render(OUTCOME_FIELDS_END);
+
+		List<FailureDiff.Comparison> comparisons = null;
+		List<String> compared = null;
+
 		for (Outcome<?> outcome : table.getOutcomes()) {
 
-			output.append("|").append(outcome.getDescription())
-					.append(NEW_LINE);
-			output.append("|").append(outcome.getValue()).append(NEW_LINE);
-			output.append("|").append(outcome.getMatcher()).append(NEW_LINE);
+			String[] values = !outcome.isVerified() && this.failureDiff != null ? this.failureDiff
+					.comparedValues(outcome.getValue(), outcome.getMatcher())
+					: null;
+
+			if (values != null) {
+				FailureDiff.Comparison comparison = this.failureDiff.compare(
+						values[0], values[1]);
+				render(OUTCOME_NOT_VERIFIED_DIFF, outcome.getDescription(),
+						comparison.summary());
+				if (comparisons == null) {
+					comparisons = new ArrayList<FailureDiff.Comparison>();
+					compared = new ArrayList<String>();
+				}
+				comparisons.add(comparison);
+				compared.add(outcome.getDescription());
+				continue;
+			}
 
-			String icon = outcome.isVerified() ? getIcon(SUCCESS_STEP, SUCCESS_COLOR)
-					: getIcon(FAIL_STEP, FAILED_COLOR);
-			output.append("|").append(icon).append(NEW_LINE).append(NEW_LINE);
+			render(outcome.isVerified() ? OUTCOME_VERIFIED
+					: OUTCOME_NOT_VERIFIED, outcome.getDescription(),
+					String.valueOf(outcome.getValue()),
+					String.valueOf(outcome.getMatcher()));
 
 		}
 
-		output.append("|===").append(NEW_LINE).append(NEW_LINE);
+		render(FAILED_OUTCOMES_END);
 
-		this.currentStoryContent.append(output.toString());
+		// listings cannot sit in a table cell, so differences follow it
+		for (int i = 0; comparisons != null && i < comparisons.size(); i++) {
+			render(OUTCOME_DIFF, compared.get(i), comparisons.get(i)
+					.delimiter(), comparisons.get(i).hunks());
+		}
+
+		stepFinished(step, StepOutcome.FAILED, FailureFingerprint.of(table));
 
 	}
 
@@ -316,7 +557,7 @@ public class AsciidoctorStoryReporter implements StoryReporter {
 	public void givenStories(GivenStories givenStories) {
 
 		if (areGivenStoriesProvided(givenStories)) {
-			this.currentStoryContent.append(renderGivenStories(givenStories));
+			renderGivenStories(givenStories);
 		}
 
 	}
@@ -327,9 +568,11 @@ public class AsciidoctorStoryReporter implements StoryReporter {
 
 	@Override
 	public void ignorable(String step) {
-		this.currentStoryContent.append(formatStep(step)).append(" ")
-				.append(getIcon(IGNORABLE_STEP, "black")).append(NEW_LINE)
-				.append(NEW_LINE);
+		if (renderedAsSkeleton(step)) {
+			return;
+		}
+		renderStep(IGNORABLE, step);
+		stepFinished(step, StepOutcome.IGNORABLE, null);
 	}
 
 	@Override
@@ -337,39 +580,34 @@ public class AsciidoctorStoryReporter implements StoryReporter {
 
 		if (!lifecycle.isEmpty()) {
 
-			StringBuilder lifecycleOutput = new StringBuilder();
-			
 			List<String> beforeSteps = lifecycle.getBeforeSteps();
 
 			if(beforeSteps.size() > 0) {
-				
-				lifecycleOutput.append(".Before Steps"
-						+ NEW_LINE + "----" + NEW_LINE);
-				
+
+				render(LIFECYCLE_BEFORE_START);
+
 				for (String step : beforeSteps) {
-					lifecycleOutput.append(formatStep(step)).append(NEW_LINE);
+					renderStep(LIFECYCLE_STEP, step);
 				}
 
-				lifecycleOutput.append("----").append(NEW_LINE).append(NEW_LINE);
-				
+				render(LIFECYCLE_END);
+
 			}
-				
+
 			List<String> afterSteps = lifecycle.getAfterSteps();
-			
+
 			if(afterSteps.size() > 0) {
-			
-				lifecycleOutput.append(".After Steps"
-						+ NEW_LINE + "----" + NEW_LINE);
-				
+
+				render(LIFECYCLE_AFTER_START);
+
 				for (String step : afterSteps) {
-					lifecycleOutput.append(formatStep(step)).append(NEW_LINE);
+					renderStep(LIFECYCLE_STEP, step);
 				}
 
-				lifecycleOutput.append("----").append(NEW_LINE).append(NEW_LINE);
-				
+				render(LIFECYCLE_END);
+
 			}
-			
-			this.currentStoryContent.append(lifecycleOutput.toString());
+
 		}
 	}
 
@@ -377,7 +615,7 @@ public class AsciidoctorStoryReporter implements StoryReporter {
 	public void narrative(Narrative narrative) {
 
 		if (isNarrativeProvided(narrative)) {
-			this.currentStoryContent.append(renderNarrative(narrative));
+			renderNarrative(narrative);
 		}
 
 	}
@@ -385,23 +623,23 @@ public class AsciidoctorStoryReporter implements StoryReporter {
 	@Override
 	public void notPerformed(String step) {
 
-		if (this.currentStoryResult != StoryResult.FAIL) {
-			this.currentStoryResult = StoryResult.SUCCESS_WITH_WARNING;
+		if (renderedAsSkeleton(step)) {
+			return;
 		}
 
-		this.currentStoryContent.append(formatStep(step)).append(" ")
-				.append(getIcon(NOT_PERFORMED_STEP, "black")).append(NEW_LINE).append(NEW_LINE);
+		renderStep(NOT_PERFORMED, step);
+		stepFinished(step, StepOutcome.NOT_PERFORMED, null);
 	}
 
 	@Override
 	public void pending(String step) {
 
-		if (this.currentStoryResult != StoryResult.FAIL) {
-			this.currentStoryResult = StoryResult.SUCCESS_WITH_WARNING;
+		if (renderedAsSkeleton(step)) {
+			return;
 		}
 
-		this.currentStoryContent.append(formatStep(step)).append(" ").append(
-				getIcon(PENDING_STEP, "black")).append(NEW_LINE).append(NEW_LINE);
+		renderStep(PENDING, step);
+		stepFinished(step, StepOutcome.PENDING, null);
 	}
 
 	@Override
@@ -411,111 +649,192 @@ public class AsciidoctorStoryReporter implements StoryReporter {
 	@Override
 	public void restarted(String step, Throwable cause) {
 
-		this.currentStoryResult = StoryResult.FAIL;
+		if (renderedAsSkeleton(step)) {
+			return;
+		}
 
-		StringBuilder restartedChunk = new StringBuilder(formatStep(step) + " " + getIcon(RESTARTED_STEP, WARNING_COLOR));
-		restartedChunk.append(NEW_LINE).append(NEW_LINE);
-		restartedChunk.append("[WARNING]").append(NEW_LINE).append("====")
-				.append(cause.getCause().getMessage()).append(NEW_LINE).append("====");
-		restartedChunk.append(NEW_LINE).append(NEW_LINE);
-		this.currentStoryContent.append(restartedChunk.toString());
+		renderStep(RESTARTED, step, cause.getCause().getMessage());
+		stepFinished(step, StepOutcome.RESTARTED, FailureFingerprint.of(cause));
 	}
 
 	@Override
 	public void scenarioMeta(Meta meta) {
+	}
 
-		if (isMetaProvided(meta)) {
-			renderMetaInformation(meta);
-		}
+	@Override
+	public void scenarioNotAllowed(Scenario scenario, String filter) {
+
+		addResult(StoryResult.SUCCESS_WITH_WARNING);
+
+		render(SCENARIO_NOT_ALLOWED, filter, scenario.getTitle());
 
 	}
 
 	@Override
-	public void scenarioNotAllowed(Scenario scenario, String filter) {
+	public void storyCancelled(Story story, StoryDuration storyDuration) {
 
-		if (this.currentStoryResult != StoryResult.FAIL) {
-			this.currentStoryResult = StoryResult.SUCCESS_WITH_WARNING;
-		}
+		addResult(StoryResult.SUCCESS_WITH_WARNING);
 
-		StringBuilder output = new StringBuilder();
+		render(STORY_CANCELLED, Long.toString(storyDuration.getTimeoutInSecs()),
+				story.getName());
 
-		output.append("[WARNING]").append(NEW_LINE);
-		output.append(".Scenario Not Allowed [").append(filter).append("]")
-				.append(NEW_LINE);
+		StepWatchdog.StuckStep stuck = this.stepWatchdog != null
+				&& !this.stories.isEmpty() ? this.stepWatchdog
+				.inFlight(this.stories.peekLast().path) : null;
 
-		output.append("====").append(NEW_LINE);
-		output.append(scenario.getTitle()).append(" ")
-				.append(getIcon(NOT_ALLOWED, WARNING_COLOR));
-		output.append("====").append(NEW_LINE).append(NEW_LINE);
+		if (stuck != null) {
+			render(STUCK_STEP, stuck.getStep(), Long.toString(TimeUnit.NANOSECONDS
+					.toMillis(stuck.getElapsedNanos())),
+					stuck.getDiagnosticsFile() != null ? "(see "
+							+ stuck.getDiagnosticsFile().getName() + ")" : "",
+					stuck.getThreadDump());
+		}
+	}
 
-		this.currentStoryContent.append(output.toString());
+	@Override
+	public void storyNotAllowed(Story story, String filter) {
+
+		addResult(StoryResult.SUCCESS_WITH_WARNING);
+
+		render(STORY_NOT_ALLOWED, filter, story.getName());
 
 	}
 
 	@Override
-	public void storyCancelled(Story story, StoryDuration storyDuration) {
+	public void successful(String step) {
+		if (renderedAsSkeleton(step)) {
+			return;
+		}
+		renderStep(SUCCESSFUL, step);
+		stepFinished(step, StepOutcome.SUCCESSFUL, null);
+	}
+
+	private void stepFinished(String step, StepOutcome outcome,
+			String failureFingerprint) {
 
-		if (this.currentStoryResult != StoryResult.FAIL) {
-			this.currentStoryResult = StoryResult.SUCCESS_WITH_WARNING;
+		long duration = this.stepStart > 0 ? System.nanoTime()
+				- this.stepStart : 0;
+
+		if (this.stepWatchdog != null && !this.stories.isEmpty()) {
+			this.stepWatchdog.stepFinished(this.stories.peekLast().path);
 		}
 
-		StringBuilder output = new StringBuilder();
+		if (this.stepLatencies != null && this.stepStart > 0) {
+			this.stepLatencies.record(step, duration);
+		}
 
-		output.append("[WARNING]").append(NEW_LINE);
-		output.append(".Story Cancelled with Timeout [")
-				.append(storyDuration.getTimeoutInSecs()).append(" sec.]")
-				.append(NEW_LINE);
+		this.stepStart = 0;
 
-		output.append("====").append(NEW_LINE);
-		output.append(story.getName()).append(" ")
-				.append(getIcon(CANCELLED, WARNING_COLOR));
-		output.append(NEW_LINE);
-		output.append("====").append(NEW_LINE).append(NEW_LINE);
+		addResult(outcome.result());
 
-		this.currentStoryContent.append(output.toString());
-	}
+		if (this.statistics != null) {
+			this.statistics.step(outcome);
+		}
 
-	@Override
-	public void storyNotAllowed(Story story, String filter) {
+		StoryState story = this.stories.peek();
 
-		if (this.currentStoryResult != StoryResult.FAIL) {
-			this.currentStoryResult = StoryResult.SUCCESS_WITH_WARNING;
+		if (story != null && !this.listeners.isEmpty()) {
+			publish(ReportEvent.step(story.path, story.givenStory,
+					story.scenarioTitle, replaceParenthesis(step), outcome,
+					duration, failureFingerprint));
 		}
 
-		StringBuilder output = new StringBuilder();
+		if (this.progressiveReport
+				&& (this.currentStoryContent.size() >= this.progressiveFlushBytes || System
+						.nanoTime() - this.lastFlush >= this.progressiveFlushInterval)) {
+			flushProgress();
+		}
+	}
+
+	/**
+	 * Writes what has been reported so far, leaving the story result out as
+	 * it is only known at the end.
+	 */
+	private void flushProgress() {
+		this.currentStoryContent.drainTo(this.sink, "");
+		this.sink.flush();
+		this.lastFlush = System.nanoTime();
+	}
+
+	private void addResult(StoryResult result) {
 
-		output.append("[WARNING]").append(NEW_LINE);
-		output.append(".Story Not Allowed [").append(filter).append("]")
-				.append(NEW_LINE);
+		this.currentStoryResult = this.currentStoryResult.worst(result);
 
-		output.append("====").append(NEW_LINE);
-		output.append(story.getName()).append(" ")
-				.append(getIcon(NOT_ALLOWED, WARNING_COLOR));
-		output.append("====").append(NEW_LINE).append(NEW_LINE);
+		StoryState story = this.stories.peek();
+		if (story != null) {
+			story.addResult(result);
+		}
+	}
 
-		this.currentStoryContent.append(output.toString());
+	private void publish(ReportEvent event) {
+		for (int i = 0; i < this.listeners.size(); i++) {
+			this.listeners.get(i).onEvent(event);
+		}
+	}
 
+	void render(ReportFragment fragment, CharSequence... values) {
+		this.templates.get(fragment).renderTo(this.currentStoryContent, values);
 	}
-	
-	@Override
-	public void successful(String step) {
-		this.currentStoryContent.append(formatStep(step)).append( " "
-				).append(getIcon(SUCCESS_STEP, SUCCESS_COLOR)).append(NEW_LINE).append(NEW_LINE);
+
+	/**
+	 * Writes what was rendered since the story was written at the end of its
+	 * report, sinks append once closed.
+	 */
+	void appendToStory() {
+		if (this.currentStoryContent.size() > 0) {
+			this.currentStoryContent.drainTo(this.sink, "");
+			this.sink.close();
+		}
+	}
+
+	boolean renderingSkeleton() {
+		return this.skeleton;
 	}
 
-	private String getIcon(String iconName, String size, String flip,
-			String role) {
-		return "icon:" + iconName + "[size=" + size + ", flip=\"" + flip
-				+ "\" role=\"" + role + "\"]";
+	/**
+	 * Renders a step fragment whose first two slots are the keyword and the
+	 * remaining text of the step.
+	 */
+	private void renderStep(ReportFragment fragment, String step,
+			CharSequence... values) {
+
+		if (this.stepLineCache != null && values.length == 0) {
+			renderCachedStep(this.templates.get(fragment), step);
+			return;
+		}
+
+		render(fragment, stepSlots(step, values));
 	}
 
-	private String getIcon(String iconName, String size, String role) {
-		return "icon:" + iconName + "[size=" + size + ", role=\"" + role
-				+ "\"]";
+	/**
+	 * Steps rendered with their keyword and text only are the same for
+	 * every story, so they are encoded once and then copied as bytes.
+	 */
+	private void renderCachedStep(FragmentTemplate template, String step) {
+
+		byte[] line = this.stepLineCache.get(template, step);
+
+		if (line == null) {
+			line = template.render(stepSlots(step)).getBytes(UTF_8);
+			this.stepLineCache.put(template, step, line);
+		}
+
+		this.currentStoryContent.append(line);
 	}
 
-	private String getIcon(String iconName, String role) {
-		return "icon:" + iconName + "[role=\"" + role + "\"]";
+	private CharSequence[] stepSlots(String step, CharSequence... values) {
+
+		step = replaceParenthesis(step);
+
+		int firstWhiteSpace = step.indexOf(' ');
+		int keywordEnd = firstWhiteSpace > -1 ? firstWhiteSpace : step.length();
+
+		CharSequence[] slots = new CharSequence[values.length + 2];
+		slots[0] = step.substring(0, keywordEnd);
+		slots[1] = step.substring(keywordEnd);
+		System.arraycopy(values, 0, slots, 2, values.length);
+
+		return slots;
 	}
 
 	private String getInitialSection(int initialLevel) {
@@ -534,36 +853,19 @@ public class AsciidoctorStoryReporter implements StoryReporter {
 		return description != null && !"".equals(description.asString().trim());
 	}
 
-	private String renderDescription(Description description) {
-
-		StringBuilder descriptionInformation = new StringBuilder(".Description"
-				+ NEW_LINE + "----" + NEW_LINE);
-
-		descriptionInformation.append(description.asString()).append(NEW_LINE);
-
-		descriptionInformation.append("----").append(NEW_LINE).append(NEW_LINE);
-
-		return descriptionInformation.toString();
-
-	}
-
-	private String renderMetaInformation(Meta meta) {
+	private void renderMetaInformation(Meta meta) {
 
-		StringBuilder metaInformation = new StringBuilder(".Meta" + NEW_LINE
-				+ "----" + NEW_LINE);
+		render(META_START);
 
 		Set<String> propertyNames = meta.getPropertyNames();
 
 		for (String propertyName : propertyNames) {
 			String propertyValue = meta.getProperty(propertyName);
 
-			metaInformation.append("+").append(propertyName).append("+: ")
-					.append(propertyValue).append(NEW_LINE);
+			render(META_PROPERTY, propertyName, propertyValue);
 		}
 
-		metaInformation.append("----").append(NEW_LINE).append(NEW_LINE);
-
-		return metaInformation.toString();
+		render(META_END);
 
 	}
 
@@ -575,84 +877,67 @@ public class AsciidoctorStoryReporter implements StoryReporter {
 		return narrative != null && !Narrative.EMPTY.equals(narrative);
 	}
 
-	private String renderNarrative(Narrative narrative) {
+	private void renderNarrative(Narrative narrative) {
 
-		StringBuilder narrativeInformation = new StringBuilder(".Narrative"
-				+ NEW_LINE + "****" + NEW_LINE);
+		render(NARRATIVE_START);
 
 		String inOrderTo = narrative.inOrderTo();
 
 		if (inOrderTo != null) {
-			narrativeInformation.append("*In Order To* ").append(inOrderTo)
-					.append(NEW_LINE).append(NEW_LINE);
+			render(NARRATIVE_IN_ORDER_TO, inOrderTo);
 		}
 
 		String asA = narrative.asA();
 
 		if (asA != null) {
-			narrativeInformation.append("*As a* ").append(asA).append(NEW_LINE)
-					.append(NEW_LINE);
+			render(NARRATIVE_AS_A, asA);
 		}
 
 		String iWantTo = narrative.iWantTo();
 
 		if (iWantTo != null) {
-			narrativeInformation.append("*I Want To* ").append(iWantTo)
-					.append(NEW_LINE).append(NEW_LINE);
+			render(NARRATIVE_I_WANT_TO, iWantTo);
 		}
 
-		narrativeInformation.append("****").append(NEW_LINE).append(NEW_LINE);
-
-		return narrativeInformation.toString();
+		render(NARRATIVE_END);
 
 	}
 
 	private boolean areGivenStoriesProvided(GivenStories givenStories) {
 		return givenStories != null && givenStories.getStories().size() > 0;
 	}
-	
-	private String formatStep(String step) {
-		step = replaceParenthesis(step);
-		return boldFirstWord(step);
-	}
-	
+
 	private String replaceParenthesis(String content) {
 		return content.replace('｟', '(').replace('｠', ')');
 	}
-	
-	private String boldFirstWord(String content) {
-		int firstWhiteSpace = content.indexOf(" ");
-		return "*" + content.substring(0, firstWhiteSpace) + "*" + content.substring(firstWhiteSpace);
-	}
-	
-	private String renderGivenStories(GivenStories givenStories) {
 
-		StringBuilder givenStoriesInformation = new StringBuilder(
-				".Given Stories" + NEW_LINE + "[NOTE]" + NEW_LINE + "===="
-						+ NEW_LINE);
+	private void renderGivenStories(GivenStories givenStories) {
+
+		render(GIVEN_STORIES_START);
 
 		List<GivenStory> stories = givenStories.getStories();
 
 		for (GivenStory givenStory : stories) {
 			String path = givenStory.getPath();
-			givenStoriesInformation.append("<<")
-					.append(getStoryIdentifier(path)).append(", ").append(path)
-					.append(">>");
+			String anchor = "";
 
 			if (givenStory.getAnchor() != null
 					&& !"".equals(givenStory.getAnchor().trim())) {
-				givenStoriesInformation.append("#").append(
-						givenStory.getAnchor());
+				anchor = "#" + givenStory.getAnchor();
 			}
 
-			givenStoriesInformation.append(NEW_LINE);
+			String identifier = getStoryIdentifier(path);
 
-		}
+			if (this.storyFiles != null) {
+				// each story is its own document, so link across documents
+				identifier = this.storyFiles.linkTo(path) + "#" + identifier;
+			}
 
-		givenStoriesInformation.append("====").append(NEW_LINE)
-				.append(NEW_LINE);
+			render(GIVEN_STORIES_STORY, identifier, path, anchor);
 
-		return givenStoriesInformation.toString();
+		}
+
+		render(GIVEN_STORIES_END);
 
 	}
 
@@ -671,38 +956,108 @@ public class AsciidoctorStoryReporter implements StoryReporter {
 		}
 	}
 
-	private String renderTitle(String title, int currentScenarioNumber) {
+	private void renderTitle(String title, int currentScenarioNumber) {
 		if (title != null) {
-			return getTitle(title, currentScenarioNumber);
+			render(SCENARIO, getInitialSection(currentScenarioNumber), title);
+		} else {
+			render(SCENARIO, getInitialSection(currentScenarioNumber),
+					Integer.toString(currentScenarioNumber));
+		}
+	}
+
+	private String getStoryLead(StoryState story) {
+
+		String lead = getStoryResult();
+
+		if (this.statistics != null) {
+			this.statistics.storyFinished();
+			lead += this.statistics.render(this.templates);
+			this.statistics = null;
+		}
+
+		if (this.durationCharts != null && story != null) {
+			lead += getDurationChart(story);
+		}
+
+		return lead;
+	}
+
+	private String getDurationChart(StoryState story) {
+
+		DurationCharts.SlowestScenarios scenarios = this.slowestScenarios;
+		this.slowestScenarios = null;
+
+		File chart;
+
+		if (ProfilingStoryReporter.AFTER_STORIES.equals(story.path)) {
+			if (this.reportFile == null) {
+				return "";
+			}
+			chart = new File(this.reportFile.getParentFile(),
+					DurationCharts.SUITE_CHART);
+			this.durationCharts.writeSuiteChart(chart);
 		} else {
-			return getTitle(Integer.toString(currentScenarioNumber),
-					currentScenarioNumber);
+			// a story without scenarios still took its time in the suite
+			this.durationCharts.storyFinished(System.nanoTime() - story.start);
+			if (scenarios == null || scenarios.count() == 0
+					|| this.reportFile == null) {
+				return "";
+			}
+			String name = this.reportFile.getName();
+			chart = new File(this.reportFile.getParentFile(), name.substring(0,
+					name.lastIndexOf('.') > 0 ? name.lastIndexOf('.') : name
+							.length())
+					+ DurationCharts.SCENARIO_CHART_EXTENSION);
+			scenarios.write(chart);
 		}
+
+		return this.templates.get(DURATION_CHART).render(chart.getName());
 	}
 
-	private String getTitle(String title, int currentScenarioNumber) {
-		return getInitialSection(currentScenarioNumber) + " Scenario: " + title
-				+ NEW_LINE + NEW_LINE;
+	void setReportFile(File reportFile) {
+		this.reportFile = reportFile;
+	}
+
+	void setCatalogue(DryRunCatalogue catalogue) {
+		this.catalogue = catalogue;
 	}
 
 	private String getStoryResult() {
 		switch (this.currentStoryResult) {
 		case SUCCESS:
-			return "[.lead]" + NEW_LINE + getIcon(SUCCESS_STORY, "2x", SUCCESS_COLOR)
-					+ " This story is ready to be shipped.";
+			return this.templates.get(STORY_SUCCESS).render();
 		case SUCCESS_WITH_WARNING:
-			return "[.lead]"
-					+ NEW_LINE
-					+ getIcon(SUCCESS_WITH_WARNING, "2x", "horizontal",
-							WARNING_COLOR)
-					+ " This story can be shipped with caution.";
+			return this.templates.get(STORY_SUCCESS_WITH_WARNING).render();
 		case FAIL:
-			return "[.lead]" + NEW_LINE
-					+ getIcon(FAILED_STORY, "2x", "horizontal", FAILED_COLOR)
-					+ " This story contains errors and should not be shipped.";
+			return this.templates.get(STORY_FAILED).render();
 		default:
 			return "";
 		}
 	}
 
+	private static final class StoryState {
+
+		private final String path;
+		private final boolean givenStory;
+		private final long start = System.nanoTime();
+		private StoryResult result = StoryResult.SUCCESS;
+
+		private int scenarios;
+		private String scenarioTitle;
+		private long scenarioStart;
+		private StoryResult scenarioResult = StoryResult.SUCCESS;
+
+		private StoryState(String path, boolean givenStory) {
+			this.path = path;
+			this.givenStory = givenStory;
+		}
+
+		private void addResult(StoryResult result) {
+			this.result = this.result.worst(result);
+			if (this.scenarioTitle != null) {
+				this.scenarioResult = this.scenarioResult.worst(result);
+			}
+		}
+	}
+
 }
@@ -0,0 +1,76 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Replaces a file by writing it aside and renaming it over the previous one,
+ * so readers never see it half written. Where a rename does not replace, as
+ * on Windows, the previous file is first renamed out of the way: a reader
+ * may then briefly find no file, but never a partial one, and the previous
+ * file is restored if the new one cannot take its place.
+ */
+final class AsideFile {
+
+	private AsideFile() {
+	}
+
+	/**
+	 * The file to write next to the given one before
+	 * {@link #replace(File, File) replacing} it.
+	 */
+	static File of(File file) {
+		File parent = file.getAbsoluteFile().getParentFile();
+		parent.mkdirs();
+		return new File(parent, file.getName() + ".tmp");
+	}
+
+	static void write(File file, byte[] content) {
+
+		File aside = of(file);
+		OutputStream output = null;
+
+		try {
+			output = new FileOutputStream(aside);
+			output.write(content);
+			output.close();
+			output = null;
+		} catch (IOException e) {
+			throw new ReportOutputFailed(aside, e);
+		} finally {
+			if (output != null) {
+				try {
+					output.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+
+		replace(aside, file);
+	}
+
+	static void replace(File aside, File file) {
+
+		// rename replaces atomically on POSIX
+		if (aside.renameTo(file)) {
+			return;
+		}
+
+		File previous = new File(aside.getParentFile(), file.getName() + ".old");
+		previous.delete();
+		boolean moved = file.renameTo(previous);
+
+		if (!aside.renameTo(file)) {
+			if (moved) {
+				previous.renameTo(file);
+			}
+			throw new ReportOutputFailed(file, new IOException(
+					"Could not replace with " + aside));
+		}
+
+		previous.delete();
+	}
+
+}
@@ -0,0 +1,15 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Source of the fixed size chunks a {@link StoryContentBuffer} keeps the
+ * in-flight story content in.
+ */
+public interface ChunkAllocator {
+
+	ByteBuffer acquire();
+
+	void release(ByteBuffer chunk);
+
+}
@@ -0,0 +1,233 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.jbehave.asciidoctor.reporter.RunSummary.ScenarioSummary;
+
+/**
+ * Compares every scenario, as it finishes, with the same scenario in the
+ * {@link RunSummary} of a baseline run and writes <code>delta.adoc</code>
+ * with only what changed: new failures, fixed, new and removed scenarios and
+ * significant slowdowns. Scenarios are looked up by hash, and only changes
+ * are kept, so the work grows with what changed rather than with the suite.
+ */
+public class DeltaReport implements ReportListener {
+
+	public static final String DELTA_FILE = "delta.adoc";
+	public static final double DEFAULT_SLOWDOWN_FACTOR = 2.0;
+	public static final long DEFAULT_MIN_SLOWDOWN_MILLIS = 500;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final File baselineFile;
+	private final Map<String, Map<String, ScenarioSummary>> baseline;
+	private final File deltaFile;
+	private final double slowdownFactor;
+	private final long minSlowdownNanos;
+	private final FragmentTemplates templates;
+
+	private final Map<String, String> failedSteps = new HashMap<String, String>();
+	private final Map<String, Set<String>> seenScenarios = new HashMap<String, Set<String>>();
+	private final Set<String> seenStories = new HashSet<String>();
+
+	private final List<String[]> newFailures = new ArrayList<String[]>();
+	private final List<String[]> fixed = new ArrayList<String[]>();
+	private final List<String[]> added = new ArrayList<String[]>();
+	private final List<String[]> removed = new ArrayList<String[]>();
+	private final List<String[]> slowdowns = new ArrayList<String[]>();
+
+	public DeltaReport(File baselineFile, File deltaFile) {
+		this(baselineFile, deltaFile, DEFAULT_SLOWDOWN_FACTOR,
+				DEFAULT_MIN_SLOWDOWN_MILLIS, FragmentTemplates.defaults());
+	}
+
+	/**
+	 * A scenario has slowed down when it takes the factor times its baseline
+	 * duration, and at least the minimum longer.
+	 */
+	public DeltaReport(File baselineFile, File deltaFile,
+			double slowdownFactor, long minSlowdownMillis,
+			FragmentTemplates templates) {
+		this.baselineFile = baselineFile;
+		this.baseline = RunSummary.load(baselineFile);
+		this.deltaFile = deltaFile;
+		this.slowdownFactor = slowdownFactor;
+		this.minSlowdownNanos = TimeUnit.MILLISECONDS
+				.toNanos(minSlowdownMillis);
+		this.templates = templates;
+	}
+
+	public File getDeltaFile() {
+		return deltaFile;
+	}
+
+	@Override
+	public synchronized void onEvent(ReportEvent event) {
+
+		if (event.isGivenStory()) {
+			return;
+		}
+
+		String story = RunSummary.clean(event.getStoryPath());
+
+		switch (event.getType()) {
+		case STORY_STARTED:
+			this.seenStories.add(story);
+			break;
+		case SCENARIO_STARTED:
+			this.failedSteps.remove(story);
+			break;
+		case STEP:
+			if (event.getStepOutcome().result() == StoryResult.FAIL
+					&& !this.failedSteps.containsKey(story)) {
+				this.failedSteps.put(story, event.getStep());
+			}
+			break;
+		case SCENARIO_FINISHED:
+			compare(story, RunSummary.clean(event.getScenarioTitle()), event);
+			break;
+		case STORY_FINISHED:
+			if (ProfilingStoryReporter.AFTER_STORIES.equals(story)) {
+				write();
+			} else {
+				removedScenarios(story);
+			}
+			break;
+		}
+	}
+
+	private void compare(String story, String scenario, ReportEvent event) {
+
+		Map<String, ScenarioSummary> scenarios = this.baseline.get(story);
+		ScenarioSummary before = scenarios != null ? scenarios.get(scenario)
+				: null;
+
+		if (scenarios != null) {
+			Set<String> seen = this.seenScenarios.get(story);
+			if (seen == null) {
+				seen = new HashSet<String>();
+				this.seenScenarios.put(story, seen);
+			}
+			seen.add(scenario);
+		}
+
+		boolean failed = event.getResult() == StoryResult.FAIL;
+
+		if (before == null) {
+			this.added.add(entry(story, scenario, event.getResult().name()));
+		} else if (failed && before.getResult() != StoryResult.FAIL) {
+			String step = this.failedSteps.get(story);
+			this.newFailures.add(entry(story, scenario, step != null ? step
+					: event.getResult().name()));
+		} else if (!failed && before.getResult() == StoryResult.FAIL) {
+			this.fixed.add(entry(story, scenario, event.getResult().name()));
+		}
+
+		if (before != null
+				&& event.getDurationNanos() >= before.getDurationNanos()
+						* this.slowdownFactor
+				&& event.getDurationNanos() - before.getDurationNanos() >= this.minSlowdownNanos) {
+			this.slowdowns.add(entry(story, scenario,
+					millis(before.getDurationNanos()) + " ms to "
+							+ millis(event.getDurationNanos()) + " ms"));
+		}
+	}
+
+	private void removedScenarios(String story) {
+
+		Map<String, ScenarioSummary> scenarios = this.baseline.get(story);
+		if (scenarios == null) {
+			return;
+		}
+
+		Set<String> seen = this.seenScenarios.remove(story);
+		for (String scenario : scenarios.keySet()) {
+			if (seen == null || !seen.contains(scenario)) {
+				this.removed.add(entry(story, scenario, "removed"));
+			}
+		}
+	}
+
+	private void write() {
+
+		// stories of the baseline that did not run at all are removed too
+		for (String story : this.baseline.keySet()) {
+			if (!this.seenStories.contains(story)) {
+				for (String scenario : this.baseline.get(story).keySet()) {
+					this.removed.add(entry(story, scenario, "story removed"));
+				}
+			}
+		}
+
+		StringBuilder delta = new StringBuilder(this.templates.get(
+				ReportFragment.DELTA_START).render(this.baselineFile.getPath()));
+
+		int changes = section(delta, "New Failures", this.newFailures)
+				+ section(delta, "Fixed Scenarios", this.fixed)
+				+ section(delta, "New Scenarios", this.added)
+				+ section(delta, "Removed Scenarios", this.removed)
+				+ section(delta, "Slowdowns", this.slowdowns);
+
+		if (changes == 0) {
+			delta.append(this.templates.get(ReportFragment.DELTA_UNCHANGED)
+					.render());
+		}
+
+		this.deltaFile.getAbsoluteFile().getParentFile().mkdirs();
+		OutputStream output = null;
+
+		try {
+			output = new FileOutputStream(this.deltaFile);
+			output.write(delta.toString().getBytes(UTF_8));
+		} catch (IOException e) {
+			throw new ReportOutputFailed(this.deltaFile, e);
+		} finally {
+			if (output != null) {
+				try {
+					output.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+	}
+
+	private int section(StringBuilder delta, String title,
+			List<String[]> entries) {
+
+		if (entries.isEmpty()) {
+			return 0;
+		}
+
+		delta.append(this.templates.get(ReportFragment.DELTA_SECTION_START)
+				.render(title, Integer.toString(entries.size())));
+		FragmentTemplate entry = this.templates
+				.get(ReportFragment.DELTA_ENTRY);
+		for (String[] values : entries) {
+			delta.append(entry.render(values));
+		}
+		delta.append(this.templates.get(ReportFragment.DELTA_SECTION_END)
+				.render());
+
+		return entries.size();
+	}
+
+	private static String[] entry(String story, String scenario, String detail) {
+		return new String[] { story, scenario, detail };
+	}
+
+	private static long millis(long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+}
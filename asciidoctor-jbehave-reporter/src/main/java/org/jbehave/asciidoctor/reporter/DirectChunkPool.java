@@ -0,0 +1,141 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Off-heap arena of fixed size direct chunks shared by the reporters of all
+ * story threads. Chunks are recycled between stories; once
+ * {@code maxChunks} are handed out, further requests are served from the heap
+ * and counted as overflows so the arena can be sized.
+ */
+public class DirectChunkPool implements ChunkAllocator {
+
+	public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+	public static final int DEFAULT_MAX_CHUNKS = 256;
+
+	private final int chunkSize;
+	private final int maxChunks;
+
+	private final Queue<ByteBuffer> idleChunks = new ConcurrentLinkedQueue<ByteBuffer>();
+	private final AtomicInteger allocatedChunks = new AtomicInteger();
+	private final AtomicInteger inUseChunks = new AtomicInteger();
+	private final AtomicInteger peakInUseChunks = new AtomicInteger();
+	private final AtomicLong overflows = new AtomicLong();
+
+	public DirectChunkPool() {
+		this(DEFAULT_CHUNK_SIZE, DEFAULT_MAX_CHUNKS);
+	}
+
+	public DirectChunkPool(int chunkSize, int maxChunks) {
+
+		if (chunkSize < FileChannelReportSink.MINIMUM_BUFFER_SIZE) {
+			throw new IllegalArgumentException("Chunk size must be at least "
+					+ FileChannelReportSink.MINIMUM_BUFFER_SIZE
+					+ " bytes but was " + chunkSize);
+		}
+
+		this.chunkSize = chunkSize;
+		this.maxChunks = maxChunks;
+	}
+
+	@Override
+	public ByteBuffer acquire() {
+
+		ByteBuffer chunk = this.idleChunks.poll();
+
+		if (chunk == null) {
+			chunk = allocate();
+		}
+
+		if (chunk.isDirect()) {
+			updatePeak(this.inUseChunks.incrementAndGet());
+		}
+
+		return chunk;
+	}
+
+	private ByteBuffer allocate() {
+
+		while (true) {
+			int allocated = this.allocatedChunks.get();
+
+			if (allocated >= this.maxChunks) {
+				this.overflows.incrementAndGet();
+				return ByteBuffer.allocate(this.chunkSize);
+			}
+
+			if (this.allocatedChunks.compareAndSet(allocated, allocated + 1)) {
+				return ByteBuffer.allocateDirect(this.chunkSize);
+			}
+		}
+	}
+
+	private void updatePeak(int inUse) {
+		int peak;
+		do {
+			peak = this.peakInUseChunks.get();
+		} while (inUse > peak
+				&& !this.peakInUseChunks.compareAndSet(peak, inUse));
+	}
+
+	@Override
+	public void release(ByteBuffer chunk) {
+
+		// overflow chunks live on the heap and are left to the collector.
+		if (chunk.isDirect() && chunk.capacity() == this.chunkSize) {
+			chunk.clear();
+			this.inUseChunks.decrementAndGet();
+			this.idleChunks.offer(chunk);
+		}
+	}
+
+	public int chunkSize() {
+		return chunkSize;
+	}
+
+	public int maxChunks() {
+		return maxChunks;
+	}
+
+	public int allocatedChunks() {
+		return this.allocatedChunks.get();
+	}
+
+	public int inUseChunks() {
+		return this.inUseChunks.get();
+	}
+
+	public int idleChunks() {
+		return this.allocatedChunks.get() - this.inUseChunks.get();
+	}
+
+	public int peakInUseChunks() {
+		return this.peakInUseChunks.get();
+	}
+
+	public long overflows() {
+		return this.overflows.get();
+	}
+
+	public long allocatedBytes() {
+		return (long) this.allocatedChunks.get() * this.chunkSize;
+	}
+
+	public double occupancy() {
+		return this.maxChunks == 0 ? 0 : (double) this.inUseChunks.get()
+				/ this.maxChunks;
+	}
+
+	@Override
+	public String toString() {
+		return "DirectChunkPool[chunkSize=" + chunkSize + ",maxChunks="
+				+ maxChunks + ",allocated=" + allocatedChunks() + ",inUse="
+				+ inUseChunks() + ",peakInUse=" + peakInUseChunks()
+				+ ",overflows=" + overflows() + "]";
+	}
+
+}
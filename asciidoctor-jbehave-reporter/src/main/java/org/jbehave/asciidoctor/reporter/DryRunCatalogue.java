@@ -0,0 +1,59 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.Closeable;
+import java.io.File;
+
+/**
+ * A single document with the structure of every story of a dry run, shared by
+ * the reporters of every story. Stories are appended whole as they finish, in
+ * the skeleton a reporter renders once told of the dry run, and the document
+ * is complete once the <code>AfterStories</code> report is.
+ */
+public class DryRunCatalogue implements Closeable {
+
+	public static final String CATALOGUE_FILE = "catalogue.adoc";
+
+	private final File catalogueFile;
+	private final FragmentTemplates templates;
+	private final int bufferSize;
+	private ReportSink sink;
+	private int stories;
+
+	public DryRunCatalogue(File catalogueFile, FragmentTemplates templates,
+			int bufferSize) {
+		this.catalogueFile = catalogueFile;
+		this.templates = templates;
+		this.bufferSize = bufferSize;
+	}
+
+	public File getCatalogueFile() {
+		return catalogueFile;
+	}
+
+	public synchronized void add(StoryContentBuffer story) {
+
+		if (this.sink == null) {
+			this.catalogueFile.getAbsoluteFile().getParentFile().mkdirs();
+			this.sink = new FileChannelReportSink(this.catalogueFile,
+					this.bufferSize, FlushPolicy.ON_BUFFER_FULL);
+			this.sink.write(this.templates.get(ReportFragment.CATALOGUE_START)
+					.render());
+		}
+
+		story.drainTo(this.sink, "");
+		this.stories++;
+	}
+
+	public synchronized int stories() {
+		return stories;
+	}
+
+	@Override
+	public synchronized void close() {
+		if (this.sink != null) {
+			this.sink.close();
+			this.sink = null;
+		}
+	}
+
+}
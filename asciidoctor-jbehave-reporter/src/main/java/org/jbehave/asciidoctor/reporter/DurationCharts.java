@@ -0,0 +1,210 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * SVG charts of where the time went: a bar chart of the slowest scenarios of
+ * every story and a histogram of the duration of every story of the suite,
+ * written for the <code>AfterStories</code> report. Charts have a fixed size
+ * however many scenarios and stories they are drawn from.
+ */
+public class DurationCharts {
+
+	public static final String SUITE_CHART = "story-durations.svg";
+	public static final String SCENARIO_CHART_EXTENSION = ".scenarios.svg";
+	public static final int MAX_BARS = 20;
+
+	// under a millisecond, then powers of two of milliseconds up to an hour
+	static final int BUCKETS = 23;
+
+	private static final int WIDTH = 640;
+	private static final int TOP = 28;
+
+	private static final Comparator<SlowScenario> BY_DURATION = new Comparator<SlowScenario>() {
+		@Override
+		public int compare(SlowScenario one, SlowScenario other) {
+			return one.durationNanos < other.durationNanos ? -1
+					: one.durationNanos > other.durationNanos ? 1 : 0;
+		}
+	};
+
+	private final AtomicLongArray stories = new AtomicLongArray(BUCKETS);
+	private final AtomicLong storyCount = new AtomicLong();
+
+	public void storyFinished(long durationNanos) {
+		this.stories.incrementAndGet(bucketOf(TimeUnit.NANOSECONDS
+				.toMillis(durationNanos)));
+		this.storyCount.incrementAndGet();
+	}
+
+	public long storyCount() {
+		return this.storyCount.get();
+	}
+
+	static int bucketOf(long millis) {
+		return millis < 1 ? 0 : Math.min(BUCKETS - 1,
+				64 - Long.numberOfLeadingZeros(millis));
+	}
+
+	public void writeSuiteChart(File file) {
+
+		int height = TOP + 160 + 40;
+		int plotLeft = 50;
+		int barWidth = (WIDTH - plotLeft - 20) / BUCKETS;
+		int baseline = TOP + 160;
+
+		long highest = 1;
+		for (int i = 0; i < BUCKETS; i++) {
+			highest = Math.max(highest, this.stories.get(i));
+		}
+
+		SvgChartWriter chart = new SvgChartWriter(file, WIDTH, height);
+		try {
+			chart.text(WIDTH / 2, 16, "middle", "Duration of "
+					+ this.storyCount.get() + " stories");
+			chart.line(plotLeft, baseline, plotLeft + BUCKETS * barWidth,
+					baseline);
+			chart.text(plotLeft - 6, TOP + 8, "end", Long.toString(highest));
+			chart.text(plotLeft - 6, baseline, "end", "0");
+
+			for (int i = 0; i < BUCKETS; i++) {
+				long count = this.stories.get(i);
+				int x = plotLeft + i * barWidth;
+				if (count > 0) {
+					int barHeight = (int) (160 * count / highest);
+					chart.bar(x + 1, baseline - barHeight, barWidth - 2,
+							barHeight, "#4a90d9", count + " stories under "
+									+ durationLabel(upperBoundMillis(i)));
+				}
+				if (i % 2 == 0) {
+					chart.text(x + barWidth / 2, baseline + 14, "middle",
+							i == 0 ? "<1ms" : durationLabel(upperBoundMillis(i - 1)));
+				}
+			}
+		} finally {
+			chart.close();
+		}
+	}
+
+	private static long upperBoundMillis(int bucket) {
+		return 1L << bucket;
+	}
+
+	static String durationLabel(long millis) {
+		if (millis < 1000) {
+			return millis + "ms";
+		}
+		if (millis < 60000) {
+			return (millis / 1000) + "s";
+		}
+		return (millis / 60000) + "m";
+	}
+
+	/**
+	 * Keeps the slowest {@link #MAX_BARS} scenarios of a story.
+	 */
+	public static class SlowestScenarios {
+
+		private final PriorityQueue<SlowScenario> slowest = new PriorityQueue<SlowScenario>(
+				MAX_BARS + 1, BY_DURATION);
+		private int count;
+
+		public void add(String title, long durationNanos, StoryResult result) {
+
+			this.count++;
+
+			if (this.slowest.size() == MAX_BARS
+					&& this.slowest.peek().durationNanos >= durationNanos) {
+				return;
+			}
+
+			this.slowest.add(new SlowScenario(title, durationNanos, result));
+			if (this.slowest.size() > MAX_BARS) {
+				this.slowest.poll();
+			}
+		}
+
+		public int count() {
+			return this.count;
+		}
+
+		public void write(File file) {
+
+			List<SlowScenario> bars = new ArrayList<SlowScenario>(this.slowest);
+			Collections.sort(bars, Collections.reverseOrder(BY_DURATION));
+
+			int labelWidth = 240;
+			int plotWidth = WIDTH - labelWidth - 80;
+			int rowHeight = 18;
+			long highest = bars.isEmpty() ? 1 : Math.max(1,
+					bars.get(0).durationNanos);
+
+			SvgChartWriter chart = new SvgChartWriter(file, WIDTH, TOP
+					+ bars.size() * rowHeight + 8);
+			try {
+				chart.text(WIDTH / 2, 16, "middle", (bars.size() < this.count ? "Slowest "
+						+ bars.size() + " of " : "")
+						+ this.count + " scenarios");
+
+				for (int i = 0; i < bars.size(); i++) {
+
+					SlowScenario scenario = bars.get(i);
+					int y = TOP + i * rowHeight;
+					long millis = TimeUnit.NANOSECONDS
+							.toMillis(scenario.durationNanos);
+
+					chart.text(labelWidth - 6, y + 12, "end",
+							abbreviate(scenario.title, 40));
+					chart.bar(labelWidth, y + 2,
+							(int) (plotWidth * scenario.durationNanos / highest),
+							rowHeight - 4, fillOf(scenario.result),
+							scenario.title);
+					chart.text(labelWidth + (int) (plotWidth
+							* scenario.durationNanos / highest) + 4, y + 12,
+							"start", millis + " ms");
+				}
+			} finally {
+				chart.close();
+			}
+		}
+
+		private static String fillOf(StoryResult result) {
+			switch (result) {
+			case FAIL:
+				return "#d9534f";
+			case SUCCESS_WITH_WARNING:
+				return "#f0ad4e";
+			default:
+				return "#5cb85c";
+			}
+		}
+
+		private static String abbreviate(String text, int length) {
+			return text.length() <= length ? text : text.substring(0,
+					length - 3) + "...";
+		}
+	}
+
+	private static final class SlowScenario {
+
+		private final String title;
+		private final long durationNanos;
+		private final StoryResult result;
+
+		private SlowScenario(String title, long durationNanos,
+				StoryResult result) {
+			this.title = title;
+			this.durationNanos = durationNanos;
+			this.result = result;
+		}
+	}
+
+}
@@ -0,0 +1,16 @@
+package org.jbehave.asciidoctor.reporter;
+
+public enum EvictionPolicy {
+
+	/**
+	 * The entry used the longest time ago is evicted first.
+	 */
+	LEAST_RECENTLY_USED,
+
+	/**
+	 * The entry added the longest time ago is evicted first, however often it
+	 * is used, so hits do not have to reorder the cache.
+	 */
+	FIRST_IN_FIRST_OUT;
+
+}
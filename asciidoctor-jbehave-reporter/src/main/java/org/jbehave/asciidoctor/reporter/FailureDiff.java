@@ -0,0 +1,517 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shows what differs between the expected and actual values of a failure
+ * once they are too long to be read whole, as the changed hunks of a unified
+ * diff with some context around them.
+ * <p>
+ * Values are compared line by line, long lines being cut after
+ * <code>,{[&gt;</code> or every {@value #MAX_UNIT_LENGTH} characters so
+ * single line payloads diff as well. The comparison is Myers' divide and
+ * conquer one, linear in space, and gives up past a number of edits or a time
+ * limit, showing what is left to compare as a single change.
+ */
+public class FailureDiff {
+
+	public static final int DEFAULT_MIN_LENGTH = 1024;
+	public static final long DEFAULT_MAX_MILLIS = 200;
+	public static final int DEFAULT_MAX_EDITS = 10000;
+	public static final int DEFAULT_MAX_LINES = 200;
+
+	static final int CONTEXT = 3;
+	static final int MAX_UNIT_LENGTH = 120;
+
+	private static final String NEW_LINE = System.getProperty("line.separator");
+
+	private final int minLength;
+	private final long maxNanos;
+	private final int maxEdits;
+	private final int maxLines;
+
+	public FailureDiff() {
+		this(DEFAULT_MIN_LENGTH, DEFAULT_MAX_MILLIS, DEFAULT_MAX_EDITS,
+				DEFAULT_MAX_LINES);
+	}
+
+	/**
+	 * Values shorter than <code>minLength</code> are reported whole, a
+	 * comparison stops after <code>maxMillis</code> or <code>maxEdits</code>,
+	 * and at most <code>maxLines</code> lines of hunks are shown.
+	 */
+	public FailureDiff(int minLength, long maxMillis, int maxEdits,
+			int maxLines) {
+		this.minLength = minLength;
+		this.maxNanos = TimeUnit.MILLISECONDS.toNanos(maxMillis);
+		this.maxEdits = maxEdits;
+		this.maxLines = maxLines;
+	}
+
+	/**
+	 * The expected and actual values of a JUnit or Hamcrest assertion
+	 * message, or <code>null</code> if the message is short or not one.
+	 */
+	public String[] comparedValues(String message) {
+
+		if (message == null || message.length() < this.minLength) {
+			return null;
+		}
+
+		String[] values = hamcrestValues(message);
+		if (values == null) {
+			values = junitValues(message);
+		}
+		return values;
+	}
+
+	/**
+	 * The value and expected value of an outcome, or <code>null</code> if the
+	 * value is short.
+	 */
+	public String[] comparedValues(Object value, Object matcher) {
+
+		String actual = String.valueOf(value);
+
+		if (actual.length() < this.minLength) {
+			return null;
+		}
+
+		return new String[] { unquoted(String.valueOf(matcher)), actual };
+	}
+
+	// Expected: "..."
+	//      but: was "..."
+	private static String[] hamcrestValues(String message) {
+
+		int expected = message.indexOf("Expected: ");
+		int but = message.indexOf("\n     but: ", expected);
+
+		if (expected < 0 || but < 0) {
+			return null;
+		}
+
+		String actual = message.substring(but + "\n     but: ".length());
+		if (actual.startsWith("was ")) {
+			actual = actual.substring("was ".length());
+		}
+
+		return unquoted(message.substring(expected + "Expected: ".length(),
+				but), actual);
+	}
+
+	// expected:<...> but was:<...>
+	private static String[] junitValues(String message) {
+
+		int expected = message.indexOf("expected:<");
+		int but = message.lastIndexOf("> but was:<");
+
+		if (expected < 0 || but < expected || !message.endsWith(">")) {
+			return null;
+		}
+
+		return new String[] {
+				message.substring(expected + "expected:<".length(), but),
+				message.substring(but + "> but was:<".length(),
+						message.length() - 1) };
+	}
+
+	private static String[] unquoted(String expected, String actual) {
+		if (isQuoted(expected) && isQuoted(actual)) {
+			return new String[] { unquoted(expected), unquoted(actual) };
+		}
+		return new String[] { expected, actual };
+	}
+
+	private static boolean isQuoted(String value) {
+		return value.length() > 1
+				&& (value.charAt(0) == '"' && value.endsWith("\"") || value
+						.charAt(0) == '<' && value.endsWith(">"));
+	}
+
+	private static String unquoted(String value) {
+		return isQuoted(value) ? value.substring(1, value.length() - 1)
+				: value;
+	}
+
+	public Comparison compare(String expected, String actual) {
+
+		Map<String, Integer> ids = new HashMap<String, Integer>();
+		List<String> expectedUnits = units(expected);
+		List<String> actualUnits = units(actual);
+
+		Diff diff = new Diff(ids(expectedUnits, ids), ids(actualUnits, ids),
+				System.nanoTime() + this.maxNanos, this.maxEdits);
+		diff.compare(0, diff.a.length, 0, diff.b.length);
+
+		return render(expected, actual, expectedUnits, actualUnits, diff);
+	}
+
+	static List<String> units(String value) {
+
+		List<String> units = new ArrayList<String>();
+		int start = 0;
+		boolean longLine = longLine(value, 0);
+
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\n') {
+				units.add(value.substring(start, i > start
+						&& value.charAt(i - 1) == '\r' ? i - 1 : i));
+				start = i + 1;
+				longLine = longLine(value, start);
+			} else if (i + 1 - start >= MAX_UNIT_LENGTH || longLine
+					&& (c == ',' || c == '{' || c == '[' || c == '>')) {
+				units.add(value.substring(start, i + 1));
+				start = i + 1;
+			}
+		}
+
+		if (start < value.length()) {
+			units.add(value.substring(start));
+		}
+		return units;
+	}
+
+	private static boolean longLine(String value, int start) {
+		int end = value.indexOf('\n', start);
+		return (end < 0 ? value.length() : end) - start > MAX_UNIT_LENGTH;
+	}
+
+	private static int[] ids(List<String> units, Map<String, Integer> ids) {
+
+		int[] sequence = new int[units.size()];
+
+		for (int i = 0; i < sequence.length; i++) {
+			Integer id = ids.get(units.get(i));
+			if (id == null) {
+				id = ids.size();
+				ids.put(units.get(i), id);
+			}
+			sequence[i] = id;
+		}
+		return sequence;
+	}
+
+	private Comparison render(String expected, String actual,
+			List<String> expectedUnits, List<String> actualUnits, Diff diff) {
+
+		StringBuilder hunks = new StringBuilder();
+		int lines = 0;
+		int hunkCount = 0;
+		int shownHunks = 0;
+		int longestDashes = 0;
+
+		int i = 0;
+		int j = 0;
+		int n = diff.a.length;
+		int m = diff.b.length;
+
+		while (i < n || j < m) {
+
+			// skip to the next change
+			int commonFrom = 0;
+			while (i < n && j < m && !diff.deleted[i] && !diff.inserted[j]) {
+				i++;
+				j++;
+				commonFrom++;
+			}
+			if (i == n && j == m) {
+				break;
+			}
+
+			int hunkI = Math.max(0, i - Math.min(CONTEXT, commonFrom));
+			int hunkJ = j - (i - hunkI);
+			int endI = i;
+			int endJ = j;
+
+			// extend the hunk while changes are closer than twice the context
+			while (true) {
+				while (endI < n && diff.deleted[endI]) {
+					endI++;
+				}
+				while (endJ < m && diff.inserted[endJ]) {
+					endJ++;
+				}
+				int common = 0;
+				while (endI + common < n && endJ + common < m
+						&& !diff.deleted[endI + common]
+						&& !diff.inserted[endJ + common]
+						&& common <= 2 * CONTEXT) {
+					common++;
+				}
+				boolean last = endI + common == n && endJ + common == m;
+				if (common > 2 * CONTEXT || last) {
+					endI += Math.min(CONTEXT, common);
+					endJ += Math.min(CONTEXT, common);
+					break;
+				}
+				endI += common;
+				endJ += common;
+			}
+
+			hunkCount++;
+
+			if (lines < this.maxLines) {
+				shownHunks++;
+				hunks.append("@@ -").append(hunkI + 1).append(',')
+						.append(endI - hunkI).append(" +").append(hunkJ + 1)
+						.append(',').append(endJ - hunkJ).append(" @@")
+						.append(NEW_LINE);
+				lines++;
+
+				int a = hunkI;
+				int b = hunkJ;
+				while ((a < endI || b < endJ) && lines < this.maxLines) {
+					String line;
+					if (a < endI && diff.deleted[a]) {
+						line = "-" + expectedUnits.get(a++);
+					} else if (b < endJ && diff.inserted[b]) {
+						line = "+" + actualUnits.get(b++);
+					} else {
+						line = " " + expectedUnits.get(a++);
+						b++;
+					}
+					longestDashes = Math.max(longestDashes, dashes(line));
+					hunks.append(line).append(NEW_LINE);
+					lines++;
+				}
+			}
+
+			i = endI;
+			j = endJ;
+		}
+
+		StringBuilder summary = new StringBuilder();
+		summary.append("Expected ").append(expected.length())
+				.append(" characters, actual ").append(actual.length())
+				.append(", ").append(diff.deletions).append(" removed and ")
+				.append(diff.insertions).append(" added of ")
+				.append(expectedUnits.size()).append(" lines in ")
+				.append(hunkCount).append(hunkCount == 1 ? " hunk." : " hunks.");
+		if (diff.capped) {
+			summary.append(" Comparison stopped at its limit, what was left is shown as one change.");
+		}
+		if (shownHunks < hunkCount || lines >= this.maxLines) {
+			summary.append(" Showing the first ").append(lines)
+					.append(" lines.");
+		}
+
+		StringBuilder delimiter = new StringBuilder("----");
+		while (delimiter.length() <= longestDashes) {
+			delimiter.append('-');
+		}
+
+		return new Comparison(summary.toString(), hunks.toString(),
+				delimiter.toString());
+	}
+
+	private static int dashes(String line) {
+		for (int i = 0; i < line.length(); i++) {
+			if (line.charAt(i) != '-') {
+				return 0;
+			}
+		}
+		return line.length();
+	}
+
+	public static class Comparison {
+
+		private final String summary;
+		private final String hunks;
+		private final String delimiter;
+
+		private Comparison(String summary, String hunks, String delimiter) {
+			this.summary = summary;
+			this.hunks = hunks;
+			this.delimiter = delimiter;
+		}
+
+		public String summary() {
+			return summary;
+		}
+
+		/**
+		 * Hunks in unified format, every line ended by the line separator.
+		 */
+		public String hunks() {
+			return hunks;
+		}
+
+		/**
+		 * A listing delimiter no line of the hunks is equal to.
+		 */
+		public String delimiter() {
+			return delimiter;
+		}
+	}
+
+	/**
+	 * Marks the units of <code>a</code> deleted and of <code>b</code>
+	 * inserted, bisecting at the middle snake of every range.
+	 */
+	private static final class Diff {
+
+		private final int[] a;
+		private final int[] b;
+		private final boolean[] deleted;
+		private final boolean[] inserted;
+		private final long deadline;
+		private int editsLeft;
+		private int deletions;
+		private int insertions;
+		private boolean capped;
+
+		private Diff(int[] a, int[] b, long deadline, int maxEdits) {
+			this.a = a;
+			this.b = b;
+			this.deleted = new boolean[a.length];
+			this.inserted = new boolean[b.length];
+			this.deadline = deadline;
+			this.editsLeft = maxEdits;
+		}
+
+		private void compare(int aStart, int aEnd, int bStart, int bEnd) {
+
+			while (aStart < aEnd && bStart < bEnd && a[aStart] == b[bStart]) {
+				aStart++;
+				bStart++;
+			}
+			while (aStart < aEnd && bStart < bEnd
+					&& a[aEnd - 1] == b[bEnd - 1]) {
+				aEnd--;
+				bEnd--;
+			}
+
+			if (aStart == aEnd || bStart == bEnd || this.capped
+					|| !bisect(aStart, aEnd, bStart, bEnd)) {
+				replace(aStart, aEnd, bStart, bEnd);
+			}
+		}
+
+		private void replace(int aStart, int aEnd, int bStart, int bEnd) {
+			for (int x = aStart; x < aEnd; x++) {
+				this.deleted[x] = true;
+			}
+			for (int y = bStart; y < bEnd; y++) {
+				this.inserted[y] = true;
+			}
+			this.deletions += aEnd - aStart;
+			this.insertions += bEnd - bStart;
+		}
+
+		/**
+		 * Walks forward from the start and backward from the end until both
+		 * paths overlap, then compares each side of the overlap. Only two
+		 * diagonals arrays are kept, linear in the length of the range.
+		 */
+		private boolean bisect(int aStart, int aEnd, int bStart, int bEnd) {
+
+			if (this.editsLeft <= 0) {
+				this.capped = true;
+				return false;
+			}
+
+			int n = aEnd - aStart;
+			int m = bEnd - bStart;
+			int maxD = Math.min((n + m + 1) / 2, this.editsLeft + 1);
+			int offset = maxD;
+			int length = 2 * maxD + 2;
+
+			int[] forward = new int[length];
+			int[] backward = new int[length];
+			for (int k = 0; k < length; k++) {
+				forward[k] = -1;
+				backward[k] = -1;
+			}
+			forward[offset + 1] = 0;
+			backward[offset + 1] = 0;
+
+			int delta = n - m;
+			boolean front = delta % 2 != 0;
+			int k1start = 0;
+			int k1end = 0;
+			int k2start = 0;
+			int k2end = 0;
+
+			for (int d = 0; d < maxD; d++) {
+
+				if ((d & 15) == 0 && System.nanoTime() > this.deadline) {
+					break;
+				}
+
+				for (int k1 = -d + k1start; k1 <= d - k1end; k1 += 2) {
+					int k1Offset = offset + k1;
+					int x1 = k1 == -d || k1 != d
+							&& forward[k1Offset - 1] < forward[k1Offset + 1] ? forward[k1Offset + 1]
+							: forward[k1Offset - 1] + 1;
+					int y1 = x1 - k1;
+					while (x1 < n && y1 < m
+							&& a[aStart + x1] == b[bStart + y1]) {
+						x1++;
+						y1++;
+					}
+					forward[k1Offset] = x1;
+					if (x1 > n) {
+						k1end += 2;
+					} else if (y1 > m) {
+						k1start += 2;
+					} else if (front) {
+						int k2Offset = offset + delta - k1;
+						if (k2Offset >= 0 && k2Offset < length
+								&& backward[k2Offset] != -1
+								&& x1 >= n - backward[k2Offset]) {
+							split(aStart, aEnd, bStart, bEnd, x1, y1, d);
+							return true;
+						}
+					}
+				}
+
+				for (int k2 = -d + k2start; k2 <= d - k2end; k2 += 2) {
+					int k2Offset = offset + k2;
+					int x2 = k2 == -d || k2 != d
+							&& backward[k2Offset - 1] < backward[k2Offset + 1] ? backward[k2Offset + 1]
+							: backward[k2Offset - 1] + 1;
+					int y2 = x2 - k2;
+					while (x2 < n && y2 < m
+							&& a[aEnd - x2 - 1] == b[bEnd - y2 - 1]) {
+						x2++;
+						y2++;
+					}
+					backward[k2Offset] = x2;
+					if (x2 > n) {
+						k2end += 2;
+					} else if (y2 > m) {
+						k2start += 2;
+					} else if (!front) {
+						int k1Offset = offset + delta - k2;
+						if (k1Offset >= 0 && k1Offset < length
+								&& forward[k1Offset] != -1) {
+							int x1 = forward[k1Offset];
+							int y1 = offset + x1 - k1Offset;
+							if (x1 >= n - x2) {
+								split(aStart, aEnd, bStart, bEnd, x1, y1, d);
+								return true;
+							}
+						}
+					}
+				}
+			}
+
+			this.capped = true;
+			return false;
+		}
+
+		private void split(int aStart, int aEnd, int bStart, int bEnd, int x,
+				int y, int d) {
+			this.editsLeft -= d;
+			compare(aStart, aStart + x, bStart, bStart + y);
+			compare(aStart + x, aEnd, bStart + y, bEnd);
+		}
+	}
+
+}
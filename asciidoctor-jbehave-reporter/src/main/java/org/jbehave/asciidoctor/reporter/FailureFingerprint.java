@@ -0,0 +1,91 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.util.List;
+
+import org.jbehave.core.model.OutcomesTable;
+import org.jbehave.core.model.OutcomesTable.Outcome;
+
+/**
+ * Short, stable identifier of a failure, so the same assertion failing with
+ * different numbers in its message can be grouped. Computed as a 64-bit
+ * FNV-1a hash of the failure type, its message with digits collapsed and the
+ * frame that raised it.
+ */
+public final class FailureFingerprint {
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private FailureFingerprint() {
+	}
+
+	public static String of(Throwable failure) {
+
+		// JBehave wraps the failure of a step in an UUIDExceptionWrapper.
+		Throwable cause = failure.getCause() != null ? failure.getCause()
+				: failure;
+
+		long hash = FNV_OFFSET_BASIS;
+		hash = hash(hash, cause.getClass().getName());
+		hash = hash(hash, cause.getMessage());
+
+		StackTraceElement[] stackTrace = cause.getStackTrace();
+		if (stackTrace.length > 0) {
+			hash = hash(hash, stackTrace[0].getClassName());
+			hash = hash(hash, stackTrace[0].getMethodName());
+		}
+
+		return toHex(hash);
+	}
+
+	public static String of(OutcomesTable table) {
+
+		long hash = FNV_OFFSET_BASIS;
+
+		List<Outcome<?>> outcomes = table.getFailedOutcomes();
+		for (Outcome<?> outcome : outcomes) {
+			hash = hash(hash, outcome.getDescription());
+		}
+
+		return toHex(hash);
+	}
+
+	private static long hash(long hash, String value) {
+
+		if (value == null) {
+			return hash;
+		}
+
+		boolean inNumber = false;
+
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+
+			if (Character.isDigit(c)) {
+				if (inNumber) {
+					continue;
+				}
+				inNumber = true;
+				c = '#';
+			} else {
+				inNumber = false;
+			}
+
+			hash = (hash ^ c) * FNV_PRIME;
+		}
+
+		// field separator, so "ab" + "c" differs from "a" + "bc".
+		return (hash ^ 0xff) * FNV_PRIME;
+	}
+
+	private static String toHex(long hash) {
+		char[] hex = new char[16];
+		for (int i = 15; i >= 0; i--) {
+			hex[i] = HEX[(int) (hash & 0xf)];
+			hash >>>= 4;
+		}
+		return new String(hex);
+	}
+
+}
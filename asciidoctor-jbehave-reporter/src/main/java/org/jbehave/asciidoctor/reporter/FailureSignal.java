@@ -0,0 +1,204 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Signals failed steps while the suite is still running, for a pipeline to
+ * abort or start triage without waiting for the end of the run. The signal
+ * file is JSON lines: the first failure of the run with its story, scenario,
+ * step and fingerprint, then the failed steps of every story so far. It is
+ * written as soon as the first failure happens, then rewritten whole at most
+ * once per interval and at the end of every story that failed since, so a
+ * failing suite does not turn into a rename storm. The file is replaced
+ * through an {@link AsideFile}, so it is never read half written, and one
+ * left by a previous run is removed as the run starts.
+ */
+public class FailureSignal implements ReportListener {
+
+	public static final String SIGNAL_FILE = "failure-signal.jsonl";
+	public static final long DEFAULT_MIN_INTERVAL_MILLIS = 1000;
+
+	private static final byte[] TYPE = JsonLinesWriter.name("type");
+	private static final byte[] STORY = JsonLinesWriter.name("story");
+	private static final byte[] SCENARIO = JsonLinesWriter.name("scenario");
+	private static final byte[] STEP = JsonLinesWriter.name("step");
+	private static final byte[] FINGERPRINT = JsonLinesWriter
+			.name("fingerprint");
+	private static final byte[] TIMESTAMP = JsonLinesWriter.name("timestamp");
+	private static final byte[] FAILED = JsonLinesWriter.name("failed");
+
+	private final File signalFile;
+	private final FailureSignalCallback callback;
+	private final long minIntervalMillis;
+	private final Map<String, Integer> failuresByStory = new LinkedHashMap<String, Integer>();
+	private final Object writing = new Object();
+	private Failure firstFailure;
+	private int failures;
+	private int signalled;
+	private int written;
+	private long lastWrite;
+
+	/**
+	 * The callback may be <code>null</code> to only write the signal file.
+	 */
+	public FailureSignal(File signalFile, FailureSignalCallback callback) {
+		this(signalFile, callback, DEFAULT_MIN_INTERVAL_MILLIS);
+	}
+
+	public FailureSignal(File signalFile, FailureSignalCallback callback,
+			long minIntervalMillis) {
+		this.signalFile = signalFile;
+		this.callback = callback;
+		this.minIntervalMillis = minIntervalMillis;
+		signalFile.delete();
+	}
+
+	public File getSignalFile() {
+		return signalFile;
+	}
+
+	/**
+	 * The callback hears of every failure, the file is written outside the
+	 * lock so other stories do not wait for it.
+	 */
+	@Override
+	public void onEvent(ReportEvent event) {
+
+		boolean failed = event.getType() == ReportEvent.Type.STEP
+				&& event.getStepOutcome() == StepOutcome.FAILED;
+
+		if (!failed && event.getType() != ReportEvent.Type.STORY_FINISHED) {
+			return;
+		}
+
+		Failure failure = null;
+		Map<String, Integer> failuresByStory = null;
+		byte[] records = null;
+		int version = 0;
+
+		synchronized (this) {
+			if (failed) {
+				failure = new Failure(event, this.firstFailure == null);
+				if (failure.isFirst()) {
+					this.firstFailure = failure;
+				}
+				Integer previous = this.failuresByStory.get(event
+						.getStoryPath());
+				this.failuresByStory.put(event.getStoryPath(),
+						previous == null ? 1 : previous + 1);
+				this.failures++;
+				failuresByStory = Collections
+						.unmodifiableMap(new LinkedHashMap<String, Integer>(
+								this.failuresByStory));
+			}
+
+			if (this.failures > this.signalled
+					&& (!failed || failure.isFirst() || event.getTimestamp()
+							- this.lastWrite >= this.minIntervalMillis)) {
+				records = records();
+				version = this.signalled = this.failures;
+				this.lastWrite = event.getTimestamp();
+			}
+		}
+
+		if (records != null) {
+			write(records, version);
+		}
+
+		if (failure != null && this.callback != null) {
+			this.callback.onFailure(failure, failuresByStory);
+		}
+	}
+
+	public synchronized Failure firstFailure() {
+		return firstFailure;
+	}
+
+	private byte[] records() {
+
+		InMemoryReportSink records = new InMemoryReportSink();
+		JsonLinesWriter writer = new JsonLinesWriter(records, 4096);
+
+		writer.beginRecord().field(TYPE, "firstFailure")
+				.field(STORY, this.firstFailure.getStoryPath())
+				.field(SCENARIO, this.firstFailure.getScenarioTitle())
+				.field(STEP, this.firstFailure.getStep())
+				.field(FINGERPRINT, this.firstFailure.getFingerprint())
+				.field(TIMESTAMP, this.firstFailure.getTimestamp())
+				.endRecord();
+		for (Map.Entry<String, Integer> story : this.failuresByStory
+				.entrySet()) {
+			writer.beginRecord().field(TYPE, "story")
+					.field(STORY, story.getKey())
+					.field(FAILED, story.getValue()).endRecord();
+		}
+		writer.beginRecord().field(TYPE, "total").field(FAILED, this.failures)
+				.field(TIMESTAMP, System.currentTimeMillis()).endRecord();
+		writer.flush();
+
+		return records.toByteArray();
+	}
+
+	private void write(byte[] records, int version) {
+		synchronized (this.writing) {
+			// a signal taken later may have got here first
+			if (version > this.written) {
+				AsideFile.write(this.signalFile, records);
+				this.written = version;
+			}
+		}
+	}
+
+	public static final class Failure {
+
+		private final String storyPath;
+		private final String scenarioTitle;
+		private final String step;
+		private final String fingerprint;
+		private final long timestamp;
+		private final boolean first;
+
+		private Failure(ReportEvent event, boolean first) {
+			this.storyPath = event.getStoryPath();
+			this.scenarioTitle = event.getScenarioTitle();
+			this.step = event.getStep();
+			this.fingerprint = event.getFailureFingerprint();
+			this.timestamp = event.getTimestamp();
+			this.first = first;
+		}
+
+		public String getStoryPath() {
+			return storyPath;
+		}
+
+		public String getScenarioTitle() {
+			return scenarioTitle;
+		}
+
+		public String getStep() {
+			return step;
+		}
+
+		public String getFingerprint() {
+			return fingerprint;
+		}
+
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		public boolean isFirst() {
+			return first;
+		}
+
+		@Override
+		public String toString() {
+			return storyPath + " / " + scenarioTitle + " / " + step + " ["
+					+ fingerprint + "]";
+		}
+	}
+
+}
@@ -0,0 +1,22 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.util.Map;
+
+/**
+ * Told of every failed step as soon as it is reported, on the thread running
+ * the story, to fail a pipeline fast or start triage while the suite still
+ * runs.
+ */
+public interface FailureSignalCallback {
+
+	/**
+	 * @param failure
+	 *            the failed step, {@link FailureSignal.Failure#isFirst()} for
+	 *            the first of the run.
+	 * @param failuresByStory
+	 *            failed steps so far by story path, this one included.
+	 */
+	void onFailure(FailureSignal.Failure failure,
+			Map<String, Integer> failuresByStory);
+
+}
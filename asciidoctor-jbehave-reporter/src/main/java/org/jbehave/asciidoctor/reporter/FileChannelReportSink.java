@@ -0,0 +1,193 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Writes the report through a {@link FileChannel}, staging content in a
+ * direct buffer and handing already encoded buffers to the channel with
+ * gathering writes. Instances are not thread safe, in the same way that one
+ * reporter is created per story.
+ */
+public class FileChannelReportSink implements ReportSink {
+
+	public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+	public static final int MINIMUM_BUFFER_SIZE = 16;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final File outputFile;
+	private final FlushPolicy flushPolicy;
+	private final ByteBuffer staging;
+	private final CharsetEncoder encoder;
+
+	private FileChannel channel;
+	private boolean truncated;
+
+	public FileChannelReportSink(File outputFile) {
+		this(outputFile, DEFAULT_BUFFER_SIZE, FlushPolicy.ON_BUFFER_FULL);
+	}
+
+	public FileChannelReportSink(File outputFile, int bufferSize,
+			FlushPolicy flushPolicy) {
+
+		if (bufferSize < MINIMUM_BUFFER_SIZE) {
+			throw new IllegalArgumentException("Buffer size must be at least "
+					+ MINIMUM_BUFFER_SIZE + " bytes but was " + bufferSize);
+		}
+
+		this.outputFile = outputFile;
+		this.flushPolicy = flushPolicy;
+		this.staging = ByteBuffer.allocateDirect(bufferSize);
+		this.encoder = UTF_8.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	@Override
+	public void write(CharSequence content) {
+
+		CharBuffer chars = CharBuffer.wrap(content);
+		this.encoder.reset();
+
+		boolean endOfInput = false;
+
+		while (true) {
+			CoderResult result = endOfInput ? this.encoder.flush(this.staging)
+					: this.encoder.encode(chars, this.staging, true);
+
+			if (result.isOverflow()) {
+				drainStaging();
+			} else if (!endOfInput) {
+				endOfInput = true;
+			} else {
+				break;
+			}
+		}
+
+		flushIfRequired();
+	}
+
+	@Override
+	public void write(ByteBuffer... content) {
+
+		long pending = this.staging.position();
+		for (ByteBuffer buffer : content) {
+			pending += buffer.remaining();
+		}
+
+		if (pending <= this.staging.capacity()) {
+			for (ByteBuffer buffer : content) {
+				this.staging.put(buffer);
+			}
+		} else {
+			gatheringWrite(content);
+		}
+
+		flushIfRequired();
+	}
+
+	private void gatheringWrite(ByteBuffer[] content) {
+
+		ByteBuffer[] buffers = new ByteBuffer[content.length + 1];
+		this.staging.flip();
+		buffers[0] = this.staging;
+		System.arraycopy(content, 0, buffers, 1, content.length);
+
+		try {
+			FileChannel channel = channel();
+			while (hasRemaining(buffers)) {
+				channel.write(buffers);
+			}
+		} catch (IOException e) {
+			throw new ReportOutputFailed(this.outputFile, e);
+		} finally {
+			this.staging.clear();
+		}
+	}
+
+	private boolean hasRemaining(ByteBuffer[] buffers) {
+		for (ByteBuffer buffer : buffers) {
+			if (buffer.hasRemaining()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void drainStaging() {
+
+		if (this.staging.position() == 0) {
+			return;
+		}
+
+		this.staging.flip();
+
+		try {
+			FileChannel channel = channel();
+			while (this.staging.hasRemaining()) {
+				channel.write(this.staging);
+			}
+		} catch (IOException e) {
+			throw new ReportOutputFailed(this.outputFile, e);
+		} finally {
+			this.staging.clear();
+		}
+	}
+
+	private void flushIfRequired() {
+		if (this.flushPolicy == FlushPolicy.ON_WRITE) {
+			drainStaging();
+		}
+	}
+
+	private FileChannel channel() throws IOException {
+
+		if (this.channel == null) {
+			File parent = this.outputFile.getParentFile();
+			if (parent != null) {
+				parent.mkdirs();
+			}
+			// first opening truncates, reopening after close appends.
+			this.channel = new FileOutputStream(this.outputFile,
+					this.truncated).getChannel();
+			this.truncated = true;
+		}
+
+		return this.channel;
+	}
+
+	@Override
+	public void flush() {
+		drainStaging();
+	}
+
+	@Override
+	public void close() {
+
+		drainStaging();
+
+		if (this.channel != null) {
+			try {
+				this.channel.close();
+			} catch (IOException e) {
+				throw new ReportOutputFailed(this.outputFile, e);
+			} finally {
+				this.channel = null;
+			}
+		}
+	}
+
+	public File getOutputFile() {
+		return outputFile;
+	}
+
+}
@@ -0,0 +1,16 @@
+package org.jbehave.asciidoctor.reporter;
+
+public enum FlushPolicy {
+
+	/**
+	 * Every write reaches the underlying output before returning.
+	 */
+	ON_WRITE,
+
+	/**
+	 * Content is staged until the sink buffer is full or the sink is
+	 * explicitly flushed.
+	 */
+	ON_BUFFER_FULL;
+
+}
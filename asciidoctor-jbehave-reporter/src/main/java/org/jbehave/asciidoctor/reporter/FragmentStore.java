@@ -0,0 +1,269 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Directory of report fragments named after the SHA-1 of their content, as
+ * <code>ab/cdef...adoc</code>. A fragment already there, from this run or any
+ * earlier one sharing the directory, is never written again.
+ * <p>
+ * Nothing is removed as runs expire: once the documents of old runs are
+ * deleted, {@link #sweep(List)} removes the fragments no retained document
+ * includes any more, for instance from the job enforcing the retention
+ * window with <code>FragmentStore store document-directory...</code>.
+ */
+public class FragmentStore {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	private static final String INCLUDE = "include::";
+	private static final String EXTENSION = ".adoc";
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final File directory;
+	private final AtomicLong fragments = new AtomicLong();
+	private final AtomicLong stored = new AtomicLong();
+	private final AtomicLong bytesStored = new AtomicLong();
+	private final AtomicLong bytesReferenced = new AtomicLong();
+
+	public FragmentStore(File directory) {
+		this.directory = directory;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Usage: <code>FragmentStore storeDirectory documentDirectory...</code>
+	 */
+	public static void main(String[] args) {
+
+		if (args.length < 2) {
+			System.err.println("Usage: FragmentStore <store directory> <document directory>...");
+			System.exit(1);
+		}
+
+		List<File> documents = new ArrayList<File>();
+		for (int i = 1; i < args.length; i++) {
+			documents.add(new File(args[i]));
+		}
+
+		int removed = new FragmentStore(new File(args[0])).sweep(documents);
+		System.out.println("Removed " + removed
+				+ " fragments no longer included from " + args[0]);
+	}
+
+	/**
+	 * Removes the fragments none of the retained documents includes, given as
+	 * documents or directories searched for them, and returns how many. Only
+	 * fragments stored before the sweep started are removed, but a run
+	 * reusing an older fragment while the store is swept may still lose it,
+	 * so sweep between runs or retain the documents being written too.
+	 */
+	public int sweep(List<File> retainedDocuments) {
+
+		long started = System.currentTimeMillis();
+		File store = canonical(this.directory);
+		Set<String> included = new HashSet<String>();
+
+		for (File document : retainedDocuments) {
+			mark(document, store, included);
+		}
+
+		int removed = 0;
+		File[] prefixes = store.listFiles();
+		if (prefixes == null) {
+			return removed;
+		}
+
+		for (File prefix : prefixes) {
+			File[] objects = prefix.listFiles();
+			if (objects == null || prefix.getName().length() != 2) {
+				continue;
+			}
+			for (File object : objects) {
+				if (object.getName().endsWith(EXTENSION)
+						&& object.lastModified() < started
+						&& !included.contains(prefix.getName() + "/"
+								+ object.getName()) && object.delete()) {
+					removed++;
+				}
+			}
+			// left over when every fragment under it went
+			prefix.delete();
+		}
+
+		return removed;
+	}
+
+	private static void mark(File document, File store, Set<String> included) {
+
+		if (document.isDirectory()) {
+			File[] files = document.listFiles();
+			if (files != null && !canonical(document).equals(store)) {
+				for (File file : files) {
+					mark(file, store, included);
+				}
+			}
+			return;
+		}
+
+		if (!document.getName().endsWith(EXTENSION)) {
+			return;
+		}
+
+		String storePath = store.getPath() + File.separator;
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(
+					new FileInputStream(document), UTF_8));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int attributes = line.lastIndexOf('[');
+				if (!line.startsWith(INCLUDE) || attributes < INCLUDE.length()) {
+					continue;
+				}
+				String path = canonical(
+						new File(document.getParentFile(), line.substring(
+								INCLUDE.length(), attributes))).getPath();
+				if (path.startsWith(storePath)) {
+					included.add(path.substring(storePath.length()).replace(
+							File.separatorChar, '/'));
+				}
+			}
+		} catch (IOException e) {
+			throw new ReportOutputFailed(document, e);
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+	}
+
+	private static File canonical(File file) {
+		try {
+			return file.getCanonicalFile();
+		} catch (IOException e) {
+			return file.getAbsoluteFile();
+		}
+	}
+
+	/**
+	 * Returns the path of the fragment relative to the store directory.
+	 */
+	public String store(byte[] content, int length) {
+
+		String hash = sha1(content, length);
+		String path = hash.substring(0, 2) + "/" + hash.substring(2) + EXTENSION;
+		File object = new File(this.directory, path);
+
+		this.fragments.incrementAndGet();
+		this.bytesReferenced.addAndGet(length);
+
+		if (!object.isFile()) {
+			write(object, content, length);
+		}
+
+		return path;
+	}
+
+	private void write(File object, byte[] content, int length) {
+
+		File parent = object.getParentFile();
+		parent.mkdirs();
+
+		OutputStream output = null;
+		File aside = null;
+		try {
+			// written aside so a concurrent reader never sees half a fragment
+			aside = File.createTempFile(object.getName(), ".tmp", parent);
+			output = new FileOutputStream(aside);
+			output.write(content, 0, length);
+			output.close();
+			output = null;
+		} catch (IOException e) {
+			throw new ReportOutputFailed(object, e);
+		} finally {
+			if (output != null) {
+				try {
+					output.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+
+		if (aside.renameTo(object)) {
+			this.stored.incrementAndGet();
+			this.bytesStored.addAndGet(length);
+		} else {
+			// another reporter stored the same content first
+			aside.delete();
+		}
+	}
+
+	/**
+	 * Relative path from the directory of the given report to the store,
+	 * ending with '/'.
+	 */
+	public String includePrefix(File report) {
+		return ReportFileLayout.link(slashed(report),
+				slashed(new File(this.directory, "_"))).replaceFirst("_$", "");
+	}
+
+	private static String slashed(File file) {
+		return file.getAbsolutePath().replace(File.separatorChar, '/');
+	}
+
+	public long fragments() {
+		return this.fragments.get();
+	}
+
+	public long stored() {
+		return this.stored.get();
+	}
+
+	public long bytesStored() {
+		return this.bytesStored.get();
+	}
+
+	public long bytesReferenced() {
+		return this.bytesReferenced.get();
+	}
+
+	private static String sha1(byte[] content, int length) {
+
+		byte[] digest;
+		try {
+			MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+			sha1.update(content, 0, length);
+			digest = sha1.digest();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+
+		char[] hex = new char[digest.length * 2];
+		for (int i = 0; i < digest.length; i++) {
+			hex[2 * i] = HEX[(digest[i] >> 4) & 0xF];
+			hex[2 * i + 1] = HEX[digest[i] & 0xF];
+		}
+		return new String(hex);
+	}
+
+}
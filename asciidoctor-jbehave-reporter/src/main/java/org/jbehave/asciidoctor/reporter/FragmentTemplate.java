@@ -0,0 +1,152 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A template compiled into alternating literal byte segments and slot
+ * indices, so rendering only copies bytes and encodes slot values.
+ */
+public final class FragmentTemplate {
+
+	/**
+	 * Slot value marking where the story result is spliced in once the story
+	 * has finished.
+	 */
+	public static final CharSequence STORY_RESULT = new StoryResultMarker();
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final String NEW_LINE = System.getProperty("line.separator");
+	private static final String SLOT_START = "${";
+	private static final String SLOT_END = "}";
+	private static final String NULL_VALUE = "null";
+
+	private final ReportFragment fragment;
+	private final String source;
+	// literals.length == slots.length + 1, literal i precedes slot i.
+	private final byte[][] literals;
+	private final int[] slots;
+
+	private FragmentTemplate(ReportFragment fragment, String source,
+			byte[][] literals, int[] slots) {
+		this.fragment = fragment;
+		this.source = source;
+		this.literals = literals;
+		this.slots = slots;
+	}
+
+	public static FragmentTemplate compile(ReportFragment fragment,
+			String source) {
+
+		List<String> literals = new ArrayList<String>();
+		List<Integer> slots = new ArrayList<Integer>();
+
+		int position = 0;
+		int slotStart;
+
+		while ((slotStart = source.indexOf(SLOT_START, position)) > -1) {
+
+			int slotEnd = source.indexOf(SLOT_END, slotStart);
+
+			if (slotEnd == -1) {
+				throw new IllegalArgumentException("Unterminated slot in "
+						+ fragment.key() + " template at index " + slotStart);
+			}
+
+			String slot = source.substring(slotStart + SLOT_START.length(),
+					slotEnd);
+			int slotIndex = fragment.slots().indexOf(slot);
+
+			if (slotIndex == -1) {
+				throw new IllegalArgumentException("Unknown slot " + slot
+						+ " in " + fragment.key() + " template, expected one of "
+						+ fragment.slots());
+			}
+
+			literals.add(source.substring(position, slotStart));
+			slots.add(slotIndex);
+			position = slotEnd + SLOT_END.length();
+		}
+
+		literals.add(source.substring(position));
+
+		byte[][] encodedLiterals = new byte[literals.size()][];
+		for (int i = 0; i < encodedLiterals.length; i++) {
+			encodedLiterals[i] = literals.get(i).replace("\n", NEW_LINE)
+					.getBytes(UTF_8);
+		}
+
+		int[] slotIndexes = new int[slots.size()];
+		for (int i = 0; i < slotIndexes.length; i++) {
+			slotIndexes[i] = slots.get(i);
+		}
+
+		return new FragmentTemplate(fragment, source, encodedLiterals,
+				slotIndexes);
+	}
+
+	public void renderTo(StoryContentBuffer buffer, CharSequence... values) {
+
+		for (int i = 0; i < this.slots.length; i++) {
+
+			buffer.append(this.literals[i]);
+
+			CharSequence value = values[this.slots[i]];
+
+			if (value == STORY_RESULT) {
+				buffer.markStoryResult();
+			} else {
+				buffer.append(value == null ? NULL_VALUE : value);
+			}
+		}
+
+		buffer.append(this.literals[this.slots.length]);
+	}
+
+	public String render(CharSequence... values) {
+
+		StringBuilder output = new StringBuilder();
+
+		for (int i = 0; i < this.slots.length; i++) {
+			output.append(new String(this.literals[i], UTF_8));
+			output.append(values[this.slots[i]]);
+		}
+
+		output.append(new String(this.literals[this.slots.length], UTF_8));
+
+		return output.toString();
+	}
+
+	public ReportFragment getFragment() {
+		return fragment;
+	}
+
+	public String getSource() {
+		return source;
+	}
+
+	private static final class StoryResultMarker implements CharSequence {
+
+		@Override
+		public int length() {
+			return 0;
+		}
+
+		@Override
+		public char charAt(int index) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return "";
+		}
+
+		@Override
+		public String toString() {
+			return "";
+		}
+	}
+
+}
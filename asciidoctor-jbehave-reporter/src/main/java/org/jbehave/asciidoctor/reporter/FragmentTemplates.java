@@ -0,0 +1,107 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * The compiled templates of every {@link ReportFragment}. Defaults are read
+ * from {@value #DEFAULT_TEMPLATES} and any of them can be replaced by
+ * properties keyed by {@link ReportFragment#key()}.
+ */
+public final class FragmentTemplates {
+
+	public static final String DEFAULT_TEMPLATES = "asciidoctor-jbehave-templates.properties";
+
+	private static final FragmentTemplates DEFAULTS = new FragmentTemplates(
+			loadResource(DEFAULT_TEMPLATES));
+
+	private final Map<ReportFragment, FragmentTemplate> templates = new EnumMap<ReportFragment, FragmentTemplate>(
+			ReportFragment.class);
+
+	private FragmentTemplates(Properties sources) {
+
+		for (String key : sources.stringPropertyNames()) {
+			ReportFragment fragment = ReportFragment.fromKey(key);
+			this.templates.put(fragment,
+					FragmentTemplate.compile(fragment, sources.getProperty(key)));
+		}
+
+		for (ReportFragment fragment : ReportFragment.values()) {
+			if (!this.templates.containsKey(fragment)) {
+				throw new IllegalArgumentException("No template defined for "
+						+ fragment.key());
+			}
+		}
+	}
+
+	private FragmentTemplates(FragmentTemplates defaults, Properties overrides) {
+
+		this.templates.putAll(defaults.templates);
+
+		for (String key : overrides.stringPropertyNames()) {
+			ReportFragment fragment = ReportFragment.fromKey(key);
+			this.templates.put(fragment, FragmentTemplate.compile(fragment,
+					overrides.getProperty(key)));
+		}
+	}
+
+	public static FragmentTemplates defaults() {
+		return DEFAULTS;
+	}
+
+	public static FragmentTemplates withOverrides(Properties overrides) {
+		return new FragmentTemplates(DEFAULTS, overrides);
+	}
+
+	public static FragmentTemplates fromResource(String resource) {
+		return withOverrides(loadResource(resource));
+	}
+
+	public static FragmentTemplates fromFile(File file) {
+		try {
+			return withOverrides(load(new FileInputStream(file)));
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Unable to read templates from "
+					+ file, e);
+		}
+	}
+
+	public FragmentTemplate get(ReportFragment fragment) {
+		return this.templates.get(fragment);
+	}
+
+	private static Properties loadResource(String resource) {
+
+		InputStream input = FragmentTemplates.class
+				.getResourceAsStream(resource);
+
+		if (input == null) {
+			throw new IllegalArgumentException("Templates resource " + resource
+					+ " not found");
+		}
+
+		try {
+			return load(input);
+		} catch (IOException e) {
+			throw new IllegalArgumentException(
+					"Unable to read templates from " + resource, e);
+		}
+	}
+
+	private static Properties load(InputStream input) throws IOException {
+		try {
+			Properties properties = new Properties();
+			properties.load(new InputStreamReader(input, "UTF-8"));
+			return properties;
+		} finally {
+			input.close();
+		}
+	}
+
+}
@@ -0,0 +1,36 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.nio.ByteBuffer;
+
+public class HeapChunkAllocator implements ChunkAllocator {
+
+	// small enough to never become a humongous object in G1.
+	public static final int DEFAULT_CHUNK_SIZE = 8 * 1024;
+
+	private final int chunkSize;
+
+	public HeapChunkAllocator() {
+		this(DEFAULT_CHUNK_SIZE);
+	}
+
+	public HeapChunkAllocator(int chunkSize) {
+
+		if (chunkSize < FileChannelReportSink.MINIMUM_BUFFER_SIZE) {
+			throw new IllegalArgumentException("Chunk size must be at least "
+					+ FileChannelReportSink.MINIMUM_BUFFER_SIZE
+					+ " bytes but was " + chunkSize);
+		}
+
+		this.chunkSize = chunkSize;
+	}
+
+	@Override
+	public ByteBuffer acquire() {
+		return ByteBuffer.allocate(this.chunkSize);
+	}
+
+	@Override
+	public void release(ByteBuffer chunk) {
+	}
+
+}
@@ -0,0 +1,54 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+public class InMemoryReportSink implements ReportSink {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+	@Override
+	public synchronized void write(CharSequence content) {
+		byte[] encoded = content.toString().getBytes(UTF_8);
+		this.content.write(encoded, 0, encoded.length);
+	}
+
+	@Override
+	public synchronized void write(ByteBuffer... content) {
+		for (ByteBuffer buffer : content) {
+			byte[] bytes = new byte[buffer.remaining()];
+			buffer.get(bytes);
+			this.content.write(bytes, 0, bytes.length);
+		}
+	}
+
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public void close() {
+	}
+
+	public synchronized byte[] toByteArray() {
+		return this.content.toByteArray();
+	}
+
+	public synchronized void reset() {
+		this.content.reset();
+	}
+
+	@Override
+	public synchronized String toString() {
+		try {
+			return this.content.toString(UTF_8.name());
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,88 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.File;
+
+/**
+ * Writes every {@link ReportEvent} of a story as one JSON object per line,
+ * next to its AsciiDoc report, so dashboards do not need a second reporter.
+ */
+public class JsonLinesSidecar implements ReportListener {
+
+	public static final String EXTENSION = "jsonl";
+
+	private static final byte[] EVENT = JsonLinesWriter.name("event");
+	private static final byte[] TIMESTAMP = JsonLinesWriter.name("timestamp");
+	private static final byte[] STORY = JsonLinesWriter.name("story");
+	private static final byte[] GIVEN_STORY = JsonLinesWriter
+			.name("givenStory");
+	private static final byte[] SCENARIO = JsonLinesWriter.name("scenario");
+	private static final byte[] STEP = JsonLinesWriter.name("step");
+	private static final byte[] OUTCOME = JsonLinesWriter.name("outcome");
+	private static final byte[] RESULT = JsonLinesWriter.name("result");
+	private static final byte[] DURATION = JsonLinesWriter
+			.name("durationNanos");
+	private static final byte[] FINGERPRINT = JsonLinesWriter
+			.name("fingerprint");
+
+	private static final String[] EVENT_NAMES = { "storyStarted",
+			"scenarioStarted", "step", "scenarioFinished", "storyFinished" };
+
+	private final JsonLinesWriter writer;
+
+	public JsonLinesSidecar(ReportSink sink) {
+		this.writer = new JsonLinesWriter(sink);
+	}
+
+	public static File sidecarFileOf(File reportFile) {
+		String name = reportFile.getName();
+		int extension = name.lastIndexOf('.');
+		String baseName = extension > -1 ? name.substring(0, extension) : name;
+		return new File(reportFile.getParentFile(), baseName + "."
+				+ EXTENSION);
+	}
+
+	@Override
+	public void onEvent(ReportEvent event) {
+
+		this.writer.beginRecord()
+				.field(EVENT, EVENT_NAMES[event.getType().ordinal()])
+				.field(TIMESTAMP, event.getTimestamp())
+				.field(STORY, event.getStoryPath());
+
+		switch (event.getType()) {
+		case STORY_STARTED:
+			this.writer.field(GIVEN_STORY, event.isGivenStory());
+			break;
+		case SCENARIO_STARTED:
+			this.writer.field(SCENARIO, event.getScenarioTitle());
+			break;
+		case STEP:
+			this.writer.field(SCENARIO, event.getScenarioTitle())
+					.field(STEP, event.getStep())
+					.field(OUTCOME, event.getStepOutcome().label())
+					.field(DURATION, event.getDurationNanos());
+			if (event.getFailureFingerprint() != null) {
+				this.writer.field(FINGERPRINT, event.getFailureFingerprint());
+			}
+			break;
+		case SCENARIO_FINISHED:
+			this.writer.field(SCENARIO, event.getScenarioTitle())
+					.field(RESULT, event.getResult().name())
+					.field(DURATION, event.getDurationNanos());
+			break;
+		case STORY_FINISHED:
+			this.writer.field(GIVEN_STORY, event.isGivenStory())
+					.field(RESULT, event.getResult().name())
+					.field(DURATION, event.getDurationNanos());
+			break;
+		}
+
+		this.writer.endRecord();
+
+		if (event.getType() == ReportEvent.Type.STORY_FINISHED
+				&& !event.isGivenStory()) {
+			this.writer.close();
+		}
+	}
+
+}
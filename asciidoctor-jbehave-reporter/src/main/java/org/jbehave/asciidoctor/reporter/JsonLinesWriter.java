@@ -0,0 +1,212 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Streaming writer of one JSON object per line. Field names are encoded once
+ * by {@link #name(String)}, and values are escaped and UTF-8 encoded straight
+ * into a reused buffer, so writing a field does not allocate.
+ */
+public class JsonLinesWriter {
+
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final byte[] HEX = "0123456789abcdef".getBytes(UTF_8);
+	private static final byte[] TRUE = "true".getBytes(UTF_8);
+	private static final byte[] FALSE = "false".getBytes(UTF_8);
+	private static final byte[] NULL = "null".getBytes(UTF_8);
+	private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE)
+			.getBytes(UTF_8);
+	// longest escape sequence or encoded character.
+	private static final int MAX_CHAR_BYTES = 6;
+	private static final int MAX_LONG_BYTES = 20;
+
+	private final ReportSink sink;
+	private final ByteBuffer buffer;
+	private final byte[] digits = new byte[MAX_LONG_BYTES];
+
+	private boolean firstField;
+
+	public JsonLinesWriter(ReportSink sink) {
+		this(sink, DEFAULT_BUFFER_SIZE);
+	}
+
+	public JsonLinesWriter(ReportSink sink, int bufferSize) {
+		this.sink = sink;
+		this.buffer = ByteBuffer.allocate(Math.max(bufferSize, 64));
+	}
+
+	/**
+	 * Encodes a field name once, to be reused for every record.
+	 */
+	public static byte[] name(String name) {
+		StringBuilder quoted = new StringBuilder(name.length() + 3);
+		quoted.append('"').append(name).append("\":");
+		return quoted.toString().getBytes(UTF_8);
+	}
+
+	public JsonLinesWriter beginRecord() {
+		put((byte) '{');
+		this.firstField = true;
+		return this;
+	}
+
+	public JsonLinesWriter endRecord() {
+		put((byte) '}');
+		put((byte) '\n');
+		return this;
+	}
+
+	public JsonLinesWriter field(byte[] name, CharSequence value) {
+
+		fieldName(name);
+
+		if (value == null) {
+			put(NULL);
+			return this;
+		}
+
+		put((byte) '"');
+
+		for (int i = 0; i < value.length(); i++) {
+			ensureRemaining(MAX_CHAR_BYTES);
+			char c = value.charAt(i);
+
+			if (Character.isHighSurrogate(c) && i + 1 < value.length()
+					&& Character.isLowSurrogate(value.charAt(i + 1))) {
+				putCodePoint(Character.toCodePoint(c, value.charAt(++i)));
+			} else {
+				putChar(c);
+			}
+		}
+
+		put((byte) '"');
+		return this;
+	}
+
+	public JsonLinesWriter field(byte[] name, long value) {
+
+		fieldName(name);
+
+		if (value == Long.MIN_VALUE) {
+			put(MIN_LONG);
+			return this;
+		}
+
+		ensureRemaining(MAX_LONG_BYTES);
+
+		if (value < 0) {
+			this.buffer.put((byte) '-');
+			value = -value;
+		}
+
+		int position = this.digits.length;
+		do {
+			this.digits[--position] = (byte) ('0' + value % 10);
+			value /= 10;
+		} while (value > 0);
+
+		this.buffer.put(this.digits, position, this.digits.length - position);
+		return this;
+	}
+
+	public JsonLinesWriter field(byte[] name, boolean value) {
+		fieldName(name);
+		put(value ? TRUE : FALSE);
+		return this;
+	}
+
+	public void flush() {
+		if (this.buffer.position() > 0) {
+			this.buffer.flip();
+			this.sink.write(this.buffer);
+			this.buffer.clear();
+		}
+	}
+
+	public void close() {
+		flush();
+		this.sink.close();
+	}
+
+	private void fieldName(byte[] name) {
+		if (!this.firstField) {
+			put((byte) ',');
+		}
+		this.firstField = false;
+		put(name);
+	}
+
+	private void putChar(char c) {
+		switch (c) {
+		case '"':
+			this.buffer.put((byte) '\\').put((byte) '"');
+			break;
+		case '\\':
+			this.buffer.put((byte) '\\').put((byte) '\\');
+			break;
+		case '\n':
+			this.buffer.put((byte) '\\').put((byte) 'n');
+			break;
+		case '\r':
+			this.buffer.put((byte) '\\').put((byte) 'r');
+			break;
+		case '\t':
+			this.buffer.put((byte) '\\').put((byte) 't');
+			break;
+		default:
+			if (c < 0x20 || (c >= '\uD800' && c <= '\uDFFF')) {
+				// control characters and lone surrogates are escaped.
+				this.buffer.put((byte) '\\').put((byte) 'u')
+						.put(HEX[(c >> 12) & 0xf]).put(HEX[(c >> 8) & 0xf])
+						.put(HEX[(c >> 4) & 0xf]).put(HEX[c & 0xf]);
+			} else {
+				putCodePoint(c);
+			}
+		}
+	}
+
+	private void putCodePoint(int codePoint) {
+		if (codePoint < 0x80) {
+			this.buffer.put((byte) codePoint);
+		} else if (codePoint < 0x800) {
+			this.buffer.put((byte) (0xc0 | (codePoint >> 6)));
+			this.buffer.put((byte) (0x80 | (codePoint & 0x3f)));
+		} else if (codePoint < 0x10000) {
+			this.buffer.put((byte) (0xe0 | (codePoint >> 12)));
+			this.buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+			this.buffer.put((byte) (0x80 | (codePoint & 0x3f)));
+		} else {
+			this.buffer.put((byte) (0xf0 | (codePoint >> 18)));
+			this.buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+			this.buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+			this.buffer.put((byte) (0x80 | (codePoint & 0x3f)));
+		}
+	}
+
+	private void put(byte value) {
+		ensureRemaining(1);
+		this.buffer.put(value);
+	}
+
+	private void put(byte[] value) {
+
+		if (value.length > this.buffer.capacity()) {
+			flush();
+			this.sink.write(ByteBuffer.wrap(value));
+			return;
+		}
+
+		ensureRemaining(value.length);
+		this.buffer.put(value);
+	}
+
+	private void ensureRemaining(int length) {
+		if (this.buffer.remaining() < length) {
+			flush();
+		}
+	}
+
+}
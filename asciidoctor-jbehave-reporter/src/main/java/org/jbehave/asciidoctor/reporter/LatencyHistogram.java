@@ -0,0 +1,102 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed bucket latency histogram in microseconds, recorded without locks or
+ * boxing. Buckets are linear below 16 and split every power of two in 16
+ * beyond, so any value is known to about 6%, up to about 12 days.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_EXPONENT = 40;
+	private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2)
+			* SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong totalMicros = new AtomicLong();
+	private final AtomicLong maxMicros = new AtomicLong();
+
+	public void record(long nanos) {
+
+		long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+
+		this.counts.incrementAndGet(bucketOf(micros));
+		this.count.incrementAndGet();
+		this.totalMicros.addAndGet(micros);
+
+		long max;
+		while (micros > (max = this.maxMicros.get())
+				&& !this.maxMicros.compareAndSet(max, micros)) {
+		}
+	}
+
+	public long count() {
+		return count.get();
+	}
+
+	public long totalMicros() {
+		return totalMicros.get();
+	}
+
+	public long maxMicros() {
+		return maxMicros.get();
+	}
+
+	/**
+	 * Highest value of the bucket holding the given percentile, never above
+	 * the maximum recorded.
+	 */
+	public long percentileMicros(double percentile) {
+
+		long total = count();
+		if (total == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+		long seen = 0;
+
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			seen += this.counts.get(bucket);
+			if (seen >= rank) {
+				return Math.min(highestValueOf(bucket), maxMicros());
+			}
+		}
+
+		return maxMicros();
+	}
+
+	static int bucketOf(long micros) {
+
+		if (micros < SUB_BUCKETS) {
+			return (int) micros;
+		}
+
+		int exponent = Math.min(63 - Long.numberOfLeadingZeros(micros),
+				MAX_EXPONENT);
+		int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS))
+				& (SUB_BUCKETS - 1);
+
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	static long highestValueOf(int bucket) {
+
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+
+		int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long subBucket = bucket % SUB_BUCKETS;
+		long width = 1L << (exponent - SUB_BUCKET_BITS);
+
+		return (1L << exponent) + (subBucket + 1) * width - 1;
+	}
+
+}
@@ -0,0 +1,87 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.net.URL;
+
+import org.jbehave.core.io.StoryLocation;
+import org.jbehave.core.reporters.FilePrintStreamFactory;
+
+/**
+ * Writes the report JBehave would put in the output directory to its place in
+ * a {@link ReportFileLayout} instead, recording it in the manifest.
+ */
+class LayoutPrintStreamFactory extends FilePrintStreamFactory {
+
+	private final FilePrintStreamFactory factory;
+	private final ReportFileLayout layout;
+	private final ReportManifest manifest;
+	private final URL codeLocation;
+
+	private File outputFile;
+	private String relativePath;
+
+	LayoutPrintStreamFactory(FilePrintStreamFactory factory,
+			ReportFileLayout layout, ReportManifest manifest, URL codeLocation) {
+		super(null, factory.configuration());
+		this.factory = factory;
+		this.layout = layout;
+		this.manifest = manifest;
+		this.codeLocation = codeLocation;
+	}
+
+	@Override
+	public PrintStream createPrintStream() {
+
+		File file = outputFile();
+		file.getParentFile().mkdirs();
+
+		try {
+			return new PrintStream(new FileOutputStream(file), true);
+		} catch (FileNotFoundException e) {
+			throw new ReportOutputFailed(file, e);
+		}
+	}
+
+	@Override
+	public File getOutputFile() {
+		return outputFile();
+	}
+
+	@Override
+	protected synchronized File outputFile() {
+
+		if (this.outputFile == null) {
+
+			// JBehave leaves an empty report where it would have written it
+			File flatFile = ReportSinkFactory.outputFileOf(this.factory);
+			flatFile.delete();
+
+			this.relativePath = this.layout.relativePath(flatFile.getName());
+			this.outputFile = new File(flatFile.getParentFile(),
+					this.relativePath);
+			this.manifest.record(flatFile.getName(), this.relativePath);
+		}
+
+		return this.outputFile;
+	}
+
+	/**
+	 * Relative link from this report to the report of another story.
+	 */
+	String linkTo(String storyPath) {
+
+		outputFile();
+
+		FileConfiguration configuration = configuration();
+		String name = configuration.getPathResolver().resolveName(
+				new StoryLocation(this.codeLocation, storyPath),
+				configuration.getExtension());
+
+		return ReportFileLayout.link(this.relativePath,
+				this.layout.relativePath(name));
+	}
+
+}
@@ -0,0 +1,55 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.nio.ByteBuffer;
+
+import org.jbehave.core.reporters.FilePrintStreamFactory;
+
+/**
+ * Creates the report sink of a story on its first write, so a story reported
+ * elsewhere, such as in a {@link DryRunCatalogue}, never opens its own file.
+ */
+class LazyReportSink implements ReportSink {
+
+	private final FilePrintStreamFactory factory;
+	private final AsciidoctorReporterConfiguration configuration;
+	private ReportSink sink;
+
+	LazyReportSink(FilePrintStreamFactory factory,
+			AsciidoctorReporterConfiguration configuration) {
+		this.factory = factory;
+		this.configuration = configuration;
+	}
+
+	private ReportSink sink() {
+		if (this.sink == null) {
+			this.sink = this.configuration.sinkFactory().createReportSink(
+					this.factory, this.configuration);
+		}
+		return this.sink;
+	}
+
+	@Override
+	public void write(CharSequence content) {
+		sink().write(content);
+	}
+
+	@Override
+	public void write(ByteBuffer... content) {
+		sink().write(content);
+	}
+
+	@Override
+	public void flush() {
+		if (this.sink != null) {
+			this.sink.flush();
+		}
+	}
+
+	@Override
+	public void close() {
+		if (this.sink != null) {
+			this.sink.close();
+		}
+	}
+
+}
@@ -0,0 +1,452 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local web page following the run as it goes, served on the loopback
+ * interface by the HTTP server of the JDK.
+ * <p>
+ * Events are coalesced as they arrive, counting steps by outcome and keeping
+ * only the latest step of every story, and sent to browsers as server-sent
+ * events in a batch per interval however many steps run in between. The
+ * reports written so far, complete scenarios when reporting progressively,
+ * are served under <code>/reports/</code>.
+ */
+public class LiveDashboard implements ReportEventSubscriber, Closeable {
+
+	public static final long BATCH_INTERVAL_MILLIS = 250;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final byte[] TYPE = JsonLinesWriter.name("type");
+	private static final byte[] STORY = JsonLinesWriter.name("story");
+	private static final byte[] SCENARIO = JsonLinesWriter.name("scenario");
+	private static final byte[] STEP = JsonLinesWriter.name("step");
+	private static final byte[] OUTCOME = JsonLinesWriter.name("outcome");
+	private static final byte[] RESULT = JsonLinesWriter.name("result");
+	private static final byte[] RUNNING = JsonLinesWriter.name("storiesRunning");
+	private static final byte[] FINISHED = JsonLinesWriter.name("storiesFinished");
+	private static final byte[] FAILED = JsonLinesWriter.name("storiesFailed");
+	private static final byte[][] OUTCOMES = new byte[StepOutcome.values().length][];
+
+	static {
+		for (StepOutcome outcome : StepOutcome.values()) {
+			OUTCOMES[outcome.ordinal()] = JsonLinesWriter.name(outcome.label());
+		}
+	}
+
+	private final File reportDirectory;
+	private final HttpServer server;
+	private final ScheduledExecutorService batches;
+
+	// coalesced since the last batch, guarded by this
+	private final long[] steps = new long[StepOutcome.values().length];
+	private final Map<String, StoryProgress> stories = new LinkedHashMap<String, StoryProgress>();
+	private final Set<String> changed = new LinkedHashSet<String>();
+	private long finished;
+	private long failed;
+	private boolean dirty;
+
+	// guarded by clients
+	private final List<OutputStream> clients = new ArrayList<OutputStream>();
+
+	/**
+	 * Starts serving on the given port of the loopback interface, any free
+	 * one if <code>0</code>.
+	 */
+	public LiveDashboard(int port, File reportDirectory) {
+
+		this.reportDirectory = reportDirectory;
+
+		try {
+			this.server = HttpServer.create(new InetSocketAddress(InetAddress
+					.getByName("127.0.0.1"), port), 0);
+		} catch (IOException e) {
+			throw new ReportOutputFailed("Failed to start live dashboard on port "
+					+ port, e);
+		}
+
+		this.server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				respond(exchange, 200, "text/html; charset=utf-8", PAGE);
+			}
+		});
+		this.server.createContext("/events", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				connect(exchange);
+			}
+		});
+		this.server.createContext("/reports/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				serveReport(exchange);
+			}
+		});
+		this.server.start();
+
+		this.batches = Executors
+				.newSingleThreadScheduledExecutor(new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable,
+								"asciidoctor-jbehave-live-dashboard");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		this.batches.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				broadcast(nextBatch());
+			}
+		}, BATCH_INTERVAL_MILLIS, BATCH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	public String getUrl() {
+		return "http://127.0.0.1:" + this.server.getAddress().getPort() + "/";
+	}
+
+	@Override
+	public void onSubscribe(ReportEventSubscription subscription) {
+		subscription.request(Long.MAX_VALUE);
+	}
+
+	@Override
+	public synchronized void onNext(ReportEvent event) {
+
+		String path = event.getStoryPath();
+		StoryProgress story = this.stories.get(path);
+
+		switch (event.getType()) {
+		case STORY_STARTED:
+			if (!event.isGivenStory()) {
+				this.stories.put(path, new StoryProgress(path));
+				this.changed.add(path);
+			}
+			break;
+		case SCENARIO_STARTED:
+			if (story != null) {
+				story.scenario = event.getScenarioTitle();
+				story.step = null;
+				story.outcome = null;
+				this.changed.add(path);
+			}
+			break;
+		case STEP:
+			this.steps[event.getStepOutcome().ordinal()]++;
+			if (story != null) {
+				story.step = event.getStep();
+				story.outcome = event.getStepOutcome();
+				this.changed.add(path);
+			}
+			break;
+		case STORY_FINISHED:
+			if (story != null) {
+				story.result = event.getResult();
+				this.finished++;
+				if (event.getResult() == StoryResult.FAIL) {
+					this.failed++;
+				}
+				this.changed.add(path);
+			}
+			break;
+		default:
+			return;
+		}
+
+		this.dirty = true;
+	}
+
+	@Override
+	public void onError(Throwable failure) {
+		close();
+	}
+
+	@Override
+	public void onComplete() {
+		close();
+	}
+
+	/**
+	 * Sends what is left and ends every stream before stopping the server.
+	 */
+	@Override
+	public void close() {
+
+		this.batches.shutdownNow();
+		broadcast(nextBatch());
+
+		synchronized (this.clients) {
+			for (OutputStream client : this.clients) {
+				try {
+					client.write("event: complete\ndata:\n\n".getBytes(UTF_8));
+					client.close();
+				} catch (IOException e) {
+				}
+			}
+			this.clients.clear();
+		}
+
+		this.server.stop(0);
+	}
+
+	/**
+	 * The summary and the stories changed since the last batch, every
+	 * in-flight story for a new client, as an event of one JSON record per
+	 * data line.
+	 */
+	synchronized byte[] nextBatch() {
+
+		if (!this.dirty) {
+			return null;
+		}
+
+		byte[] batch = batch(this.changed);
+		this.changed.clear();
+		this.dirty = false;
+
+		for (Iterator<StoryProgress> story = this.stories.values().iterator(); story
+				.hasNext();) {
+			if (story.next().result != null) {
+				story.remove();
+			}
+		}
+
+		return batch;
+	}
+
+	private synchronized byte[] snapshot() {
+		return batch(this.stories.keySet());
+	}
+
+	private byte[] batch(Set<String> paths) {
+
+		InMemoryReportSink records = new InMemoryReportSink();
+		JsonLinesWriter writer = new JsonLinesWriter(records, 4096);
+
+		writer.beginRecord().field(TYPE, "summary");
+		for (StepOutcome outcome : StepOutcome.values()) {
+			writer.field(OUTCOMES[outcome.ordinal()],
+					this.steps[outcome.ordinal()]);
+		}
+		writer.field(RUNNING, this.stories.size() - pendingFinished())
+				.field(FINISHED, this.finished).field(FAILED, this.failed)
+				.endRecord();
+
+		for (String path : paths) {
+			StoryProgress story = this.stories.get(path);
+			if (story != null) {
+				writer.beginRecord().field(TYPE, "story")
+						.field(STORY, story.path)
+						.field(SCENARIO, story.scenario)
+						.field(STEP, story.step)
+						.field(OUTCOME, story.outcome != null ? story.outcome
+								.label() : null)
+						.field(RESULT, story.result != null ? story.result
+								.name() : null).endRecord();
+			}
+		}
+		writer.flush();
+
+		StringBuilder event = new StringBuilder("event: batch\n");
+		for (String record : records.toString().split("\n")) {
+			event.append("data: ").append(record).append('\n');
+		}
+		return event.append('\n').toString().getBytes(UTF_8);
+	}
+
+	private long pendingFinished() {
+		long pending = 0;
+		for (StoryProgress story : this.stories.values()) {
+			if (story.result != null) {
+				pending++;
+			}
+		}
+		return pending;
+	}
+
+	private void broadcast(byte[] batch) {
+
+		if (batch == null) {
+			return;
+		}
+
+		synchronized (this.clients) {
+			for (Iterator<OutputStream> clients = this.clients.iterator(); clients
+					.hasNext();) {
+				OutputStream client = clients.next();
+				try {
+					client.write(batch);
+					client.flush();
+				} catch (IOException e) {
+					// the browser went away
+					clients.remove();
+					closeQuietly(client);
+				}
+			}
+		}
+	}
+
+	private void connect(HttpExchange exchange) throws IOException {
+
+		exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+		exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+		exchange.sendResponseHeaders(200, 0);
+
+		OutputStream client = exchange.getResponseBody();
+
+		synchronized (this.clients) {
+			client.write(snapshot());
+			client.flush();
+			this.clients.add(client);
+		}
+	}
+
+	private void serveReport(HttpExchange exchange) throws IOException {
+
+		String path = exchange.getRequestURI().getPath()
+				.substring("/reports/".length());
+
+		if (this.reportDirectory == null
+				|| Arrays.asList(path.split("/")).contains("..")) {
+			respond(exchange, 404, "text/plain; charset=utf-8", "Not found");
+			return;
+		}
+
+		File report = new File(this.reportDirectory, path);
+
+		if (report.isDirectory()) {
+			StringBuilder listing = new StringBuilder("<ul>");
+			String[] names = report.list();
+			Arrays.sort(names);
+			for (String name : names) {
+				listing.append("<li><a href=\"").append(name)
+						.append(new File(report, name).isDirectory() ? "/" : "")
+						.append("\">").append(SvgChartWriter.escape(name))
+						.append("</a></li>");
+			}
+			respond(exchange, 200, "text/html; charset=utf-8",
+					listing.append("</ul>").toString());
+			return;
+		}
+
+		if (!report.isFile()) {
+			respond(exchange, 404, "text/plain; charset=utf-8", "Not found");
+			return;
+		}
+
+		exchange.getResponseHeaders().set("Content-Type",
+				report.getName().endsWith(".svg") ? "image/svg+xml"
+						: "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(200, report.length());
+
+		InputStream input = new FileInputStream(report);
+		OutputStream output = exchange.getResponseBody();
+		try {
+			byte[] buffer = new byte[8192];
+			long left = report.length();
+			int read;
+			// a report being written may grow past the announced length
+			while (left > 0
+					&& (read = input.read(buffer, 0,
+							(int) Math.min(buffer.length, left))) > -1) {
+				output.write(buffer, 0, read);
+				left -= read;
+			}
+		} finally {
+			input.close();
+			output.close();
+		}
+	}
+
+	private static void respond(HttpExchange exchange, int status,
+			String contentType, String body) throws IOException {
+
+		byte[] content = body.getBytes(UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(status, content.length);
+
+		OutputStream output = exchange.getResponseBody();
+		try {
+			output.write(content);
+		} finally {
+			output.close();
+		}
+	}
+
+	private static void closeQuietly(OutputStream output) {
+		try {
+			output.close();
+		} catch (IOException e) {
+		}
+	}
+
+	private static final class StoryProgress {
+
+		private final String path;
+		private String scenario;
+		private String step;
+		private StepOutcome outcome;
+		private StoryResult result;
+
+		private StoryProgress(String path) {
+			this.path = path;
+		}
+	}
+
+	private static final String PAGE = "<!DOCTYPE html>\n"
+			+ "<html><head><meta charset=\"utf-8\"><title>JBehave live</title>\n"
+			+ "<style>body{font-family:sans-serif;margin:2em}td{padding:2px 8px}"
+			+ ".failed,.FAIL{color:#d9534f}.pending,.SUCCESS_WITH_WARNING{color:#f0ad4e}</style>\n"
+			+ "</head><body><h1>JBehave live</h1><p id=\"summary\">Waiting for stories...</p>\n"
+			+ "<table><thead><tr><th>Story</th><th>Scenario</th><th>Step</th><th>Outcome</th></tr></thead>"
+			+ "<tbody id=\"stories\"></tbody></table>\n"
+			+ "<p><a href=\"/reports/\">Reports so far</a></p>\n"
+			+ "<script>\n"
+			+ "var rows = {};\n"
+			+ "var events = new EventSource('/events');\n"
+			+ "function cell(row, i, text, style) { row.cells[i].textContent = text || ''; row.cells[i].className = style || ''; }\n"
+			+ "events.addEventListener('batch', function (e) {\n"
+			+ "  e.data.split('\\n').forEach(function (line) {\n"
+			+ "    var r = JSON.parse(line);\n"
+			+ "    if (r.type === 'summary') {\n"
+			+ "      document.getElementById('summary').textContent = 'Stories: ' + r.storiesRunning + ' running, '\n"
+			+ "        + r.storiesFinished + ' finished, ' + r.storiesFailed + ' failed. Steps: ' + r.successful\n"
+			+ "        + ' successful, ' + r.failed + ' failed, ' + r.pending + ' pending, ' + r['not-performed'] + ' not performed.';\n"
+			+ "      return;\n"
+			+ "    }\n"
+			+ "    var row = rows[r.story];\n"
+			+ "    if (!row) { row = rows[r.story] = document.getElementById('stories').insertRow(-1); for (var i = 0; i < 4; i++) row.insertCell(-1); }\n"
+			+ "    cell(row, 0, r.story); cell(row, 1, r.scenario); cell(row, 2, r.step);\n"
+			+ "    cell(row, 3, r.result || r.outcome, r.result || r.outcome);\n"
+			+ "  });\n"
+			+ "});\n"
+			+ "events.addEventListener('complete', function () { events.close(); });\n"
+			+ "</script></body></html>\n";
+
+}
@@ -0,0 +1,19 @@
+package org.jbehave.asciidoctor.reporter;
+
+import org.jbehave.core.reporters.StoryReporterBuilder;
+
+/**
+ * When stories run in several threads JBehave records every reporter
+ * callback and replays them once the story has finished, so anything timed
+ * by a reporter measures the replay instead of the steps. This builder keeps
+ * callbacks live, which is safe for reporters that write one output per story
+ * such as {@link AsciidoctorStoryReporter}, but interleaves console output.
+ */
+public class LiveStoryReporterBuilder extends StoryReporterBuilder {
+
+	@Override
+	public boolean multiThreading() {
+		return false;
+	}
+
+}
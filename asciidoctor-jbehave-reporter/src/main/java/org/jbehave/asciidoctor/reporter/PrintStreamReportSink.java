@@ -0,0 +1,81 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+public class PrintStreamReportSink implements ReportSink {
+
+	private static final int COPY_BUFFER_SIZE = 8192;
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final PrintStream printer;
+	private final FlushPolicy flushPolicy;
+
+	private byte[] copyBuffer;
+
+	public PrintStreamReportSink(PrintStream printer) {
+		this(printer, FlushPolicy.ON_BUFFER_FULL);
+	}
+
+	public PrintStreamReportSink(PrintStream printer, FlushPolicy flushPolicy) {
+		this.printer = printer;
+		this.flushPolicy = flushPolicy;
+	}
+
+	@Override
+	public void write(CharSequence content) {
+		// reports are UTF-8 whatever the platform charset the stream prints in
+		byte[] bytes = content.toString().getBytes(UTF_8);
+		this.printer.write(bytes, 0, bytes.length);
+		flushIfRequired();
+	}
+
+	@Override
+	public void write(ByteBuffer... content) {
+
+		for (ByteBuffer buffer : content) {
+
+			if (buffer.hasArray()) {
+				this.printer.write(buffer.array(), buffer.arrayOffset()
+						+ buffer.position(), buffer.remaining());
+				buffer.position(buffer.limit());
+			} else {
+				copyTo(buffer);
+			}
+		}
+
+		flushIfRequired();
+	}
+
+	private void copyTo(ByteBuffer buffer) {
+
+		if (this.copyBuffer == null) {
+			this.copyBuffer = new byte[COPY_BUFFER_SIZE];
+		}
+
+		while (buffer.hasRemaining()) {
+			int length = Math.min(buffer.remaining(), this.copyBuffer.length);
+			buffer.get(this.copyBuffer, 0, length);
+			this.printer.write(this.copyBuffer, 0, length);
+		}
+	}
+
+	private void flushIfRequired() {
+		if (this.flushPolicy == FlushPolicy.ON_WRITE) {
+			this.printer.flush();
+		}
+	}
+
+	@Override
+	public void flush() {
+		this.printer.flush();
+	}
+
+	@Override
+	public void close() {
+		// the stream belongs to whoever created it, so it is only flushed.
+		flush();
+	}
+
+}
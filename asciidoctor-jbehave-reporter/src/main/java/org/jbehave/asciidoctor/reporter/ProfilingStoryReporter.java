@@ -0,0 +1,318 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static org.jbehave.asciidoctor.reporter.ReportFragment.REPORTING_OVERHEAD_CALLBACK;
+import static org.jbehave.asciidoctor.reporter.ReportFragment.REPORTING_OVERHEAD_END;
+import static org.jbehave.asciidoctor.reporter.ReportFragment.REPORTING_OVERHEAD_START;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.jbehave.core.model.ExamplesTable;
+import org.jbehave.core.model.GivenStories;
+import org.jbehave.core.model.Lifecycle;
+import org.jbehave.core.model.Meta;
+import org.jbehave.core.model.Narrative;
+import org.jbehave.core.model.OutcomesTable;
+import org.jbehave.core.model.Scenario;
+import org.jbehave.core.model.Story;
+import org.jbehave.core.model.StoryDuration;
+import org.jbehave.core.reporters.StoryReporter;
+
+/**
+ * Measures the time and the bytes allocated by each callback of an
+ * {@link AsciidoctorStoryReporter} and appends a reporting overhead table to
+ * every story, and the suite totals to the <code>AfterStories</code> report.
+ * The table of a story is appended once its report is written, so it counts
+ * <code>afterStory</code>, which writes the whole story out.
+ * <p>
+ * The wall time of a story is only meaningful when callbacks are not delayed
+ * by JBehave, see {@link LiveStoryReporterBuilder}.
+ */
+public class ProfilingStoryReporter implements StoryReporter {
+
+	static final String AFTER_STORIES = "AfterStories";
+
+	private static final String NOT_AVAILABLE = "n/a";
+
+	private final AsciidoctorStoryReporter delegate;
+	private final ReportingOverheadProfiler profiler;
+
+	private ReportingOverhead story = new ReportingOverhead();
+	private long storyStart;
+	private boolean afterStories;
+
+	private long callbackStart;
+	private long callbackStartBytes;
+
+	public ProfilingStoryReporter(AsciidoctorStoryReporter delegate,
+			ReportingOverheadProfiler profiler) {
+		this.delegate = delegate;
+		this.profiler = profiler;
+	}
+
+	private void enter() {
+		this.callbackStartBytes = this.profiler.currentThreadAllocatedBytes();
+		this.callbackStart = System.nanoTime();
+	}
+
+	private void exit(ReporterCallback callback) {
+
+		long elapsed = System.nanoTime() - this.callbackStart;
+		long allocated = ReportingOverhead.UNSUPPORTED;
+
+		if (this.callbackStartBytes != ReportingOverhead.UNSUPPORTED) {
+			allocated = this.profiler.currentThreadAllocatedBytes()
+					- this.callbackStartBytes;
+		}
+
+		this.story.record(callback, elapsed, allocated);
+	}
+
+	@Override
+	public void beforeStory(Story story, boolean givenStory) {
+
+		if (!givenStory) {
+			this.story = new ReportingOverhead();
+			this.storyStart = System.nanoTime();
+			this.afterStories = AFTER_STORIES.equals(story.getPath());
+		}
+
+		enter();
+		this.delegate.beforeStory(story, givenStory);
+		exit(ReporterCallback.BEFORE_STORY);
+	}
+
+	@Override
+	public void afterStory(boolean givenStory) {
+
+		// the skeleton of a dry run goes to the catalogue, not a report to
+		// append to
+		boolean skeleton = this.delegate.renderingSkeleton();
+
+		if (!givenStory && skeleton) {
+			renderOverheads();
+		}
+
+		enter();
+		this.delegate.afterStory(givenStory);
+		exit(ReporterCallback.AFTER_STORY);
+
+		if (!givenStory && !skeleton) {
+			renderOverheads();
+			this.delegate.appendToStory();
+		}
+
+		if (!givenStory) {
+			this.profiler.storyProfiled(this.story);
+		}
+	}
+
+	private void renderOverheads() {
+
+		this.story.recordStory(System.nanoTime() - this.storyStart);
+		renderOverhead("Reporting Overhead", this.story);
+
+		if (this.afterStories) {
+			ReportingOverhead suite = this.profiler.suite();
+			renderOverhead("Suite Reporting Overhead (" + suite.stories()
+					+ " stories)", suite);
+		}
+	}
+
+	private void renderOverhead(String title, ReportingOverhead overhead) {
+
+		this.delegate.render(REPORTING_OVERHEAD_START, title);
+
+		long calls = 0;
+
+		for (ReporterCallback callback : ReporterCallback.values()) {
+
+			if (overhead.calls(callback) > 0) {
+				calls += overhead.calls(callback);
+				this.delegate.render(REPORTING_OVERHEAD_CALLBACK,
+						callback.methodName(),
+						Long.toString(overhead.calls(callback)),
+						millis(overhead.nanos(callback)),
+						kibibytes(overhead.allocatedBytes(callback)));
+			}
+		}
+
+		this.delegate.render(REPORTING_OVERHEAD_END, Long.toString(calls),
+				millis(overhead.reportingNanos()),
+				millis(overhead.wallNanos()),
+				String.format(Locale.ENGLISH, "%.2f %%", overhead.share() * 100),
+				kibibytes(overhead.reportingAllocatedBytes()));
+	}
+
+	private String millis(long nanos) {
+		return String.format(Locale.ENGLISH, "%.3f", nanos / 1000000d);
+	}
+
+	private String kibibytes(long bytes) {
+		return bytes == ReportingOverhead.UNSUPPORTED ? NOT_AVAILABLE : String
+				.format(Locale.ENGLISH, "%.1f", bytes / 1024d);
+	}
+
+	@Override
+	public void storyNotAllowed(Story story, String filter) {
+		enter();
+		this.delegate.storyNotAllowed(story, filter);
+		exit(ReporterCallback.STORY_NOT_ALLOWED);
+	}
+
+	@Override
+	public void storyCancelled(Story story, StoryDuration storyDuration) {
+		enter();
+		this.delegate.storyCancelled(story, storyDuration);
+		exit(ReporterCallback.STORY_CANCELLED);
+	}
+
+	@Override
+	public void narrative(Narrative narrative) {
+		enter();
+		this.delegate.narrative(narrative);
+		exit(ReporterCallback.NARRATIVE);
+	}
+
+	@Override
+	public void lifecyle(Lifecycle lifecycle) {
+		enter();
+		this.delegate.lifecyle(lifecycle);
+		exit(ReporterCallback.LIFECYCLE);
+	}
+
+	@Override
+	public void scenarioNotAllowed(Scenario scenario, String filter) {
+		enter();
+		this.delegate.scenarioNotAllowed(scenario, filter);
+		exit(ReporterCallback.SCENARIO_NOT_ALLOWED);
+	}
+
+	@Override
+	public void beforeScenario(String scenarioTitle) {
+		enter();
+		this.delegate.beforeScenario(scenarioTitle);
+		exit(ReporterCallback.BEFORE_SCENARIO);
+	}
+
+	@Override
+	public void scenarioMeta(Meta meta) {
+		enter();
+		this.delegate.scenarioMeta(meta);
+		exit(ReporterCallback.SCENARIO_META);
+	}
+
+	@Override
+	public void afterScenario() {
+		enter();
+		this.delegate.afterScenario();
+		exit(ReporterCallback.AFTER_SCENARIO);
+	}
+
+	@Override
+	public void givenStories(GivenStories givenStories) {
+		enter();
+		this.delegate.givenStories(givenStories);
+		exit(ReporterCallback.GIVEN_STORIES);
+	}
+
+	@Override
+	public void givenStories(List<String> storyPaths) {
+		enter();
+		this.delegate.givenStories(storyPaths);
+		exit(ReporterCallback.GIVEN_STORIES);
+	}
+
+	@Override
+	public void beforeExamples(List<String> steps, ExamplesTable table) {
+		enter();
+		this.delegate.beforeExamples(steps, table);
+		exit(ReporterCallback.BEFORE_EXAMPLES);
+	}
+
+	@Override
+	public void example(Map<String, String> tableRow) {
+		enter();
+		this.delegate.example(tableRow);
+		exit(ReporterCallback.EXAMPLE);
+	}
+
+	@Override
+	public void afterExamples() {
+		enter();
+		this.delegate.afterExamples();
+		exit(ReporterCallback.AFTER_EXAMPLES);
+	}
+
+	@Override
+	public void beforeStep(String step) {
+		enter();
+		this.delegate.beforeStep(step);
+		exit(ReporterCallback.BEFORE_STEP);
+	}
+
+	@Override
+	public void successful(String step) {
+		enter();
+		this.delegate.successful(step);
+		exit(ReporterCallback.SUCCESSFUL);
+	}
+
+	@Override
+	public void ignorable(String step) {
+		enter();
+		this.delegate.ignorable(step);
+		exit(ReporterCallback.IGNORABLE);
+	}
+
+	@Override
+	public void pending(String step) {
+		enter();
+		this.delegate.pending(step);
+		exit(ReporterCallback.PENDING);
+	}
+
+	@Override
+	public void notPerformed(String step) {
+		enter();
+		this.delegate.notPerformed(step);
+		exit(ReporterCallback.NOT_PERFORMED);
+	}
+
+	@Override
+	public void failed(String step, Throwable cause) {
+		enter();
+		this.delegate.failed(step, cause);
+		exit(ReporterCallback.FAILED);
+	}
+
+	@Override
+	public void failedOutcomes(String step, OutcomesTable table) {
+		enter();
+		this.delegate.failedOutcomes(step, table);
+		exit(ReporterCallback.FAILED_OUTCOMES);
+	}
+
+	@Override
+	public void restarted(String step, Throwable cause) {
+		enter();
+		this.delegate.restarted(step, cause);
+		exit(ReporterCallback.RESTARTED);
+	}
+
+	@Override
+	public void dryRun() {
+		enter();
+		this.delegate.dryRun();
+		exit(ReporterCallback.DRY_RUN);
+	}
+
+	@Override
+	public void pendingMethods(List<String> methods) {
+		enter();
+		this.delegate.pendingMethods(methods);
+		exit(ReporterCallback.PENDING_METHODS);
+	}
+
+}
@@ -0,0 +1,108 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps a small <code>status.adoc</code> with the story, scenario and step
+ * every in-flight story is at. The file is replaced through an
+ * {@link AsideFile}, so readers never see it half written.
+ */
+public class ProgressStatus implements ReportListener {
+
+	public static final String STATUS_FILE = "status.adoc";
+	public static final long DEFAULT_MIN_INTERVAL_MILLIS = 1000;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final File statusFile;
+	private final long minIntervalMillis;
+	private final FragmentTemplates templates;
+	private final Map<String, String[]> inFlight = new LinkedHashMap<String, String[]>();
+
+	private long lastWrite;
+
+	public ProgressStatus(File statusFile) {
+		this(statusFile, DEFAULT_MIN_INTERVAL_MILLIS, FragmentTemplates
+				.defaults());
+	}
+
+	public ProgressStatus(File statusFile, long minIntervalMillis,
+			FragmentTemplates templates) {
+		this.statusFile = statusFile;
+		this.minIntervalMillis = minIntervalMillis;
+		this.templates = templates;
+	}
+
+	public File getStatusFile() {
+		return statusFile;
+	}
+
+	/**
+	 * Stories and their ends are always written, steps at most once per
+	 * interval so a fast run does not turn into a rename storm.
+	 */
+	@Override
+	public synchronized void onEvent(ReportEvent event) {
+
+		String path = event.getStoryPath();
+
+		switch (event.getType()) {
+		case STORY_STARTED:
+			this.inFlight.put(path, new String[] { path, "", "", "" });
+			write();
+			return;
+		case STORY_FINISHED:
+			this.inFlight.remove(path);
+			write();
+			return;
+		case SCENARIO_STARTED:
+			update(path, event.getScenarioTitle(), "", "");
+			break;
+		case STEP:
+			update(path, event.getScenarioTitle(), event.getStep(), event
+					.getStepOutcome().label());
+			break;
+		default:
+			return;
+		}
+
+		if (event.getTimestamp() - this.lastWrite >= this.minIntervalMillis) {
+			write();
+		}
+	}
+
+	private void update(String path, String scenario, String step,
+			String outcome) {
+		String[] status = this.inFlight.get(path);
+		if (status != null) {
+			status[1] = scenario;
+			status[2] = step;
+			status[3] = outcome;
+		}
+	}
+
+	private void write() {
+
+		StringBuilder status = new StringBuilder(this.templates.get(
+				ReportFragment.STATUS_START).render(
+				new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date())));
+
+		FragmentTemplate story = this.templates
+				.get(ReportFragment.STATUS_STORY);
+		for (String[] values : this.inFlight.values()) {
+			status.append(story.render(values));
+		}
+
+		status.append(this.templates.get(ReportFragment.STATUS_END).render());
+
+		AsideFile.write(this.statusFile, status.toString().getBytes(UTF_8));
+
+		this.lastWrite = System.currentTimeMillis();
+	}
+
+}
@@ -0,0 +1,119 @@
+package org.jbehave.asciidoctor.reporter;
+
+/**
+ * Normalized story, scenario or step event published by the
+ * {@link AsciidoctorStoryReporter} to its {@link ReportListener}s.
+ */
+public final class ReportEvent {
+
+	public enum Type {
+		STORY_STARTED, SCENARIO_STARTED, STEP, SCENARIO_FINISHED, STORY_FINISHED;
+	}
+
+	private final Type type;
+	private final long timestamp;
+	private final String storyPath;
+	private final boolean givenStory;
+	private final String scenarioTitle;
+	private final String step;
+	private final StepOutcome stepOutcome;
+	private final StoryResult result;
+	private final long durationNanos;
+	private final String failureFingerprint;
+
+	private ReportEvent(Type type, String storyPath, boolean givenStory,
+			String scenarioTitle, String step, StepOutcome stepOutcome,
+			StoryResult result, long durationNanos, String failureFingerprint) {
+		this.type = type;
+		this.timestamp = System.currentTimeMillis();
+		this.storyPath = storyPath;
+		this.givenStory = givenStory;
+		this.scenarioTitle = scenarioTitle;
+		this.step = step;
+		this.stepOutcome = stepOutcome;
+		this.result = result;
+		this.durationNanos = durationNanos;
+		this.failureFingerprint = failureFingerprint;
+	}
+
+	public static ReportEvent storyStarted(String storyPath, boolean givenStory) {
+		return new ReportEvent(Type.STORY_STARTED, storyPath, givenStory, null,
+				null, null, null, 0, null);
+	}
+
+	public static ReportEvent scenarioStarted(String storyPath,
+			boolean givenStory, String scenarioTitle) {
+		return new ReportEvent(Type.SCENARIO_STARTED, storyPath, givenStory,
+				scenarioTitle, null, null, null, 0, null);
+	}
+
+	public static ReportEvent step(String storyPath, boolean givenStory,
+			String scenarioTitle, String step, StepOutcome outcome,
+			long durationNanos, String failureFingerprint) {
+		return new ReportEvent(Type.STEP, storyPath, givenStory, scenarioTitle,
+				step, outcome, outcome.result(), durationNanos,
+				failureFingerprint);
+	}
+
+	public static ReportEvent scenarioFinished(String storyPath,
+			boolean givenStory, String scenarioTitle, StoryResult result,
+			long durationNanos) {
+		return new ReportEvent(Type.SCENARIO_FINISHED, storyPath, givenStory,
+				scenarioTitle, null, null, result, durationNanos, null);
+	}
+
+	public static ReportEvent storyFinished(String storyPath,
+			boolean givenStory, StoryResult result, long durationNanos) {
+		return new ReportEvent(Type.STORY_FINISHED, storyPath, givenStory,
+				null, null, null, result, durationNanos, null);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public String getStoryPath() {
+		return storyPath;
+	}
+
+	public boolean isGivenStory() {
+		return givenStory;
+	}
+
+	public String getScenarioTitle() {
+		return scenarioTitle;
+	}
+
+	public String getStep() {
+		return step;
+	}
+
+	public StepOutcome getStepOutcome() {
+		return stepOutcome;
+	}
+
+	public StoryResult getResult() {
+		return result;
+	}
+
+	public long getDurationNanos() {
+		return durationNanos;
+	}
+
+	public String getFailureFingerprint() {
+		return failureFingerprint;
+	}
+
+	@Override
+	public String toString() {
+		return "ReportEvent[" + type + "," + storyPath
+				+ (scenarioTitle != null ? "," + scenarioTitle : "")
+				+ (step != null ? "," + step : "")
+				+ (result != null ? "," + result : "") + "]";
+	}
+
+}
@@ -0,0 +1,228 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the events of every reporter it is registered with, see
+ * {@link AsciidoctorReporterConfiguration#withListener(ReportListener)}, to
+ * any number of subscribers sharing the one reporter pass.
+ * <p>
+ * Every subscriber has a bounded buffer and is delivered to on an executor as
+ * it requests events, so a slow subscriber never holds up the thread running
+ * the stories: once its buffer is full further events are dropped and
+ * counted. Subscribers are completed when the <code>AfterStories</code>
+ * report finishes or the publisher is closed.
+ */
+public class ReportEventPublisher implements ReportListener, Closeable {
+
+	public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+	private final Executor executor;
+	private final int defaultBufferSize;
+	private final List<BufferedSubscription> subscriptions = new CopyOnWriteArrayList<BufferedSubscription>();
+	private volatile boolean closed;
+
+	public ReportEventPublisher() {
+		this(Executors.newCachedThreadPool(new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable,
+						"asciidoctor-jbehave-event-publisher-"
+								+ count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		}), DEFAULT_BUFFER_SIZE);
+	}
+
+	public ReportEventPublisher(Executor executor, int defaultBufferSize) {
+		this.executor = executor;
+		this.defaultBufferSize = defaultBufferSize;
+	}
+
+	public void subscribe(ReportEventSubscriber subscriber) {
+		subscribe(subscriber, this.defaultBufferSize);
+	}
+
+	public void subscribe(ReportEventSubscriber subscriber, int bufferSize) {
+
+		BufferedSubscription subscription = new BufferedSubscription(
+				subscriber, bufferSize);
+		this.subscriptions.add(subscription);
+
+		if (this.closed) {
+			subscription.complete();
+		}
+		subscription.signal();
+	}
+
+	public int subscribers() {
+		return this.subscriptions.size();
+	}
+
+	@Override
+	public void onEvent(ReportEvent event) {
+
+		for (BufferedSubscription subscription : this.subscriptions) {
+			subscription.offer(event);
+		}
+
+		if (event.getType() == ReportEvent.Type.STORY_FINISHED
+				&& ProfilingStoryReporter.AFTER_STORIES.equals(event
+						.getStoryPath())) {
+			close();
+		}
+	}
+
+	@Override
+	public void close() {
+
+		this.closed = true;
+
+		for (BufferedSubscription subscription : this.subscriptions) {
+			subscription.complete();
+		}
+	}
+
+	private final class BufferedSubscription implements
+			ReportEventSubscription, Runnable {
+
+		private final ReportEventSubscriber subscriber;
+		private final Queue<ReportEvent> buffer;
+		private final AtomicLong demand = new AtomicLong();
+		private final AtomicLong dropped = new AtomicLong();
+		// signals not yet seen by the delivery loop, only one loop runs at once
+		private final AtomicInteger pending = new AtomicInteger();
+		private boolean subscribed;
+		private volatile boolean completed;
+		private volatile boolean cancelled;
+		private volatile Throwable failure;
+
+		private BufferedSubscription(ReportEventSubscriber subscriber,
+				int bufferSize) {
+			this.subscriber = subscriber;
+			this.buffer = new ArrayBlockingQueue<ReportEvent>(bufferSize);
+		}
+
+		private void offer(ReportEvent event) {
+			if (this.cancelled || this.completed) {
+				return;
+			}
+			if (!this.buffer.offer(event)) {
+				this.dropped.incrementAndGet();
+			}
+			signal();
+		}
+
+		private void complete() {
+			this.completed = true;
+			signal();
+		}
+
+		private void signal() {
+			if (this.pending.getAndIncrement() == 0) {
+				executor.execute(this);
+			}
+		}
+
+		@Override
+		public void request(long events) {
+
+			if (events <= 0) {
+				this.failure = new IllegalArgumentException(
+						"Non positive number of events requested: " + events);
+			} else {
+				long current;
+				do {
+					current = this.demand.get();
+				} while (!this.demand.compareAndSet(current, current
+						+ events < 0 ? Long.MAX_VALUE : current + events));
+			}
+			signal();
+		}
+
+		@Override
+		public void cancel() {
+			this.cancelled = true;
+			subscriptions.remove(this);
+			signal();
+		}
+
+		@Override
+		public long dropped() {
+			return this.dropped.get();
+		}
+
+		@Override
+		public void run() {
+
+			int missed = 1;
+
+			do {
+				if (!this.subscribed) {
+					this.subscribed = true;
+					this.subscriber.onSubscribe(this);
+				}
+
+				if (this.cancelled) {
+					this.buffer.clear();
+				} else if (this.failure != null) {
+					terminate(this.failure);
+				} else {
+					deliver();
+				}
+
+				missed = this.pending.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		private void deliver() {
+
+			long requested = this.demand.get();
+			long delivered = 0;
+
+			while (delivered < requested && !this.cancelled) {
+				ReportEvent event = this.buffer.poll();
+				if (event == null) {
+					break;
+				}
+				try {
+					this.subscriber.onNext(event);
+				} catch (Throwable failure) {
+					terminate(failure);
+					return;
+				}
+				delivered++;
+			}
+
+			if (requested != Long.MAX_VALUE && delivered > 0) {
+				this.demand.addAndGet(-delivered);
+			}
+
+			if (this.completed && this.buffer.isEmpty() && !this.cancelled) {
+				this.cancelled = true;
+				subscriptions.remove(this);
+				this.subscriber.onComplete();
+			}
+		}
+
+		private void terminate(Throwable failure) {
+			this.cancelled = true;
+			subscriptions.remove(this);
+			this.buffer.clear();
+			this.subscriber.onError(failure);
+		}
+	}
+
+}
@@ -0,0 +1,26 @@
+package org.jbehave.asciidoctor.reporter;
+
+/**
+ * Consumer of the events of a {@link ReportEventPublisher}, following the
+ * reactive streams contract: nothing is delivered before events are
+ * {@link ReportEventSubscription#request(long) requested}, and signals to a
+ * subscriber never overlap.
+ */
+public interface ReportEventSubscriber {
+
+	void onSubscribe(ReportEventSubscription subscription);
+
+	void onNext(ReportEvent event);
+
+	/**
+	 * Terminal, the subscriber threw on an event or requested a non positive
+	 * number of them.
+	 */
+	void onError(Throwable failure);
+
+	/**
+	 * Terminal, the suite has finished and every buffered event was delivered.
+	 */
+	void onComplete();
+
+}
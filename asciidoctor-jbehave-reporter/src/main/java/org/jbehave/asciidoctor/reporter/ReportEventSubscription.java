@@ -0,0 +1,14 @@
+package org.jbehave.asciidoctor.reporter;
+
+public interface ReportEventSubscription {
+
+	void request(long events);
+
+	void cancel();
+
+	/**
+	 * Events the subscriber missed because its buffer was full.
+	 */
+	long dropped();
+
+}
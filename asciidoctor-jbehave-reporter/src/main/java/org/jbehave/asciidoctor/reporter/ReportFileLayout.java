@@ -0,0 +1,116 @@
+package org.jbehave.asciidoctor.reporter;
+
+/**
+ * Where story reports are placed below the output directory, relative to it.
+ * Suites with thousands of stories fan them out so no directory holds them
+ * all.
+ */
+public abstract class ReportFileLayout {
+
+	public static final ReportFileLayout FLAT = new ReportFileLayout() {
+
+		@Override
+		public String relativePath(String fileName) {
+			return fileName;
+		}
+	};
+
+	/**
+	 * <code>org.acme.login.adoc</code> is written as
+	 * <code>org/acme/login.adoc</code>.
+	 */
+	public static final ReportFileLayout PACKAGE = new ReportFileLayout() {
+
+		@Override
+		public String relativePath(String fileName) {
+
+			int extension = fileName.lastIndexOf('.');
+			int name = extension > 0 ? fileName.lastIndexOf('.', extension - 1)
+					: -1;
+
+			if (name < 0) {
+				return fileName;
+			}
+
+			return fileName.substring(0, name).replace('.', '/') + "/"
+					+ fileName.substring(name + 1);
+		}
+	};
+
+	public static final ReportFileLayout HASHED = hashed(2);
+
+	/**
+	 * Every level is one of 256 directories picked by the hash of the file
+	 * name, so 20k stories over two levels leave a few per directory.
+	 */
+	public static ReportFileLayout hashed(final int depth) {
+
+		if (depth < 1 || depth > 4) {
+			throw new IllegalArgumentException(
+					"Hashed layout depth must be between 1 and 4 but was "
+							+ depth);
+		}
+
+		return new ReportFileLayout() {
+
+			@Override
+			public String relativePath(String fileName) {
+
+				int hash = spread(fileName.hashCode());
+				StringBuilder path = new StringBuilder(fileName.length() + 3
+						* depth);
+
+				for (int level = 0; level < depth; level++) {
+					int directory = (hash >>> (8 * level)) & 0xff;
+					path.append(HEX[directory >>> 4]).append(HEX[directory & 0xf])
+							.append('/');
+				}
+
+				return path.append(fileName).toString();
+			}
+		};
+	}
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	public abstract String relativePath(String fileName);
+
+	// names differing in their last characters only must still spread out
+	private static int spread(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Relative link from the report at one relative path to the report at
+	 * another, both written with '/' separators.
+	 */
+	public static String link(String fromPath, String toPath) {
+
+		String[] from = fromPath.split("/");
+		String[] to = toPath.split("/");
+
+		int common = 0;
+		while (common < from.length - 1 && common < to.length - 1
+				&& from[common].equals(to[common])) {
+			common++;
+		}
+
+		StringBuilder link = new StringBuilder();
+		for (int i = common; i < from.length - 1; i++) {
+			link.append("../");
+		}
+		for (int i = common; i < to.length; i++) {
+			link.append(to[i]);
+			if (i < to.length - 1) {
+				link.append('/');
+			}
+		}
+
+		return link.toString();
+	}
+
+}
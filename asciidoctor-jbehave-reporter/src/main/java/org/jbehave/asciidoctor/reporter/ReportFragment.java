@@ -0,0 +1,118 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Every piece of AsciiDoc the reporter emits, together with the names of the
+ * slots its template may refer to as <code>${name}</code>.
+ */
+public enum ReportFragment {
+
+	STORY("anchor", "section", "name", "storyResult"),
+	GIVEN_STORY("anchor", "section", "name"),
+	GIVEN_STORY_END,
+	STORY_RESULT_TRAILER("storyResult"),
+	STORY_SUCCESS,
+	STORY_SUCCESS_WITH_WARNING,
+	STORY_FAILED,
+	STATISTICS_START,
+	STATISTICS_SCENARIO("scenario", "successful", "ignorable", "pending",
+			"notPerformed", "failed", "examples", "time"),
+	STATISTICS_END("scenario", "successful", "ignorable", "pending",
+			"notPerformed", "failed", "examples", "time"),
+	DESCRIPTION("description"),
+	META_START,
+	META_PROPERTY("name", "value"),
+	META_END,
+	NARRATIVE_START,
+	NARRATIVE_IN_ORDER_TO("value"),
+	NARRATIVE_AS_A("value"),
+	NARRATIVE_I_WANT_TO("value"),
+	NARRATIVE_END,
+	LIFECYCLE_BEFORE_START,
+	LIFECYCLE_AFTER_START,
+	LIFECYCLE_STEP("keyword", "text"),
+	LIFECYCLE_END,
+	GIVEN_STORIES_START,
+	GIVEN_STORIES_STORY("identifier", "path", "anchor"),
+	GIVEN_STORIES_END,
+	SCENARIO("section", "title"),
+	EXAMPLES_START,
+	EXAMPLES_STEPS_START,
+	EXAMPLES_STEP("step"),
+	EXAMPLES_STEPS_END,
+	EXAMPLES_TABLE_START,
+	EXAMPLES_HEADER("header"),
+	EXAMPLES_HEADER_END,
+	EXAMPLES_CELL("value"),
+	EXAMPLES_ROW_END,
+	EXAMPLES_TABLE_END,
+	EXAMPLES_END,
+	SUCCESSFUL("keyword", "text"),
+	IGNORABLE("keyword", "text"),
+	PENDING("keyword", "text"),
+	NOT_PERFORMED("keyword", "text"),
+	FAILED("keyword", "text", "message"),
+	FAILED_DIFF("keyword", "text", "summary", "delimiter", "hunks"),
+	RESTARTED("keyword", "text", "message"),
+	FAILED_OUTCOMES_START("keyword", "text"),
+	OUTCOME_FIELD("field"),
+	OUTCOME_FIELDS_END,
+	OUTCOME_VERIFIED("description", "value", "matcher"),
+	OUTCOME_NOT_VERIFIED("description", "value", "matcher"),
+	OUTCOME_NOT_VERIFIED_DIFF("description", "summary"),
+	FAILED_OUTCOMES_END,
+	OUTCOME_DIFF("description", "delimiter", "hunks"),
+	SCENARIO_NOT_ALLOWED("filter", "title"),
+	STORY_CANCELLED("timeout", "name"),
+	STUCK_STEP("step", "elapsed", "diagnostics", "threadDump"),
+	STORY_NOT_ALLOWED("filter", "name"),
+	STATUS_START("updated"),
+	STATUS_STORY("story", "scenario", "step", "outcome"),
+	STATUS_END,
+	INDEX_START("shards"),
+	INDEX_STORY("file"),
+	DELTA_START("baseline"),
+	DELTA_SECTION_START("title", "count"),
+	DELTA_ENTRY("story", "scenario", "detail"),
+	DELTA_SECTION_END,
+	DELTA_UNCHANGED,
+	STEP_LATENCIES_START,
+	STEP_LATENCY("pattern", "calls", "total", "p50", "p95", "p99", "max"),
+	STEP_LATENCIES_END,
+	DURATION_CHART("chart"),
+	CATALOGUE_START,
+	SKELETON_STORY("anchor", "section", "name"),
+	SKELETON_STEP("keyword", "text"),
+	REPORTING_OVERHEAD_START("title"),
+	REPORTING_OVERHEAD_CALLBACK("callback", "calls", "time", "allocated"),
+	REPORTING_OVERHEAD_END("calls", "time", "wallTime", "share", "allocated");
+
+	private final List<String> slots;
+
+	private ReportFragment(String... slots) {
+		this.slots = Collections.unmodifiableList(Arrays.asList(slots));
+	}
+
+	public List<String> slots() {
+		return slots;
+	}
+
+	public String key() {
+		return name().toLowerCase(Locale.ENGLISH).replace('_', '-');
+	}
+
+	public static ReportFragment fromKey(String key) {
+		for (ReportFragment fragment : values()) {
+			if (fragment.key().equals(key)) {
+				return fragment;
+			}
+		}
+		throw new IllegalArgumentException("Unknown report fragment " + key
+				+ ", expected one of " + Arrays.toString(values()));
+	}
+
+}
@@ -0,0 +1,11 @@
+package org.jbehave.asciidoctor.reporter;
+
+/**
+ * Consumer of the events of a story, notified on the thread running the
+ * reporter callbacks.
+ */
+public interface ReportListener {
+
+	void onEvent(ReportEvent event);
+
+}
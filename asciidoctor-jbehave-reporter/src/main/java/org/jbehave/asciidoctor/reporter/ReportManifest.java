@@ -0,0 +1,99 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Lists the report of every story with its path below the output directory,
+ * one tab separated <code>name path</code> line per story, so tools find
+ * reports without walking a {@link ReportFileLayout layout}.
+ */
+public class ReportManifest {
+
+	public static final String MANIFEST = "manifest.tsv";
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final File manifestFile;
+	private boolean truncated;
+
+	public ReportManifest(File outputDirectory) {
+		this.manifestFile = new File(outputDirectory, MANIFEST);
+	}
+
+	public File getManifestFile() {
+		return manifestFile;
+	}
+
+	/**
+	 * Appends the report, the first report of the run replaces the manifest
+	 * of the previous one.
+	 */
+	public synchronized void record(String name, String relativePath) {
+
+		this.manifestFile.getParentFile().mkdirs();
+		OutputStream output = null;
+
+		try {
+			output = new FileOutputStream(this.manifestFile, this.truncated);
+			output.write((name + "\t" + relativePath + "\n").getBytes(UTF_8));
+			this.truncated = true;
+		} catch (IOException e) {
+			throw new ReportOutputFailed(this.manifestFile, e);
+		} finally {
+			if (output != null) {
+				try {
+					output.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the manifest of an output directory, mapping report names to
+	 * their relative paths, empty if it has none.
+	 */
+	public static Map<String, String> read(File outputDirectory) {
+
+		Map<String, String> reports = new LinkedHashMap<String, String>();
+		File manifestFile = new File(outputDirectory, MANIFEST);
+
+		if (!manifestFile.isFile()) {
+			return reports;
+		}
+
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(
+					new FileInputStream(manifestFile), UTF_8));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int tab = line.indexOf('\t');
+				if (tab > 0) {
+					reports.put(line.substring(0, tab), line.substring(tab + 1));
+				}
+			}
+		} catch (IOException e) {
+			throw new ReportOutputFailed(manifestFile, e);
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+
+		return reports;
+	}
+
+}
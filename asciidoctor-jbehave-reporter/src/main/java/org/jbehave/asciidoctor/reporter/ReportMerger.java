@@ -0,0 +1,645 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Merges the report directories written by several shards of a suite into a
+ * single one, with an <code>index.adoc</code> including every story report
+ * ordered by story path and a <code>summary.stats</code> adding up their
+ * statistics.
+ * <p>
+ * Shards are merged k-way, so only one report per shard is looked at at a
+ * time, and reports are streamed rather than loaded. A report whose file name
+ * or anchors were already taken by a previous shard is renamed and its
+ * anchors and references are rewritten in a second streaming pass, links
+ * from the other reports of its shard in a last one.
+ * <p>
+ * Memory still grows with the number of stories, not their size: every
+ * shard lists its report names up front, and the names, anchors and renames
+ * already taken are kept until all reports are merged.
+ */
+public class ReportMerger {
+
+	public static final String INDEX = "index.adoc";
+	public static final String SUMMARY = "summary.stats";
+
+	private static final String REPORT_EXTENSION = ".adoc";
+	private static final String[] COMPANION_EXTENSIONS = { ".stats",
+			"." + JsonLinesSidecar.EXTENSION,
+			DurationCharts.SCENARIO_CHART_EXTENSION };
+	private static final Set<String> SKIPPED = new HashSet<String>(
+			Arrays.asList(INDEX, ProgressStatus.STATUS_FILE,
+					ReportManifest.MANIFEST, DeltaReport.DELTA_FILE,
+					DryRunCatalogue.CATALOGUE_FILE));
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final Pattern ANCHOR = Pattern.compile("^\\[\\[([^\\]]+)\\]\\]");
+	private static final Pattern LINK = Pattern
+			.compile("<<(?:([^<>,#]+)\\.adoc#)?([^<>,#]+?)(,|>>)");
+
+	private final File targetDirectory;
+	private final FragmentTemplates templates;
+
+	public ReportMerger(File targetDirectory) {
+		this(targetDirectory, FragmentTemplates.defaults());
+	}
+
+	public ReportMerger(File targetDirectory, FragmentTemplates templates) {
+		this.targetDirectory = targetDirectory;
+		this.templates = templates;
+	}
+
+	/**
+	 * Usage: <code>ReportMerger targetDirectory shardDirectory...</code>
+	 */
+	public static void main(String[] args) {
+
+		if (args.length < 2) {
+			System.err.println("Usage: ReportMerger <target directory> <shard directory>...");
+			System.exit(1);
+		}
+
+		List<File> shards = new ArrayList<File>();
+		for (int i = 1; i < args.length; i++) {
+			shards.add(new File(args[i]));
+		}
+
+		int merged = new ReportMerger(new File(args[0])).merge(shards);
+		System.out.println("Merged " + merged + " story reports into "
+				+ new File(args[0], INDEX));
+	}
+
+	/**
+	 * Returns the number of story reports merged.
+	 */
+	public int merge(List<File> shardDirectories) {
+
+		this.targetDirectory.mkdirs();
+
+		PriorityQueue<ShardCursor> cursors = new PriorityQueue<ShardCursor>();
+		List<Map<String, String>> shardAnchors = new ArrayList<Map<String, String>>();
+		List<Map<String, String>> shardReports = new ArrayList<Map<String, String>>();
+		for (int i = 0; i < shardDirectories.size(); i++) {
+			ShardCursor cursor = new ShardCursor(shardDirectories.get(i), i);
+			if (cursor.current() != null) {
+				cursors.add(cursor);
+			}
+			shardAnchors.add(new HashMap<String, String>());
+			shardReports.add(new HashMap<String, String>());
+		}
+
+		// companions of a story named index or summary would clash
+		Set<String> reportNames = new HashSet<String>(Arrays.asList(
+				baseName(INDEX), baseName(SUMMARY)));
+		Set<String> anchors = new HashSet<String>();
+		Map<String, Map<String, String>> renamedAnchors = new HashMap<String, Map<String, String>>();
+		List<MergedReport> reports = new ArrayList<MergedReport>();
+		Map<String, Long> summary = new TreeMap<String, Long>();
+
+		ReportManifest manifest = new ReportManifest(this.targetDirectory);
+		Writer index = open(new File(this.targetDirectory, INDEX));
+
+		try {
+			index.write(this.templates.get(ReportFragment.INDEX_START).render(
+					Integer.toString(shardDirectories.size())));
+
+			while (!cursors.isEmpty()) {
+
+				ShardCursor cursor = cursors.poll();
+				MergedReport report = new MergedReport(cursor.shard,
+						cursor.currentPath(), uniqueName(cursor.currentPath(),
+								cursor.shard, reportNames));
+
+				Map<String, String> renamed = mergeReport(cursor.directory,
+						cursor.current(), report, anchors,
+						shardAnchors.get(cursor.shard), summary);
+				if (!renamed.isEmpty()) {
+					renamedAnchors.put(report.name, renamed);
+				}
+				if (!report.name.equals(report.path)) {
+					shardReports.get(cursor.shard).put(report.path, report.name);
+				}
+
+				manifest.record(cursor.current() + REPORT_EXTENSION,
+						report.name + REPORT_EXTENSION);
+				index.write(this.templates.get(ReportFragment.INDEX_STORY)
+						.render(report.name + REPORT_EXTENSION));
+				reports.add(report);
+
+				if (cursor.next() != null) {
+					cursors.add(cursor);
+				}
+			}
+		} catch (IOException e) {
+			throw new ReportOutputFailed(new File(this.targetDirectory, INDEX), e);
+		} finally {
+			close(index);
+		}
+
+		if (!renamedAnchors.isEmpty() || renamedReports(shardReports)) {
+			for (MergedReport report : reports) {
+				relink(report, shardAnchors.get(report.shard),
+						shardReports.get(report.shard), renamedAnchors);
+			}
+		}
+
+		writeSummary(summary);
+		return reports.size();
+	}
+
+	/**
+	 * Copies a report with its companions, returning the anchors it defines
+	 * that had to be renamed.
+	 */
+	private Map<String, String> mergeReport(File shard, String flatName,
+			MergedReport merged, Set<String> anchors,
+			Map<String, String> shardAnchors, Map<String, Long> summary) {
+
+		File report = new File(shard, merged.path + REPORT_EXTENSION);
+		File target = new File(this.targetDirectory, merged.name
+				+ REPORT_EXTENSION);
+		target.getParentFile().mkdirs();
+
+		Map<String, String> renamed = renameCollidingAnchors(report, anchors,
+				shardAnchors);
+		Map<String, String> replacements = anchorReplacements(renamed);
+
+		if (!merged.name.equals(merged.path)) {
+			// the chart is a companion and is renamed along with the report
+			replacements.put("image::" + new File(merged.path).getName()
+					+ DurationCharts.SCENARIO_CHART_EXTENSION, "image::"
+					+ new File(merged.name).getName()
+					+ DurationCharts.SCENARIO_CHART_EXTENSION);
+		}
+
+		if (replacements.isEmpty()) {
+			copy(report, target);
+		} else {
+			rewrite(report, target, replacements);
+		}
+
+		// JBehave writes the statistics flat whatever the layout of the
+		// reports, the sidecar and chart sit next to the report
+		String suffix = merged.name.substring(merged.path.length());
+		for (String extension : COMPANION_EXTENSIONS) {
+			boolean flat = extension.equals(".stats");
+			File companion = new File(shard, (flat ? flatName : merged.path)
+					+ extension);
+			if (companion.isFile()) {
+				copy(companion, new File(this.targetDirectory, (flat ? flatName
+						+ suffix : merged.name)
+						+ extension));
+				if (flat) {
+					addStatistics(companion, summary);
+				}
+			}
+		}
+
+		return renamed;
+	}
+
+	private static String uniqueName(String baseName, int shard,
+			Set<String> reportNames) {
+
+		String name = baseName;
+		for (int i = 2; !reportNames.add(name); i++) {
+			name = baseName + "-" + (shard + 1) + (i > 2 ? "-" + i : "");
+		}
+		return name;
+	}
+
+	/**
+	 * First pass over a report, registering its anchors and renaming those
+	 * another report already defines. The shard anchors keep the merged name
+	 * of the first definition of every anchor in the shard, the one links
+	 * from its other reports went to.
+	 */
+	private static Map<String, String> renameCollidingAnchors(File report,
+			Set<String> anchors, Map<String, String> shardAnchors) {
+
+		Map<String, String> renamed = new LinkedHashMap<String, String>();
+		Set<String> defined = new HashSet<String>();
+		BufferedReader reader = reader(report);
+
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+
+				Matcher anchor = ANCHOR.matcher(line);
+				if (!anchor.find() || !defined.add(anchor.group(1))) {
+					continue;
+				}
+
+				String name = anchor.group(1);
+				String unique = name;
+				for (int i = 2; !anchors.add(unique); i++) {
+					unique = name + "_" + i;
+				}
+
+				if (!shardAnchors.containsKey(name)) {
+					shardAnchors.put(name, unique);
+				}
+
+				if (!unique.equals(name)) {
+					renamed.put(name, unique);
+				}
+			}
+		} catch (IOException e) {
+			throw new ReportOutputFailed(report, e);
+		} finally {
+			close(reader);
+		}
+
+		return renamed;
+	}
+
+	private static Map<String, String> anchorReplacements(
+			Map<String, String> renamedAnchors) {
+
+		Map<String, String> replacements = new HashMap<String, String>();
+		for (Map.Entry<String, String> anchor : renamedAnchors.entrySet()) {
+			replacements.put("[[" + anchor.getKey() + "]]",
+					"[[" + anchor.getValue() + "]]");
+			replacements.put("<<" + anchor.getKey() + ",",
+					"<<" + anchor.getValue() + ",");
+			replacements.put("<<" + anchor.getKey() + ">>",
+					"<<" + anchor.getValue() + ">>");
+		}
+		return replacements;
+	}
+
+	private static void rewrite(File report, File target,
+			Map<String, String> replacements) {
+
+		BufferedReader reader = reader(report);
+		Writer writer = open(target);
+		String lineSeparator = System.getProperty("line.separator");
+
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.indexOf("[[") > -1 || line.indexOf("<<") > -1
+						|| line.startsWith("image::")) {
+					for (Map.Entry<String, String> replacement : replacements
+							.entrySet()) {
+						line = line.replace(replacement.getKey(),
+								replacement.getValue());
+					}
+				}
+				writer.write(line);
+				writer.write(lineSeparator);
+			}
+		} catch (IOException e) {
+			throw new ReportOutputFailed(target, e);
+		} finally {
+			close(reader);
+			close(writer);
+		}
+	}
+
+	/**
+	 * Last pass over a merged report, pointing its links to reports and
+	 * anchors of other reports of its shard at their merged names. Reports
+	 * left alone are only read.
+	 */
+	private void relink(MergedReport report, Map<String, String> shardAnchors,
+			Map<String, String> shardReports,
+			Map<String, Map<String, String>> renamedAnchors) {
+
+		File target = new File(this.targetDirectory, report.name
+				+ REPORT_EXTENSION);
+
+		if (!relinks(target, report, shardAnchors, shardReports,
+				renamedAnchors, null)) {
+			return;
+		}
+
+		File relinked = new File(target.getPath() + ".tmp");
+		Writer writer = open(relinked);
+		try {
+			relinks(target, report, shardAnchors, shardReports, renamedAnchors,
+					writer);
+		} finally {
+			close(writer);
+		}
+
+		if (!relinked.renameTo(target)
+				&& !(target.delete() && relinked.renameTo(target))) {
+			throw new ReportOutputFailed(target, new IOException(
+					"Could not replace with " + relinked));
+		}
+	}
+
+	/**
+	 * Tells whether any link of the report changes, writing it relinked if
+	 * given a writer.
+	 */
+	private static boolean relinks(File target, MergedReport report,
+			Map<String, String> shardAnchors, Map<String, String> shardReports,
+			Map<String, Map<String, String>> renamedAnchors, Writer writer) {
+
+		BufferedReader reader = reader(target);
+		String lineSeparator = System.getProperty("line.separator");
+		boolean changed = false;
+
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String relinked = line.indexOf("<<") > -1 ? relinkLine(line,
+						report, shardAnchors, shardReports, renamedAnchors)
+						: line;
+				changed |= !relinked.equals(line);
+				if (writer != null) {
+					writer.write(relinked);
+					writer.write(lineSeparator);
+				} else if (changed) {
+					return true;
+				}
+			}
+		} catch (IOException e) {
+			throw new ReportOutputFailed(target, e);
+		} finally {
+			close(reader);
+		}
+
+		return changed;
+	}
+
+	private static String relinkLine(String line, MergedReport report,
+			Map<String, String> shardAnchors, Map<String, String> shardReports,
+			Map<String, Map<String, String>> renamedAnchors) {
+
+		Matcher link = LINK.matcher(line);
+		StringBuffer relinked = new StringBuffer(line.length());
+
+		while (link.find()) {
+
+			String document = link.group(1);
+			String anchor = link.group(2);
+			Map<String, String> anchors = shardAnchors;
+			String prefix = "";
+
+			if (document != null) {
+				// each story its own document, the link names the report
+				String path = resolve(report.path, document);
+				String name = shardReports.containsKey(path) ? shardReports
+						.get(path) : path;
+				anchors = renamedAnchors.get(name);
+				prefix = ReportFileLayout.link(report.name + REPORT_EXTENSION,
+						name + REPORT_EXTENSION) + "#";
+			}
+
+			String merged = anchors != null && anchors.containsKey(anchor) ? anchors
+					.get(anchor) : anchor;
+			link.appendReplacement(relinked, Matcher.quoteReplacement("<<"
+					+ prefix + merged + link.group(3)));
+		}
+
+		link.appendTail(relinked);
+		return relinked.toString();
+	}
+
+	/**
+	 * Resolves a link relative to the report at the given path, both without
+	 * extension.
+	 */
+	private static String resolve(String fromPath, String link) {
+
+		List<String> path = new ArrayList<String>(Arrays.asList(fromPath
+				.split("/")));
+		path.remove(path.size() - 1);
+
+		for (String segment : link.split("/")) {
+			if (segment.equals("..")) {
+				if (!path.isEmpty()) {
+					path.remove(path.size() - 1);
+				}
+			} else if (!segment.equals(".") && segment.length() > 0) {
+				path.add(segment);
+			}
+		}
+
+		StringBuilder resolved = new StringBuilder();
+		for (String segment : path) {
+			if (resolved.length() > 0) {
+				resolved.append('/');
+			}
+			resolved.append(segment);
+		}
+		return resolved.toString();
+	}
+
+	private static boolean renamedReports(List<Map<String, String>> shardReports) {
+		for (Map<String, String> renamed : shardReports) {
+			if (!renamed.isEmpty()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void copy(File source, File target) {
+
+		FileInputStream input = null;
+		FileOutputStream output = null;
+
+		try {
+			input = new FileInputStream(source);
+			output = new FileOutputStream(target);
+			FileChannel from = input.getChannel();
+			FileChannel to = output.getChannel();
+
+			long size = from.size();
+			long position = 0;
+			while (position < size) {
+				position += from.transferTo(position, size - position, to);
+			}
+		} catch (IOException e) {
+			throw new ReportOutputFailed(target, e);
+		} finally {
+			close(input);
+			close(output);
+		}
+	}
+
+	private static void addStatistics(File stats, Map<String, Long> summary) {
+
+		Properties statistics = new Properties();
+		FileInputStream input = null;
+
+		try {
+			input = new FileInputStream(stats);
+			statistics.load(input);
+		} catch (IOException e) {
+			throw new ReportOutputFailed(stats, e);
+		} finally {
+			close(input);
+		}
+
+		for (String key : statistics.stringPropertyNames()) {
+			try {
+				long value = Long.parseLong(statistics.getProperty(key).trim());
+				Long total = summary.get(key);
+				summary.put(key, total == null ? value : total + value);
+			} catch (NumberFormatException e) {
+				// only counters are added up
+			}
+		}
+	}
+
+	private void writeSummary(Map<String, Long> summary) {
+
+		File target = new File(this.targetDirectory, SUMMARY);
+		Writer writer = open(target);
+		String lineSeparator = System.getProperty("line.separator");
+
+		try {
+			for (Map.Entry<String, Long> total : summary.entrySet()) {
+				writer.write(total.getKey() + "=" + total.getValue()
+						+ lineSeparator);
+			}
+		} catch (IOException e) {
+			throw new ReportOutputFailed(target, e);
+		} finally {
+			close(writer);
+		}
+	}
+
+	private static String baseName(String fileName) {
+		return fileName.substring(0, fileName.lastIndexOf('.'));
+	}
+
+	private static BufferedReader reader(File file) {
+		try {
+			return new BufferedReader(new InputStreamReader(
+					new FileInputStream(file), UTF_8));
+		} catch (IOException e) {
+			throw new ReportOutputFailed(file, e);
+		}
+	}
+
+	private static Writer open(File file) {
+		try {
+			return new BufferedWriter(new OutputStreamWriter(
+					new FileOutputStream(file), UTF_8));
+		} catch (IOException e) {
+			throw new ReportOutputFailed(file, e);
+		}
+	}
+
+	private static void close(Closeable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	/**
+	 * A report of a shard, at its path in the shard and its name once merged.
+	 */
+	private static final class MergedReport {
+
+		private final int shard;
+		private final String path;
+		private final String name;
+
+		private MergedReport(int shard, String path, String name) {
+			this.shard = shard;
+			this.path = path;
+			this.name = name;
+		}
+	}
+
+	/**
+	 * Story reports of a shard in story path order, the reporter names them
+	 * after the story path. Shards written with a {@link ReportFileLayout}
+	 * are read through their manifest and keep their layout when merged.
+	 */
+	private static final class ShardCursor implements Comparable<ShardCursor> {
+
+		private final File directory;
+		private final int shard;
+		private final String[] baseNames;
+		private final Map<String, String> paths = new HashMap<String, String>();
+		private int position;
+
+		private ShardCursor(File directory, int shard) {
+
+			this.directory = directory;
+			this.shard = shard;
+
+			List<String> baseNames = new ArrayList<String>();
+			Map<String, String> manifest = ReportManifest.read(directory);
+			String[] names = manifest.isEmpty() ? directory.list() : manifest
+					.keySet().toArray(new String[manifest.size()]);
+
+			if (names != null) {
+				for (String name : names) {
+					if (name.endsWith(REPORT_EXTENSION) && !SKIPPED.contains(name)) {
+						String baseName = withoutExtension(name);
+						baseNames.add(baseName);
+						if (manifest.containsKey(name)) {
+							this.paths.put(baseName,
+									withoutExtension(manifest.get(name)));
+						}
+					}
+				}
+			}
+
+			this.baseNames = baseNames.toArray(new String[baseNames.size()]);
+			Arrays.sort(this.baseNames);
+		}
+
+		private String current() {
+			return this.position < this.baseNames.length ? this.baseNames[this.position]
+					: null;
+		}
+
+		private String currentPath() {
+			String path = this.paths.get(current());
+			return path != null ? path : current();
+		}
+
+		private static String withoutExtension(String name) {
+			return name.substring(0, name.length() - REPORT_EXTENSION.length());
+		}
+
+		private String next() {
+			this.position++;
+			return current();
+		}
+
+		@Override
+		public int compareTo(ShardCursor other) {
+			int byName = current().compareTo(other.current());
+			return byName != 0 ? byName : this.shard - other.shard;
+		}
+	}
+
+}
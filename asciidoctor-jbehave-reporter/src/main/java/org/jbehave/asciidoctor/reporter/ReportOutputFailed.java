@@ -0,0 +1,16 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.File;
+
+@SuppressWarnings("serial")
+public class ReportOutputFailed extends RuntimeException {
+
+	public ReportOutputFailed(File file, Throwable cause) {
+		super("Failed to write report output to " + file, cause);
+	}
+
+	public ReportOutputFailed(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
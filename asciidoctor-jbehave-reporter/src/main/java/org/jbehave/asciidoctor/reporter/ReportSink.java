@@ -0,0 +1,20 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+
+/**
+ * Destination of the rendered AsciiDoc content of a story.
+ */
+public interface ReportSink extends Closeable {
+
+	void write(CharSequence content);
+
+	void write(ByteBuffer... content);
+
+	void flush();
+
+	@Override
+	void close();
+
+}
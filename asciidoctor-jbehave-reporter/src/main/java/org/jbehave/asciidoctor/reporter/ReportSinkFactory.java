@@ -0,0 +1,45 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.File;
+import java.io.PrintStream;
+
+import org.jbehave.core.reporters.FilePrintStreamFactory;
+
+public abstract class ReportSinkFactory {
+
+	public static final ReportSinkFactory PRINT_STREAM = new ReportSinkFactory() {
+
+		@Override
+		public ReportSink createReportSink(FilePrintStreamFactory factory,
+				AsciidoctorReporterConfiguration configuration) {
+			return new PrintStreamReportSink(factory.createPrintStream(),
+					configuration.flushPolicy());
+		}
+	};
+
+	public static final ReportSinkFactory FILE_CHANNEL = new ReportSinkFactory() {
+
+		@Override
+		public ReportSink createReportSink(FilePrintStreamFactory factory,
+				AsciidoctorReporterConfiguration configuration) {
+			return new FileChannelReportSink(outputFileOf(factory),
+					configuration.sinkBufferSize(), configuration.flushPolicy());
+		}
+	};
+
+	public abstract ReportSink createReportSink(
+			FilePrintStreamFactory factory,
+			AsciidoctorReporterConfiguration configuration);
+
+	/**
+	 * Resolves the file JBehave would write the story to. The factory only
+	 * exposes it once a print stream has been created, so that stream is
+	 * opened and closed straight away.
+	 */
+	protected static File outputFileOf(FilePrintStreamFactory factory) {
+		PrintStream printStream = factory.createPrintStream();
+		printStream.close();
+		return factory.getOutputFile();
+	}
+
+}
@@ -0,0 +1,56 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.util.Locale;
+
+/**
+ * The {@link org.jbehave.core.reporters.StoryReporter} callbacks, used to
+ * account for the work done in each of them.
+ */
+public enum ReporterCallback {
+
+	STORY_NOT_ALLOWED,
+	STORY_CANCELLED,
+	BEFORE_STORY,
+	AFTER_STORY,
+	NARRATIVE,
+	LIFECYCLE,
+	SCENARIO_NOT_ALLOWED,
+	BEFORE_SCENARIO,
+	SCENARIO_META,
+	AFTER_SCENARIO,
+	GIVEN_STORIES,
+	BEFORE_EXAMPLES,
+	EXAMPLE,
+	AFTER_EXAMPLES,
+	BEFORE_STEP,
+	SUCCESSFUL,
+	IGNORABLE,
+	PENDING,
+	NOT_PERFORMED,
+	FAILED,
+	FAILED_OUTCOMES,
+	RESTARTED,
+	DRY_RUN,
+	PENDING_METHODS;
+
+	private final String methodName;
+
+	private ReporterCallback() {
+		StringBuilder methodName = new StringBuilder();
+		boolean upperCase = false;
+		for (char c : name().toLowerCase(Locale.ENGLISH).toCharArray()) {
+			if (c == '_') {
+				upperCase = true;
+			} else {
+				methodName.append(upperCase ? Character.toUpperCase(c) : c);
+				upperCase = false;
+			}
+		}
+		this.methodName = methodName.toString();
+	}
+
+	public String methodName() {
+		return methodName;
+	}
+
+}
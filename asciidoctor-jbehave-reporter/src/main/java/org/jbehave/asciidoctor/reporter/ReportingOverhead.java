@@ -0,0 +1,109 @@
+package org.jbehave.asciidoctor.reporter;
+
+/**
+ * Time and memory spent by the reporter in each callback, compared with the
+ * wall time of the stories it reported.
+ */
+public class ReportingOverhead {
+
+	public static final long UNSUPPORTED = -1;
+
+	private static final int CALLBACKS = ReporterCallback.values().length;
+
+	private final long[] calls = new long[CALLBACKS];
+	private final long[] nanos = new long[CALLBACKS];
+	private final long[] allocatedBytes = new long[CALLBACKS];
+
+	private long wallNanos;
+	private int stories;
+	private boolean allocationSupported = true;
+
+	public void record(ReporterCallback callback, long elapsedNanos,
+			long allocated) {
+
+		int index = callback.ordinal();
+		this.calls[index]++;
+		this.nanos[index] += elapsedNanos;
+
+		if (allocated == UNSUPPORTED) {
+			this.allocationSupported = false;
+		} else {
+			this.allocatedBytes[index] += allocated;
+		}
+	}
+
+	public void recordStory(long storyWallNanos) {
+		this.wallNanos += storyWallNanos;
+		this.stories++;
+	}
+
+	public synchronized void merge(ReportingOverhead other) {
+
+		for (int i = 0; i < CALLBACKS; i++) {
+			this.calls[i] += other.calls[i];
+			this.nanos[i] += other.nanos[i];
+			this.allocatedBytes[i] += other.allocatedBytes[i];
+		}
+
+		this.wallNanos += other.wallNanos;
+		this.stories += other.stories;
+		this.allocationSupported &= other.allocationSupported;
+	}
+
+	public synchronized ReportingOverhead snapshot() {
+		ReportingOverhead snapshot = new ReportingOverhead();
+		snapshot.merge(this);
+		return snapshot;
+	}
+
+	public long calls(ReporterCallback callback) {
+		return this.calls[callback.ordinal()];
+	}
+
+	public long nanos(ReporterCallback callback) {
+		return this.nanos[callback.ordinal()];
+	}
+
+	public long allocatedBytes(ReporterCallback callback) {
+		return this.allocationSupported ? this.allocatedBytes[callback
+				.ordinal()] : UNSUPPORTED;
+	}
+
+	public long reportingNanos() {
+		long total = 0;
+		for (long callbackNanos : this.nanos) {
+			total += callbackNanos;
+		}
+		return total;
+	}
+
+	public long reportingAllocatedBytes() {
+
+		if (!this.allocationSupported) {
+			return UNSUPPORTED;
+		}
+
+		long total = 0;
+		for (long callbackBytes : this.allocatedBytes) {
+			total += callbackBytes;
+		}
+		return total;
+	}
+
+	public long wallNanos() {
+		return wallNanos;
+	}
+
+	public int stories() {
+		return stories;
+	}
+
+	/**
+	 * @return the fraction of the stories wall time spent reporting.
+	 */
+	public double share() {
+		return this.wallNanos == 0 ? 0 : (double) reportingNanos()
+				/ this.wallNanos;
+	}
+
+}
@@ -0,0 +1,52 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Suite wide accumulator of the {@link ReportingOverhead} measured by every
+ * {@link ProfilingStoryReporter}. Allocated bytes are only measured on JVMs
+ * whose {@link ThreadMXBean} supports thread allocation accounting.
+ */
+public class ReportingOverheadProfiler {
+
+	private final ReportingOverhead suite = new ReportingOverhead();
+	private final com.sun.management.ThreadMXBean allocationBean;
+
+	public ReportingOverheadProfiler() {
+		this.allocationBean = allocationBean();
+	}
+
+	private static com.sun.management.ThreadMXBean allocationBean() {
+
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+		if (threadBean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+
+			if (allocationBean.isThreadAllocatedMemorySupported()) {
+				if (!allocationBean.isThreadAllocatedMemoryEnabled()) {
+					allocationBean.setThreadAllocatedMemoryEnabled(true);
+				}
+				return allocationBean;
+			}
+		}
+
+		return null;
+	}
+
+	long currentThreadAllocatedBytes() {
+		return this.allocationBean == null ? ReportingOverhead.UNSUPPORTED
+				: this.allocationBean.getThreadAllocatedBytes(Thread
+						.currentThread().getId());
+	}
+
+	void storyProfiled(ReportingOverhead story) {
+		this.suite.merge(story);
+	}
+
+	public ReportingOverhead suite() {
+		return this.suite.snapshot();
+	}
+
+}
@@ -0,0 +1,194 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compact summary of a run, one tab separated line per scenario with its
+ * story, title, result, duration and the outcome of each step, that a later
+ * run compares against in a {@link DeltaReport}. Lines are written as
+ * scenarios finish and the file is complete once the
+ * <code>AfterStories</code> report is.
+ */
+public class RunSummary implements ReportListener {
+
+	public static final String SUMMARY_FILE = "run-summary.tsv";
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final String HEADER = "# story\tscenario\tresult\tdurationNanos\tsteps";
+
+	private final File summaryFile;
+	private final Map<String, StringBuilder> steps = new HashMap<String, StringBuilder>();
+	private Writer writer;
+
+	public RunSummary(File summaryFile) {
+		this.summaryFile = summaryFile;
+	}
+
+	public File getSummaryFile() {
+		return summaryFile;
+	}
+
+	@Override
+	public synchronized void onEvent(ReportEvent event) {
+
+		if (event.isGivenStory()) {
+			return;
+		}
+
+		String story = event.getStoryPath();
+
+		switch (event.getType()) {
+		case SCENARIO_STARTED:
+			this.steps.put(story, new StringBuilder());
+			break;
+		case STEP:
+			StringBuilder outcomes = this.steps.get(story);
+			if (outcomes != null) {
+				outcomes.append(event.getStepOutcome().label().charAt(0));
+			}
+			break;
+		case SCENARIO_FINISHED:
+			StringBuilder scenarioSteps = this.steps.remove(story);
+			write(story, event.getScenarioTitle(), event.getResult(),
+					event.getDurationNanos(), scenarioSteps != null ? scenarioSteps
+							.toString() : "");
+			break;
+		case STORY_FINISHED:
+			if (ProfilingStoryReporter.AFTER_STORIES.equals(story)) {
+				close();
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	private void write(String story, String scenario, StoryResult result,
+			long durationNanos, String steps) {
+
+		try {
+			if (this.writer == null) {
+				this.summaryFile.getAbsoluteFile().getParentFile().mkdirs();
+				this.writer = new BufferedWriter(new OutputStreamWriter(
+						new FileOutputStream(this.summaryFile), UTF_8));
+				this.writer.write(HEADER);
+				this.writer.write('\n');
+			}
+
+			this.writer.write(clean(story) + '\t' + clean(scenario) + '\t'
+					+ result.name() + '\t' + durationNanos + '\t' + steps
+					+ '\n');
+		} catch (IOException e) {
+			throw new ReportOutputFailed(this.summaryFile, e);
+		}
+	}
+
+	private void close() {
+		if (this.writer != null) {
+			try {
+				this.writer.close();
+			} catch (IOException e) {
+				throw new ReportOutputFailed(this.summaryFile, e);
+			} finally {
+				this.writer = null;
+			}
+		}
+	}
+
+	static String clean(String value) {
+		return value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+	}
+
+	/**
+	 * Reads a summary as scenario summaries by scenario title, by story path,
+	 * empty if there is none yet.
+	 */
+	public static Map<String, Map<String, ScenarioSummary>> load(
+			File summaryFile) {
+
+		Map<String, Map<String, ScenarioSummary>> stories = new HashMap<String, Map<String, ScenarioSummary>>();
+
+		if (!summaryFile.isFile()) {
+			return stories;
+		}
+
+		BufferedReader reader = null;
+
+		try {
+			reader = new BufferedReader(new InputStreamReader(
+					new FileInputStream(summaryFile), UTF_8));
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+
+				String[] fields = line.split("\t", -1);
+				if (line.startsWith("#") || fields.length < 5) {
+					continue;
+				}
+
+				Map<String, ScenarioSummary> scenarios = stories.get(fields[0]);
+				if (scenarios == null) {
+					scenarios = new LinkedHashMap<String, ScenarioSummary>();
+					stories.put(fields[0], scenarios);
+				}
+
+				scenarios.put(fields[1], new ScenarioSummary(StoryResult
+						.valueOf(fields[2]), Long.parseLong(fields[3]),
+						fields[4]));
+			}
+		} catch (IOException e) {
+			throw new ReportOutputFailed(summaryFile, e);
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+
+		return stories;
+	}
+
+	public static final class ScenarioSummary {
+
+		private final StoryResult result;
+		private final long durationNanos;
+		private final String steps;
+
+		public ScenarioSummary(StoryResult result, long durationNanos,
+				String steps) {
+			this.result = result;
+			this.durationNanos = durationNanos;
+			this.steps = steps;
+		}
+
+		public StoryResult getResult() {
+			return result;
+		}
+
+		public long getDurationNanos() {
+			return durationNanos;
+		}
+
+		/**
+		 * First letter of the {@link StepOutcome#label() label} of every step.
+		 */
+		public String getSteps() {
+			return steps;
+		}
+	}
+
+}
@@ -0,0 +1,345 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits a suite into shards of about the same duration for as many CI nodes,
+ * from a {@link StoryDurationHistory}. Stories are handed out longest first to
+ * the shard expected to finish first, which takes
+ * <code>O(n log n)</code> for <code>n</code> stories and ends within a third
+ * of the best possible makespan.
+ * <p>
+ * A story without history is expected to take the median duration of those
+ * with one, plus the durations of the given stories it is known to run.
+ */
+public class ShardPlanner {
+
+	public static final String SHARD_FILE_PREFIX = "shard-";
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final Map<String, Long> durations;
+	private final Map<String, Long> givenDurations;
+	private Map<String, List<String>> givenStories = Collections.emptyMap();
+	private long defaultDuration = -1;
+
+	public ShardPlanner(File historyFile) {
+		this(StoryDurationHistory.load(historyFile), StoryDurationHistory
+				.loadGivenStories(historyFile));
+	}
+
+	public ShardPlanner(Map<String, Long> durations,
+			Map<String, Long> givenDurations) {
+		this.durations = durations;
+		this.givenDurations = givenDurations;
+	}
+
+	/**
+	 * Given stories each story runs, only used to estimate stories without
+	 * history.
+	 */
+	public ShardPlanner withGivenStories(Map<String, List<String>> givenStories) {
+		this.givenStories = givenStories;
+		return this;
+	}
+
+	/**
+	 * Duration expected of stories without history instead of the median.
+	 */
+	public ShardPlanner withDefaultDuration(long durationNanos) {
+		this.defaultDuration = durationNanos;
+		return this;
+	}
+
+	/**
+	 * Usage:
+	 * <code>ShardPlanner historyFile nodes outputDirectory [storyPathsFile [givenStoriesFile]]</code>
+	 * , every story of the history is planned unless a file with a story path
+	 * per line is given. The given stories file has a tab separated line per
+	 * story, its path then the given stories it runs, for stories without
+	 * history to be estimated with them.
+	 */
+	public static void main(String[] args) {
+
+		if (args.length < 3) {
+			System.err.println("Usage: ShardPlanner <history file> <nodes> <output directory> [<story paths file> [<given stories file>]]");
+			System.exit(1);
+		}
+
+		run(args, System.out);
+	}
+
+	/**
+	 * Plans and writes the shards as {@link #main(String[])} does, printing
+	 * the expected duration of each to the given stream.
+	 */
+	public static ShardPlan run(String[] args, PrintStream out) {
+
+		File historyFile = new File(args[0]);
+		List<String> storyPaths = args.length > 3 ? readLines(new File(args[3]))
+				: new ArrayList<String>(StoryDurationHistory.load(historyFile)
+						.keySet());
+
+		ShardPlanner planner = new ShardPlanner(historyFile);
+		if (args.length > 4) {
+			planner.withGivenStories(readGivenStories(new File(args[4])));
+		}
+
+		ShardPlan plan = planner.plan(storyPaths, Integer.parseInt(args[1]));
+		plan.writeTo(new File(args[2]));
+
+		for (int i = 0; i < plan.shards(); i++) {
+			out.println("Shard " + (i + 1) + ": " + plan.storyPaths(i).size()
+					+ " stories, expected "
+					+ TimeUnit.NANOSECONDS.toSeconds(plan.expectedNanos(i))
+					+ " s");
+		}
+		out.println("Expected makespan: "
+				+ TimeUnit.NANOSECONDS.toSeconds(plan.makespanNanos()) + " s");
+
+		return plan;
+	}
+
+	public ShardPlan plan(List<String> storyPaths, int nodes) {
+
+		if (nodes < 1) {
+			throw new IllegalArgumentException("At least one node is needed: "
+					+ nodes);
+		}
+
+		long fallback = this.defaultDuration >= 0 ? this.defaultDuration
+				: median(storyPaths);
+
+		PlannedStory[] stories = new PlannedStory[storyPaths.size()];
+		for (int i = 0; i < stories.length; i++) {
+			String storyPath = storyPaths.get(i);
+			stories[i] = new PlannedStory(storyPath, estimate(storyPath,
+					fallback));
+		}
+		// longest first, by path between stories as long so plans are stable
+		Arrays.sort(stories);
+
+		PriorityQueue<Shard> shards = new PriorityQueue<Shard>(nodes);
+		List<Shard> byNode = new ArrayList<Shard>(nodes);
+		for (int i = 0; i < nodes; i++) {
+			Shard shard = new Shard(i);
+			shards.add(shard);
+			byNode.add(shard);
+		}
+
+		for (PlannedStory story : stories) {
+			Shard shard = shards.poll();
+			shard.storyPaths.add(story.path);
+			shard.expectedNanos += story.expectedNanos;
+			shards.add(shard);
+		}
+
+		return new ShardPlan(byNode);
+	}
+
+	private long estimate(String storyPath, long fallback) {
+
+		Long duration = this.durations.get(storyPath);
+		if (duration != null) {
+			return duration;
+		}
+
+		long estimate = fallback;
+		List<String> givens = this.givenStories.get(storyPath);
+		if (givens != null) {
+			for (String given : givens) {
+				Long givenDuration = this.givenDurations.get(given);
+				if (givenDuration != null) {
+					estimate += givenDuration;
+				}
+			}
+		}
+		return estimate;
+	}
+
+	private long median(List<String> storyPaths) {
+
+		long[] known = new long[storyPaths.size()];
+		int count = 0;
+		for (String storyPath : storyPaths) {
+			Long duration = this.durations.get(storyPath);
+			if (duration != null) {
+				known[count++] = duration;
+			}
+		}
+
+		if (count == 0) {
+			return 0;
+		}
+
+		Arrays.sort(known, 0, count);
+		return known[count / 2];
+	}
+
+	private static Map<String, List<String>> readGivenStories(File file) {
+
+		Map<String, List<String>> givenStories = new HashMap<String, List<String>>();
+		for (String line : readLines(file)) {
+			String[] paths = line.split("\t");
+			List<String> givens = givenStories.get(paths[0]);
+			if (givens == null) {
+				givens = new ArrayList<String>();
+				givenStories.put(paths[0], givens);
+			}
+			for (int i = 1; i < paths.length; i++) {
+				if (paths[i].trim().length() > 0) {
+					givens.add(paths[i].trim());
+				}
+			}
+		}
+		return givenStories;
+	}
+
+	private static List<String> readLines(File file) {
+
+		List<String> lines = new ArrayList<String>();
+		BufferedReader reader = null;
+
+		try {
+			reader = new BufferedReader(new InputStreamReader(
+					new FileInputStream(file), UTF_8));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.trim().length() > 0) {
+					lines.add(line.trim());
+				}
+			}
+		} catch (IOException e) {
+			throw new ReportOutputFailed(file, e);
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+
+		return lines;
+	}
+
+	public static final class ShardPlan {
+
+		private final List<Shard> shards;
+
+		private ShardPlan(List<Shard> shards) {
+			this.shards = shards;
+		}
+
+		public int shards() {
+			return this.shards.size();
+		}
+
+		/**
+		 * Story paths of the shard, longest first.
+		 */
+		public List<String> storyPaths(int shard) {
+			return Collections.unmodifiableList(this.shards.get(shard).storyPaths);
+		}
+
+		public long expectedNanos(int shard) {
+			return this.shards.get(shard).expectedNanos;
+		}
+
+		public long makespanNanos() {
+			long makespan = 0;
+			for (Shard shard : this.shards) {
+				makespan = Math.max(makespan, shard.expectedNanos);
+			}
+			return makespan;
+		}
+
+		/**
+		 * Writes the story paths of every shard to
+		 * <code>shard-&lt;n&gt;.txt</code>, one per line, numbered from 1.
+		 */
+		public void writeTo(File directory) {
+
+			directory.mkdirs();
+
+			for (Shard shard : this.shards) {
+				File file = new File(directory, SHARD_FILE_PREFIX
+						+ (shard.node + 1) + ".txt");
+				Writer writer = null;
+				try {
+					writer = new BufferedWriter(new OutputStreamWriter(
+							new FileOutputStream(file), UTF_8));
+					for (String storyPath : shard.storyPaths) {
+						writer.write(storyPath);
+						writer.write('\n');
+					}
+				} catch (IOException e) {
+					throw new ReportOutputFailed(file, e);
+				} finally {
+					if (writer != null) {
+						try {
+							writer.close();
+						} catch (IOException e) {
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private static final class Shard implements Comparable<Shard> {
+
+		private final int node;
+		private final List<String> storyPaths = new ArrayList<String>();
+		private long expectedNanos;
+
+		private Shard(int node) {
+			this.node = node;
+		}
+
+		@Override
+		public int compareTo(Shard other) {
+			return this.expectedNanos < other.expectedNanos ? -1
+					: this.expectedNanos > other.expectedNanos ? 1 : this.node
+							- other.node;
+		}
+	}
+
+	private static final class PlannedStory implements
+			Comparable<PlannedStory> {
+
+		private final String path;
+		private final long expectedNanos;
+
+		private PlannedStory(String path, long expectedNanos) {
+			this.path = path;
+			this.expectedNanos = expectedNanos;
+		}
+
+		@Override
+		public int compareTo(PlannedStory other) {
+			return this.expectedNanos > other.expectedNanos ? -1
+					: this.expectedNanos < other.expectedNanos ? 1 : this.path
+							.compareTo(other.path);
+		}
+	}
+
+}
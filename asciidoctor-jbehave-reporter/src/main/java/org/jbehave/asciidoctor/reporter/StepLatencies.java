@@ -0,0 +1,116 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jbehave.core.steps.StepCreator;
+
+/**
+ * Latency of every step pattern across the suite, steps being reduced to
+ * their pattern by replacing the parameter values JBehave marks with
+ * <code>&lt;value&gt;</code>. Shared by the reporters of every story.
+ */
+public class StepLatencies {
+
+	static final String PARAMETER = "<value>";
+
+	private static final double[] PERCENTILES = { 50, 95, 99 };
+
+	private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<String, LatencyHistogram>();
+
+	public void record(String step, long nanos) {
+
+		String pattern = patternOf(step);
+		LatencyHistogram histogram = this.histograms.get(pattern);
+
+		if (histogram == null) {
+			LatencyHistogram created = new LatencyHistogram();
+			histogram = this.histograms.putIfAbsent(pattern, created);
+			if (histogram == null) {
+				histogram = created;
+			}
+		}
+
+		histogram.record(nanos);
+	}
+
+	public LatencyHistogram histogram(String pattern) {
+		return histograms.get(pattern);
+	}
+
+	public int patterns() {
+		return histograms.size();
+	}
+
+	public static String patternOf(String step) {
+
+		int start = step.indexOf(StepCreator.PARAMETER_VALUE_START);
+		if (start < 0) {
+			return step;
+		}
+
+		StringBuilder pattern = new StringBuilder(step.length());
+		int from = 0;
+
+		while (start > -1) {
+			int end = step.indexOf(StepCreator.PARAMETER_VALUE_END, start);
+			if (end < 0) {
+				break;
+			}
+			pattern.append(step, from, start).append(PARAMETER);
+			from = end + StepCreator.PARAMETER_VALUE_END.length();
+			start = step.indexOf(StepCreator.PARAMETER_VALUE_START, from);
+		}
+
+		return pattern.append(step, from, step.length()).toString();
+	}
+
+	/**
+	 * Patterns by total time spent, the most expensive first.
+	 */
+	public String render(FragmentTemplates templates) {
+
+		List<Map.Entry<String, LatencyHistogram>> patterns = new ArrayList<Map.Entry<String, LatencyHistogram>>(
+				this.histograms.entrySet());
+		Collections.sort(patterns,
+				new Comparator<Map.Entry<String, LatencyHistogram>>() {
+					@Override
+					public int compare(Map.Entry<String, LatencyHistogram> a,
+							Map.Entry<String, LatencyHistogram> b) {
+						long difference = b.getValue().totalMicros()
+								- a.getValue().totalMicros();
+						return difference < 0 ? -1 : difference > 0 ? 1 : 0;
+					}
+				});
+
+		StringBuilder table = new StringBuilder(templates.get(
+				ReportFragment.STEP_LATENCIES_START).render());
+		FragmentTemplate row = templates.get(ReportFragment.STEP_LATENCY);
+
+		for (Map.Entry<String, LatencyHistogram> pattern : patterns) {
+			LatencyHistogram histogram = pattern.getValue();
+			table.append(row.render(pattern.getKey(),
+					Long.toString(histogram.count()),
+					millis(histogram.totalMicros()),
+					millis(histogram.percentileMicros(PERCENTILES[0])),
+					millis(histogram.percentileMicros(PERCENTILES[1])),
+					millis(histogram.percentileMicros(PERCENTILES[2])),
+					millis(histogram.maxMicros())));
+		}
+
+		return table.append(
+				templates.get(ReportFragment.STEP_LATENCIES_END).render())
+				.toString();
+	}
+
+	private static String millis(long micros) {
+		return String.format(Locale.ENGLISH, "%.3f", micros / 1000d);
+	}
+
+}
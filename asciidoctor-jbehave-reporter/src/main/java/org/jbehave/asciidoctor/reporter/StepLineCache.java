@@ -0,0 +1,171 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of step lines already rendered and UTF-8 encoded, keyed by
+ * the step template and the step text, so the steps data-driven scenarios
+ * repeat thousands of times are formatted once. It can be shared by the
+ * reporters of all stories; it is split into segments locked and evicted
+ * independently, each holding its share of the maximum size.
+ */
+public class StepLineCache {
+
+	public static final int DEFAULT_MAX_SIZE = 4096;
+
+	private static final int SEGMENTS = 16;
+
+	private final Segment[] segments = new Segment[SEGMENTS];
+	private final int maxSize;
+	private final EvictionPolicy evictionPolicy;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	public StepLineCache() {
+		this(DEFAULT_MAX_SIZE, EvictionPolicy.LEAST_RECENTLY_USED);
+	}
+
+	public StepLineCache(int maxSize, EvictionPolicy evictionPolicy) {
+
+		if (maxSize < SEGMENTS) {
+			throw new IllegalArgumentException("Maximum size must be at least "
+					+ SEGMENTS + " but was " + maxSize);
+		}
+
+		this.maxSize = maxSize;
+		this.evictionPolicy = evictionPolicy;
+
+		for (int i = 0; i < SEGMENTS; i++) {
+			this.segments[i] = new Segment(maxSize / SEGMENTS,
+					evictionPolicy == EvictionPolicy.LEAST_RECENTLY_USED);
+		}
+	}
+
+	/**
+	 * Returns the encoded line, or <code>null</code> so the caller renders it
+	 * and {@link #put(FragmentTemplate, String, byte[]) puts} it.
+	 */
+	public byte[] get(FragmentTemplate template, String step) {
+
+		Key key = new Key(template, step);
+		Segment segment = segmentFor(key);
+		byte[] line;
+
+		synchronized (segment) {
+			line = segment.get(key);
+		}
+
+		(line != null ? this.hits : this.misses).incrementAndGet();
+		return line;
+	}
+
+	public void put(FragmentTemplate template, String step, byte[] line) {
+
+		Key key = new Key(template, step);
+		Segment segment = segmentFor(key);
+
+		synchronized (segment) {
+			segment.put(key, line);
+		}
+	}
+
+	public int maxSize() {
+		return maxSize;
+	}
+
+	public EvictionPolicy evictionPolicy() {
+		return evictionPolicy;
+	}
+
+	public long hits() {
+		return hits.get();
+	}
+
+	public long misses() {
+		return misses.get();
+	}
+
+	public long evictions() {
+		return evictions.get();
+	}
+
+	public double hitRatio() {
+		long lookups = hits() + misses();
+		return lookups == 0 ? 0 : (double) hits() / lookups;
+	}
+
+	public int size() {
+		int size = 0;
+		for (Segment segment : this.segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	private Segment segmentFor(Key key) {
+		int hash = key.hashCode();
+		return this.segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+	}
+
+	@Override
+	public String toString() {
+		return "StepLineCache[size=" + size() + ", maxSize=" + maxSize
+				+ ", hits=" + hits() + ", misses=" + misses() + ", evictions="
+				+ evictions() + "]";
+	}
+
+	private final class Segment extends LinkedHashMap<Key, byte[]> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int capacity;
+
+		private Segment(int capacity, boolean accessOrder) {
+			super(16, 0.75f, accessOrder);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, byte[]> eldest) {
+			if (size() > this.capacity) {
+				evictions.incrementAndGet();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	private static final class Key {
+
+		private final FragmentTemplate template;
+		private final String step;
+		private final int hash;
+
+		private Key(FragmentTemplate template, String step) {
+			this.template = template;
+			this.step = step;
+			this.hash = 31 * System.identityHashCode(template) + step.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) other;
+			return this.template == key.template && this.step.equals(key.step);
+		}
+	}
+
+}
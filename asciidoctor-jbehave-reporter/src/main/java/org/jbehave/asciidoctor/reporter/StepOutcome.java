@@ -0,0 +1,33 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.util.Locale;
+
+public enum StepOutcome {
+
+	SUCCESSFUL(StoryResult.SUCCESS),
+	IGNORABLE(StoryResult.SUCCESS),
+	PENDING(StoryResult.SUCCESS_WITH_WARNING),
+	NOT_PERFORMED(StoryResult.SUCCESS_WITH_WARNING),
+	FAILED(StoryResult.FAIL),
+	RESTARTED(StoryResult.FAIL);
+
+	private final StoryResult result;
+	private final String label;
+
+	private StepOutcome(StoryResult result) {
+		this.result = result;
+		this.label = name().toLowerCase(Locale.ENGLISH).replace('_', '-');
+	}
+
+	/**
+	 * @return how the outcome affects the result of its scenario and story.
+	 */
+	public StoryResult result() {
+		return result;
+	}
+
+	public String label() {
+		return label;
+	}
+
+}
@@ -0,0 +1,289 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the step every story is running from a single daemon thread shared
+ * by all reporters. A step running longer than the threshold gets a
+ * diagnostics file with the step, how long it has been running and the stack
+ * of the thread running it, and a cancelled story reports the step it was
+ * stuck in. The stack is taken as the step passes the threshold: JBehave
+ * cancels a story on its own thread once the step has been interrupted, when
+ * the step may already have finished and the thread has moved on.
+ * <p>
+ * Steps are only seen as they start if JBehave reports them live, see
+ * {@link LiveStoryReporterBuilder}.
+ */
+public class StepWatchdog implements Closeable {
+
+	public static final String DIAGNOSTICS_EXTENSION = ".stuck.txt";
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final String NEW_LINE = System.getProperty("line.separator");
+
+	private final long thresholdNanos;
+	private final File diagnosticsDirectory;
+	private final ConcurrentMap<String, InFlightStep> inFlight = new ConcurrentHashMap<String, InFlightStep>();
+	private final ConcurrentMap<String, InFlightStep> lastStuck = new ConcurrentHashMap<String, InFlightStep>();
+
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * Diagnostics files are written to the given directory, or only reported
+	 * in cancelled stories if it is <code>null</code>.
+	 */
+	public StepWatchdog(long thresholdMillis, File diagnosticsDirectory) {
+		this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+		this.diagnosticsDirectory = diagnosticsDirectory;
+	}
+
+	public void stepStarted(String storyPath, String step) {
+		startScheduler();
+		this.inFlight.put(storyPath, new InFlightStep(storyPath, step,
+				Thread.currentThread()));
+	}
+
+	/**
+	 * A step that got stuck is kept until the story finishes, for the story
+	 * to report if it is cancelled.
+	 */
+	public void stepFinished(String storyPath) {
+		InFlightStep step = this.inFlight.remove(storyPath);
+		if (step != null && step.threadDump != null) {
+			step.finished = System.nanoTime();
+			this.lastStuck.put(storyPath, step);
+		}
+	}
+
+	public void storyFinished(String storyPath) {
+		this.inFlight.remove(storyPath);
+		this.lastStuck.remove(storyPath);
+	}
+
+	/**
+	 * The step the story is running, or else the last one it got stuck in,
+	 * with how long and its stack, or <code>null</code> if there is none.
+	 * The stack is the one taken past the threshold, or taken now for a step
+	 * still running that has not reached it.
+	 */
+	public StuckStep inFlight(String storyPath) {
+
+		InFlightStep step = this.inFlight.get(storyPath);
+		if (step == null) {
+			step = this.lastStuck.get(storyPath);
+		}
+
+		if (step == null) {
+			return null;
+		}
+
+		long end = step.finished > 0 ? step.finished : System.nanoTime();
+		String threadDump = step.threadDump != null ? step.threadDump
+				: threadDump(step.thread);
+
+		return new StuckStep(step.step, end - step.start, threadDump,
+				step.diagnosticsFile);
+	}
+
+	@Override
+	public synchronized void close() {
+		if (this.scheduler != null) {
+			this.scheduler.shutdownNow();
+			this.scheduler = null;
+		}
+	}
+
+	private synchronized void startScheduler() {
+
+		if (this.scheduler != null) {
+			return;
+		}
+
+		this.scheduler = Executors
+				.newSingleThreadScheduledExecutor(new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable,
+								"asciidoctor-jbehave-step-watchdog");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+
+		long period = Math.max(TimeUnit.MILLISECONDS.toNanos(50),
+				this.thresholdNanos / 4);
+		this.scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				check();
+			}
+		}, period, period, TimeUnit.NANOSECONDS);
+	}
+
+	synchronized void check() {
+
+		long now = System.nanoTime();
+
+		for (InFlightStep step : this.inFlight.values()) {
+			if (step.threadDump == null
+					&& now - step.start >= this.thresholdNanos) {
+				step.threadDump = threadDump(step.thread);
+				step.diagnosticsFile = writeDiagnostics(step, now - step.start);
+			}
+		}
+	}
+
+	private File writeDiagnostics(InFlightStep step, long elapsedNanos) {
+
+		if (this.diagnosticsDirectory == null) {
+			return null;
+		}
+
+		this.diagnosticsDirectory.mkdirs();
+		File file = new File(this.diagnosticsDirectory, step.storyPath
+				.replaceAll("[^A-Za-z0-9._-]", "_") + DIAGNOSTICS_EXTENSION);
+
+		String diagnostics = "Story: " + step.storyPath + NEW_LINE + "Step: "
+				+ step.step + NEW_LINE + "Running for: "
+				+ TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms"
+				+ NEW_LINE + NEW_LINE + step.threadDump;
+
+		OutputStream output = null;
+		try {
+			output = new FileOutputStream(file);
+			output.write(diagnostics.getBytes(UTF_8));
+		} catch (IOException e) {
+			// diagnostics must never fail the run they diagnose
+			return null;
+		} finally {
+			if (output != null) {
+				try {
+					output.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+
+		return file;
+	}
+
+	static String threadDump(Thread thread) {
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		ThreadInfo[] infos = threads.getThreadInfo(
+				new long[] { thread.getId() },
+				threads.isObjectMonitorUsageSupported(),
+				threads.isSynchronizerUsageSupported());
+
+		StringBuilder dump = new StringBuilder();
+		ThreadInfo info = infos.length > 0 ? infos[0] : null;
+
+		if (info == null) {
+			dump.append('"').append(thread.getName()).append("\" ")
+					.append(thread.getState()).append(NEW_LINE);
+			for (StackTraceElement frame : thread.getStackTrace()) {
+				dump.append("\tat ").append(frame).append(NEW_LINE);
+			}
+			return dump.toString();
+		}
+
+		dump.append('"').append(info.getThreadName()).append("\" ")
+				.append(info.getThreadState());
+		if (info.getLockName() != null) {
+			dump.append(" on ").append(info.getLockName());
+		}
+		if (info.getLockOwnerName() != null) {
+			dump.append(" owned by \"").append(info.getLockOwnerName())
+					.append('"');
+		}
+		dump.append(NEW_LINE);
+
+		StackTraceElement[] frames = info.getStackTrace();
+		MonitorInfo[] monitors = info.getLockedMonitors();
+
+		for (int depth = 0; depth < frames.length; depth++) {
+			dump.append("\tat ").append(frames[depth]).append(NEW_LINE);
+			for (MonitorInfo monitor : monitors) {
+				if (monitor.getLockedStackDepth() == depth) {
+					dump.append("\t- locked ").append(monitor).append(NEW_LINE);
+				}
+			}
+		}
+
+		for (LockInfo synchronizer : info.getLockedSynchronizers()) {
+			dump.append("\t- locked ").append(synchronizer).append(NEW_LINE);
+		}
+
+		return dump.toString();
+	}
+
+	private static final class InFlightStep {
+
+		private final String storyPath;
+		private final String step;
+		private final Thread thread;
+		private final long start = System.nanoTime();
+		private volatile String threadDump;
+		private volatile File diagnosticsFile;
+		private volatile long finished;
+
+		private InFlightStep(String storyPath, String step, Thread thread) {
+			this.storyPath = storyPath;
+			this.step = step;
+			this.thread = thread;
+		}
+	}
+
+	public static final class StuckStep {
+
+		private final String step;
+		private final long elapsedNanos;
+		private final String threadDump;
+		private final File diagnosticsFile;
+
+		private StuckStep(String step, long elapsedNanos, String threadDump,
+				File diagnosticsFile) {
+			this.step = step;
+			this.elapsedNanos = elapsedNanos;
+			this.threadDump = threadDump;
+			this.diagnosticsFile = diagnosticsFile;
+		}
+
+		public String getStep() {
+			return step;
+		}
+
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		public String getThreadDump() {
+			return threadDump;
+		}
+
+		/**
+		 * The diagnostics written once the step passed the threshold, or
+		 * <code>null</code> if it has not yet.
+		 */
+		public File getDiagnosticsFile() {
+			return diagnosticsFile;
+		}
+	}
+
+}
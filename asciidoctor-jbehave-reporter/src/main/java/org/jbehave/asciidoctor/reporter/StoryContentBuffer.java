@@ -0,0 +1,178 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * UTF-8 encoded content of the story being reported, kept in fixed size
+ * chunks so it never has to be copied to grow. The story result is only known
+ * once the story finishes, so its position is marked and it is spliced in
+ * when the content is drained.
+ */
+public class StoryContentBuffer {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final ChunkAllocator allocator;
+	private final CharsetEncoder encoder;
+	private final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+
+	private ByteBuffer current;
+	private int markChunk = -1;
+	private int markPosition = -1;
+
+	public StoryContentBuffer(ChunkAllocator allocator) {
+		this.allocator = allocator;
+		this.encoder = UTF_8.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	public StoryContentBuffer append(CharSequence content) {
+
+		CharBuffer chars = CharBuffer.wrap(content);
+		this.encoder.reset();
+
+		ByteBuffer chunk = currentChunk();
+		boolean endOfInput = false;
+
+		while (true) {
+			CoderResult result = endOfInput ? this.encoder.flush(chunk)
+					: this.encoder.encode(chars, chunk, true);
+
+			if (result.isOverflow()) {
+				chunk = nextChunk();
+			} else if (!endOfInput) {
+				endOfInput = true;
+			} else {
+				return this;
+			}
+		}
+	}
+
+	public StoryContentBuffer append(byte[] encoded) {
+
+		ByteBuffer chunk = currentChunk();
+		int offset = 0;
+
+		while (offset < encoded.length) {
+
+			if (!chunk.hasRemaining()) {
+				chunk = nextChunk();
+			}
+
+			int length = Math.min(encoded.length - offset, chunk.remaining());
+			chunk.put(encoded, offset, length);
+			offset += length;
+		}
+
+		return this;
+	}
+
+	public StoryContentBuffer append(ByteBuffer encoded) {
+
+		ByteBuffer chunk = currentChunk();
+
+		while (encoded.hasRemaining()) {
+
+			if (!chunk.hasRemaining()) {
+				chunk = nextChunk();
+			}
+
+			int length = Math.min(encoded.remaining(), chunk.remaining());
+			ByteBuffer slice = encoded.duplicate();
+			slice.limit(slice.position() + length);
+			chunk.put(slice);
+			encoded.position(encoded.position() + length);
+		}
+
+		return this;
+	}
+
+	public void markStoryResult() {
+		currentChunk();
+		this.markChunk = this.chunks.size() - 1;
+		this.markPosition = this.current.position();
+	}
+
+	public long size() {
+		long size = 0;
+		for (ByteBuffer chunk : this.chunks) {
+			size += chunk.position();
+		}
+		return size;
+	}
+
+	/**
+	 * Writes the content to the sink with a single gathering write and
+	 * returns the chunks to the allocator.
+	 */
+	public void drainTo(ReportSink sink, CharSequence storyResult) {
+
+		List<ByteBuffer> buffers = new ArrayList<ByteBuffer>(
+				this.chunks.size() + 2);
+
+		for (int i = 0; i < this.chunks.size(); i++) {
+
+			ByteBuffer content = this.chunks.get(i).duplicate();
+			content.flip();
+
+			if (i == this.markChunk) {
+				ByteBuffer beforeMark = content.duplicate();
+				beforeMark.limit(this.markPosition);
+				buffers.add(beforeMark);
+				buffers.add(UTF_8.encode(CharBuffer.wrap(storyResult)));
+				content.position(this.markPosition);
+			}
+
+			buffers.add(content);
+		}
+
+		sink.write(buffers.toArray(new ByteBuffer[buffers.size()]));
+		release();
+	}
+
+	public void release() {
+
+		for (ByteBuffer chunk : this.chunks) {
+			this.allocator.release(chunk);
+		}
+
+		this.chunks.clear();
+		this.current = null;
+		this.markChunk = -1;
+		this.markPosition = -1;
+	}
+
+	private ByteBuffer currentChunk() {
+		return this.current == null ? nextChunk() : this.current;
+	}
+
+	private ByteBuffer nextChunk() {
+		this.current = this.allocator.acquire();
+		this.chunks.add(this.current);
+		return this.current;
+	}
+
+	@Override
+	public String toString() {
+
+		ByteBuffer content = ByteBuffer.allocate((int) size());
+
+		for (ByteBuffer chunk : this.chunks) {
+			ByteBuffer encoded = chunk.duplicate();
+			encoded.flip();
+			content.put(encoded);
+		}
+
+		content.flip();
+		return UTF_8.decode(content).toString();
+	}
+
+}
@@ -0,0 +1,170 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Duration of every story across runs, one tab separated line per story path,
+ * that {@link StoryOrdering} schedules the longest stories first from. Each
+ * run is averaged with the history so one slow run does not reorder the
+ * suite, and stories that did not run keep their history. Durations of
+ * stories include the given stories they run, which are also kept on their
+ * own, marked <code>given</code>, for {@link ShardPlanner} to estimate new
+ * stories with. The file is rewritten once the <code>AfterStories</code>
+ * report is complete.
+ */
+public class StoryDurationHistory implements ReportListener {
+
+	public static final String HISTORY_FILE = "story-durations.tsv";
+
+	// weight of the latest run against the history
+	private static final double SMOOTHING = 0.5;
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final String HEADER = "# story\tdurationNanos\tkind";
+	private static final String GIVEN = "given";
+	private static final String BEFORE_STORIES = "BeforeStories";
+
+	private final File historyFile;
+	private final Map<String, Long> durations;
+	private final Map<String, Long> givenDurations;
+
+	public StoryDurationHistory(File historyFile) {
+		this.historyFile = historyFile;
+		this.durations = load(historyFile);
+		this.givenDurations = loadGivenStories(historyFile);
+	}
+
+	public File getHistoryFile() {
+		return historyFile;
+	}
+
+	@Override
+	public synchronized void onEvent(ReportEvent event) {
+
+		if (event.getType() != ReportEvent.Type.STORY_FINISHED
+				|| BEFORE_STORIES.equals(event.getStoryPath())) {
+			return;
+		}
+
+		if (ProfilingStoryReporter.AFTER_STORIES.equals(event.getStoryPath())) {
+			write();
+			return;
+		}
+
+		record(event.isGivenStory() ? this.givenDurations : this.durations,
+				event.getStoryPath(), event.getDurationNanos());
+	}
+
+	private static void record(Map<String, Long> durations, String storyPath,
+			long duration) {
+		Long previous = durations.get(storyPath);
+		durations.put(storyPath, previous == null ? duration
+				: (long) (previous * (1 - SMOOTHING) + duration * SMOOTHING));
+	}
+
+	public synchronized Map<String, Long> durations() {
+		return new TreeMap<String, Long>(this.durations);
+	}
+
+	private void write() {
+
+		File aside = AsideFile.of(this.historyFile);
+
+		Writer writer = null;
+		try {
+			writer = new BufferedWriter(new OutputStreamWriter(
+					new FileOutputStream(aside), UTF_8));
+			writer.write(HEADER);
+			writer.write('\n');
+			for (Map.Entry<String, Long> story : this.durations.entrySet()) {
+				writer.write(RunSummary.clean(story.getKey()) + '\t'
+						+ story.getValue() + '\n');
+			}
+			for (Map.Entry<String, Long> given : this.givenDurations
+					.entrySet()) {
+				writer.write(RunSummary.clean(given.getKey()) + '\t'
+						+ given.getValue() + '\t' + GIVEN + '\n');
+			}
+			writer.close();
+			writer = null;
+		} catch (IOException e) {
+			throw new ReportOutputFailed(aside, e);
+		} finally {
+			if (writer != null) {
+				try {
+					writer.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+
+		// a history cut short by a crash would reorder the next run badly
+		AsideFile.replace(aside, this.historyFile);
+	}
+
+	/**
+	 * Reads a history as durations in nanoseconds by story path, empty if
+	 * there is none yet.
+	 */
+	public static Map<String, Long> load(File historyFile) {
+		return load(historyFile, false);
+	}
+
+	/**
+	 * Reads the durations of given stories run on their own in a history.
+	 */
+	public static Map<String, Long> loadGivenStories(File historyFile) {
+		return load(historyFile, true);
+	}
+
+	private static Map<String, Long> load(File historyFile, boolean given) {
+
+		Map<String, Long> durations = new TreeMap<String, Long>();
+
+		if (!historyFile.isFile()) {
+			return durations;
+		}
+
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(
+					new FileInputStream(historyFile), UTF_8));
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split("\t");
+				if (line.startsWith("#") || fields.length < 2
+						|| given != (fields.length > 2 && GIVEN.equals(fields[2]))) {
+					continue;
+				}
+				try {
+					durations.put(fields[0], Long.parseLong(fields[1]));
+				} catch (NumberFormatException e) {
+					// a damaged line only loses the history of its story
+				}
+			}
+		} catch (IOException e) {
+			throw new ReportOutputFailed(historyFile, e);
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+
+		return durations;
+	}
+
+}
@@ -0,0 +1,69 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Orders story paths longest processing time first from a
+ * {@link StoryDurationHistory}, so a multi threaded run does not end waiting
+ * on a long story started last:
+ * 
+ * <pre>
+ * protected List&lt;String&gt; storyPaths() {
+ *     return StoryOrdering.longestFirst(new StoryFinder().findPaths(...),
+ *             new File(&quot;src/test/resources/story-durations.tsv&quot;));
+ * }
+ * </pre>
+ * 
+ * Stories without history are expected to take the average of those with
+ * one.
+ */
+public final class StoryOrdering {
+
+	private StoryOrdering() {
+	}
+
+	public static List<String> longestFirst(List<String> storyPaths,
+			File historyFile) {
+		return longestFirst(storyPaths, StoryDurationHistory.load(historyFile));
+	}
+
+	public static List<String> longestFirst(List<String> storyPaths,
+			final Map<String, Long> durations) {
+
+		long total = 0;
+		int known = 0;
+		for (String storyPath : storyPaths) {
+			Long duration = durations.get(storyPath);
+			if (duration != null) {
+				total += duration;
+				known++;
+			}
+		}
+		final long average = known > 0 ? total / known : 0;
+
+		List<String> ordered = new ArrayList<String>(storyPaths);
+
+		// stable, stories expected to take as long keep their order
+		Collections.sort(ordered, new Comparator<String>() {
+			@Override
+			public int compare(String one, String other) {
+				long first = estimate(one);
+				long second = estimate(other);
+				return first > second ? -1 : first < second ? 1 : 0;
+			}
+
+			private long estimate(String storyPath) {
+				Long duration = durations.get(storyPath);
+				return duration != null ? duration : average;
+			}
+		});
+
+		return ordered;
+	}
+
+}
@@ -0,0 +1,14 @@
+package org.jbehave.asciidoctor.reporter;
+
+/**
+ * Result of a story or a scenario, from the best to the worst.
+ */
+public enum StoryResult {
+
+	SUCCESS, SUCCESS_WITH_WARNING, FAIL;
+
+	public StoryResult worst(StoryResult other) {
+		return other.ordinal() > ordinal() ? other : this;
+	}
+
+}
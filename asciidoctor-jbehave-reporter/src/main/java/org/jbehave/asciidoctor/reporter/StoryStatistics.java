@@ -0,0 +1,110 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counters of a story and of each of its scenarios, updated in constant time
+ * on every callback and rendered as a table next to the story result.
+ * Steps of given stories count towards the scenario running them.
+ */
+public class StoryStatistics {
+
+	private final Counters story = new Counters(null);
+	private final List<Counters> scenarios = new ArrayList<Counters>();
+	private Counters scenario;
+
+	public void storyStarted() {
+		this.story.start = System.nanoTime();
+	}
+
+	public void scenarioStarted(String title) {
+		this.scenario = new Counters(title);
+		this.scenario.start = System.nanoTime();
+		this.scenarios.add(this.scenario);
+	}
+
+	public void scenarioFinished() {
+		if (this.scenario != null) {
+			this.scenario.elapsed = System.nanoTime() - this.scenario.start;
+			this.scenario = null;
+		}
+	}
+
+	public void step(StepOutcome outcome) {
+		this.story.steps[outcome.ordinal()]++;
+		if (this.scenario != null) {
+			this.scenario.steps[outcome.ordinal()]++;
+		}
+	}
+
+	public void example() {
+		this.story.examples++;
+		if (this.scenario != null) {
+			this.scenario.examples++;
+		}
+	}
+
+	public void storyFinished() {
+		this.story.elapsed = System.nanoTime() - this.story.start;
+	}
+
+	public long steps(StepOutcome outcome) {
+		return this.story.steps[outcome.ordinal()];
+	}
+
+	public long examples() {
+		return this.story.examples;
+	}
+
+	public long elapsedNanos() {
+		return this.story.elapsed;
+	}
+
+	public int scenarios() {
+		return this.scenarios.size();
+	}
+
+	public String render(FragmentTemplates templates) {
+
+		StringBuilder table = new StringBuilder(templates.get(
+				ReportFragment.STATISTICS_START).render());
+
+		FragmentTemplate row = templates.get(ReportFragment.STATISTICS_SCENARIO);
+		for (Counters scenario : this.scenarios) {
+			table.append(row.render(scenario.values(scenario.title)));
+		}
+
+		table.append(templates.get(ReportFragment.STATISTICS_END).render(
+				this.story.values("Total")));
+
+		return table.toString();
+	}
+
+	private static final class Counters {
+
+		private final String title;
+		private final long[] steps = new long[StepOutcome.values().length];
+		private long examples;
+		private long start;
+		private long elapsed;
+
+		private Counters(String title) {
+			this.title = title;
+		}
+
+		private String[] values(String name) {
+			return new String[] { name,
+					Long.toString(this.steps[StepOutcome.SUCCESSFUL.ordinal()]),
+					Long.toString(this.steps[StepOutcome.IGNORABLE.ordinal()]),
+					Long.toString(this.steps[StepOutcome.PENDING.ordinal()]),
+					Long.toString(this.steps[StepOutcome.NOT_PERFORMED.ordinal()]),
+					Long.toString(this.steps[StepOutcome.FAILED.ordinal()]
+							+ this.steps[StepOutcome.RESTARTED.ordinal()]),
+					Long.toString(this.examples),
+					Long.toString(TimeUnit.NANOSECONDS.toMillis(this.elapsed)) };
+		}
+	}
+
+}
@@ -0,0 +1,105 @@
+package org.jbehave.asciidoctor.reporter;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Streams a self-contained SVG document element by element, nothing of the
+ * chart is kept in memory.
+ */
+final class SvgChartWriter implements Closeable {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final File file;
+	private final Writer writer;
+
+	SvgChartWriter(File file, int width, int height) {
+
+		this.file = file;
+		file.getAbsoluteFile().getParentFile().mkdirs();
+
+		try {
+			this.writer = new BufferedWriter(new OutputStreamWriter(
+					new FileOutputStream(file), UTF_8));
+		} catch (IOException e) {
+			throw new ReportOutputFailed(file, e);
+		}
+
+		write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + width
+				+ "\" height=\"" + height + "\" viewBox=\"0 0 " + width + " "
+				+ height + "\" font-family=\"sans-serif\" font-size=\"11\">\n"
+				+ "<rect width=\"100%\" height=\"100%\" fill=\"white\"/>\n");
+	}
+
+	void bar(int x, int y, int width, int height, String fill, String title) {
+		write("<rect x=\"" + x + "\" y=\"" + y + "\" width=\""
+				+ Math.max(width, 1) + "\" height=\"" + Math.max(height, 1)
+				+ "\" fill=\"" + fill + "\"><title>" + escape(title)
+				+ "</title></rect>\n");
+	}
+
+	void line(int x1, int y1, int x2, int y2) {
+		write("<line x1=\"" + x1 + "\" y1=\"" + y1 + "\" x2=\"" + x2
+				+ "\" y2=\"" + y2 + "\" stroke=\"#999\"/>\n");
+	}
+
+	/**
+	 * Anchor is one of <code>start</code>, <code>middle</code> or
+	 * <code>end</code>.
+	 */
+	void text(int x, int y, String anchor, String text) {
+		write("<text x=\"" + x + "\" y=\"" + y + "\" text-anchor=\"" + anchor
+				+ "\">" + escape(text) + "</text>\n");
+	}
+
+	@Override
+	public void close() {
+		try {
+			this.writer.write("</svg>\n");
+			this.writer.close();
+		} catch (IOException e) {
+			throw new ReportOutputFailed(this.file, e);
+		}
+	}
+
+	private void write(String element) {
+		try {
+			this.writer.write(element);
+		} catch (IOException e) {
+			throw new ReportOutputFailed(this.file, e);
+		}
+	}
+
+	static String escape(String text) {
+
+		StringBuilder escaped = null;
+
+		for (int i = 0; i < text.length(); i++) {
+
+			char c = text.charAt(i);
+			String entity = c == '<' ? "&lt;" : c == '>' ? "&gt;"
+					: c == '&' ? "&amp;" : c == '"' ? "&quot;" : null;
+
+			if (entity != null && escaped == null) {
+				escaped = new StringBuilder(text.length() + 16).append(text, 0, i);
+			}
+			if (escaped != null) {
+				if (entity != null) {
+					escaped.append(entity);
+				} else {
+					escaped.append(c);
+				}
+			}
+		}
+
+		return escaped != null ? escaped.toString() : text;
+	}
+
+}
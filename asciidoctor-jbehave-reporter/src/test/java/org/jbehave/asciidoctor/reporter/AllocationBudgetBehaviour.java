@@ -0,0 +1,235 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.hamcrest.Matchers;
+import org.jbehave.core.i18n.LocalizedKeywords;
+import org.jbehave.core.failures.UUIDExceptionWrapper;
+import org.jbehave.core.model.ExamplesTable;
+import org.jbehave.core.model.OutcomesTable;
+import org.jbehave.core.model.Story;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Measures the bytes every reporter callback allocates once warm. Budgets are
+ * bytes per call and can be overridden with
+ * <code>-Dallocation.budget.&lt;callback&gt;=bytes</code>, a change bringing
+ * back per step concatenation or temporary builders goes over them.
+ */
+public class AllocationBudgetBehaviour {
+
+	private static final int WARM_UP_CALLS = 20000;
+	private static final int MEASURED_CALLS = 20000;
+
+	private static final Story STORY = new Story("/allocation/budget.story");
+
+	private final String[] steps = new String[64];
+	private final Throwable failure = new UUIDExceptionWrapper(new Exception(
+			"Expected <30> got <25>"));
+	private final List<String> exampleSteps = asList("Given money <money>",
+			"Then I give it to <to>");
+	private final ExamplesTable examples = new ExamplesTable(
+			"|money|to|\n|$30|Mauro|\n|$50|Paul|\n");
+	private final OutcomesTable outcomes = new OutcomesTable(
+			new LocalizedKeywords(), "dd/MM/yyyy");
+
+	private com.sun.management.ThreadMXBean threads;
+	private long threadId;
+	private AsciidoctorStoryReporter reporter;
+
+	@Before
+	public void measureAllocations() {
+
+		assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+		threadId = Thread.currentThread().getId();
+
+		for (int i = 0; i < steps.length; i++) {
+			steps[i] = "Given a successful step number " + i
+					+ " with a value of $" + i;
+		}
+		outcomes.addOutcome("I don't return all", 100.0,
+				Matchers.equalTo(100.0));
+
+		// story content lives in pooled off heap chunks and is flushed as it
+		// goes, so only what the callbacks themselves allocate is measured
+		reporter = new AsciidoctorStoryReporter(new DiscardingReportSink(),
+				null, new AsciidoctorReporterConfiguration()
+						.withStoryContentAllocator(new DirectChunkPool(16 * 1024, 16))
+						.withProgressiveReport(true)
+						.withProgressiveFlushBytes(32 * 1024));
+		reporter.beforeStory(STORY, false);
+	}
+
+	@Test
+	public void shouldReportSuccessfulStepsWithinBudget() {
+		assertWithinBudget("successful", new Callback() {
+			@Override
+			public void call(int i) {
+				reporter.successful(steps[i & 63]);
+			}
+		});
+	}
+
+	@Test
+	public void shouldReportFailedStepsWithinBudget() {
+		assertWithinBudget("failed", new Callback() {
+			@Override
+			public void call(int i) {
+				reporter.failed(steps[i & 63], failure);
+			}
+		});
+	}
+
+	@Test
+	public void shouldStartScenariosWithinBudget() {
+		assertWithinBudget("beforeScenario", new Callback() {
+			@Override
+			public void call(int i) {
+				reporter.beforeScenario(steps[i & 63]);
+			}
+		}, new Callback() {
+			@Override
+			public void call(int i) {
+				reporter.afterScenario();
+			}
+		});
+	}
+
+	@Test
+	public void shouldReportExamplesWithinBudget() {
+		assertWithinBudget("beforeExamples", new Callback() {
+			@Override
+			public void call(int i) {
+				reporter.beforeExamples(exampleSteps, examples);
+			}
+		});
+	}
+
+	@Test
+	public void shouldReportFailedOutcomesWithinBudget() {
+		assertWithinBudget("failedOutcomes", new Callback() {
+			@Override
+			public void call(int i) {
+				reporter.failedOutcomes(steps[i & 63], outcomes);
+			}
+		});
+	}
+
+	@Test
+	public void shouldFinishStoriesWithinBudget() {
+
+		reporter.afterStory(false);
+
+		assertWithinBudget("afterStory", new Callback() {
+			@Override
+			public void call(int i) {
+				reporter.afterStory(false);
+			}
+		}, new Callback() {
+			@Override
+			public void call(int i) {
+				reporter.beforeStory(STORY, false);
+				reporter.successful(steps[i & 63]);
+			}
+		});
+	}
+
+	private void assertWithinBudget(String callback, Callback measured) {
+		assertWithinBudget(callback, measured, null);
+	}
+
+	/**
+	 * Only <code>measured</code> is counted, <code>between</code> runs after
+	 * every measured call to keep the reporter in a state to take the next.
+	 */
+	private void assertWithinBudget(String callback, Callback measured,
+			Callback between) {
+
+		long budget = Long.getLong("allocation.budget." + callback,
+				DefaultBudget.valueOf(callback).bytes);
+
+		run(measured, between, WARM_UP_CALLS);
+		long bytesPerCall = (run(measured, between, MEASURED_CALLS) - run(
+				NOTHING, between, MEASURED_CALLS)) / MEASURED_CALLS;
+
+		assertThat(callback + " bytes per call", bytesPerCall,
+				lessThanOrEqualTo(budget));
+	}
+
+	private long run(Callback measured, Callback between, int calls) {
+
+		long allocated = 0;
+
+		for (int i = 0; i < calls; i++) {
+			long before = threads.getThreadAllocatedBytes(threadId);
+			measured.call(i);
+			allocated += threads.getThreadAllocatedBytes(threadId) - before;
+			if (between != null) {
+				between.call(i);
+			}
+		}
+
+		return allocated;
+	}
+
+	private interface Callback {
+		void call(int i);
+	}
+
+	private static final Callback NOTHING = new Callback() {
+		@Override
+		public void call(int i) {
+		}
+	};
+
+	/**
+	 * About one and a half times what the callbacks allocate on a 64-bit
+	 * HotSpot with compressed pointers.
+	 */
+	private enum DefaultBudget {
+
+		successful(512), failed(1024), beforeScenario(512), beforeExamples(1536), failedOutcomes(
+				2048), afterStory(1536);
+
+		private final long bytes;
+
+		private DefaultBudget(long bytes) {
+			this.bytes = bytes;
+		}
+	}
+
+	private static class DiscardingReportSink implements ReportSink {
+
+		@Override
+		public void write(CharSequence content) {
+		}
+
+		@Override
+		public void write(ByteBuffer... content) {
+			for (ByteBuffer buffer : content) {
+				buffer.position(buffer.limit());
+			}
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+}
@@ -0,0 +1,131 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ArchiveBehaviour {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void shouldStoreEveryFragmentOnceAcrossRuns() throws Exception {
+
+		File objects = temporaryFolder.newFolder("objects");
+		FragmentStore store = new FragmentStore(objects);
+
+		String first = narrateArchived(store);
+		long stored = store.stored();
+		String second = narrateArchived(store);
+
+		assertThat(second, is(first));
+		assertThat(stored, greaterThan(1L));
+		assertThat(store.stored(), is(stored));
+		assertThat(store.fragments(), is(2 * stored));
+		for (String line : first.split(System.getProperty("line.separator"))) {
+			assertThat(line, startsWith("include::objects/"));
+		}
+
+		InMemoryReportSink plain = new InMemoryReportSink();
+		StoryNarrator.narrateAnInterestingStoryWithFailures(
+				new AsciidoctorStoryReporter(plain, null,
+						new AsciidoctorReporterConfiguration()), false);
+
+		assertThat(resolveIncludes(first), is(plain.toString()));
+	}
+
+	@Test
+	public void shouldIncludeFragmentsRelativeToTheReport() {
+
+		File root = temporaryFolder.getRoot();
+		FragmentStore store = new FragmentStore(new File(root, "archive"));
+
+		assertThat(store.includePrefix(new File(root, "jbehave/org/acme/login.adoc")),
+				is("../../../archive/"));
+	}
+
+	@Test
+	public void shouldSweepFragmentsNoRetainedDocumentIncludes()
+			throws Exception {
+
+		File root = temporaryFolder.getRoot();
+		FragmentStore store = new FragmentStore(new File(root, "archive"));
+		File expired = new File(root, "runs/1/story.adoc");
+		File retained = new File(root, "runs/2/story.adoc");
+		archive(store, expired, false);
+		archive(store, retained, true);
+		int stored = (int) store.stored();
+
+		assertThat(store.sweep(Arrays.asList(new File(root, "runs"))), is(0));
+
+		expired.delete();
+		int removed = store.sweep(Arrays.asList(new File(root, "runs")));
+
+		assertThat(removed, greaterThan(0));
+		assertThat(removed, lessThan(stored));
+		for (String line : ReportSinkBehaviour.read(retained).split(
+				System.getProperty("line.separator"))) {
+			File fragment = new File(retained.getParentFile(), line.substring(
+					"include::".length(), line.length() - "[]".length()));
+			assertThat(fragment.isFile(), is(true));
+		}
+	}
+
+	private static void archive(FragmentStore store, File document,
+			boolean failures) throws IOException {
+
+		InMemoryReportSink content = new InMemoryReportSink();
+		AsciidoctorStoryReporter reporter = new AsciidoctorStoryReporter(
+				new ArchiveReportSink(content, store,
+						store.includePrefix(document)), null,
+				new AsciidoctorReporterConfiguration());
+		if (failures) {
+			StoryNarrator.narrateAnInterestingStoryWithFailures(reporter, false);
+		} else {
+			StoryNarrator.narrateAnInterestingStoryWithSuccess(reporter, false);
+		}
+
+		document.getParentFile().mkdirs();
+		FileOutputStream output = new FileOutputStream(document);
+		try {
+			output.write(content.toByteArray());
+		} finally {
+			output.close();
+		}
+	}
+
+	private static String narrateArchived(FragmentStore store) throws Exception {
+
+		InMemoryReportSink document = new InMemoryReportSink();
+		StoryNarrator.narrateAnInterestingStoryWithFailures(
+				new AsciidoctorStoryReporter(new ArchiveReportSink(document,
+						store, "objects/"), null,
+						new AsciidoctorReporterConfiguration()), false);
+		return document.toString();
+	}
+
+	private String resolveIncludes(String document) throws IOException {
+
+		StringBuilder resolved = new StringBuilder();
+		for (String line : document.split(System.getProperty("line.separator"))) {
+			String path = line.substring("include::".length(),
+					line.length() - "[]".length());
+			resolved.append(ReportSinkBehaviour.read(new File(temporaryFolder
+					.getRoot(), path)));
+		}
+		return resolved.toString();
+	}
+
+}
@@ -60,7 +60,7 @@ public class AsciidoctorStoryReporterBehaviour {
 			"[WARNING]\n" + 
 			".Story Cancelled with Timeout [1 sec.]\n" + 
 			"====\n" + 
-			"/path/to/story icon:remove-circle[role=\"orange\"]\n" + 
+			"/path/to/story icon:remove-circle[role=\"yellow\"]\n" + 
 			"====\n" + 
 			"\n" + 
 			"*Then* I should have a balance of $30 icon:spinner[role=\"black\"]\n" + 
@@ -0,0 +1,150 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.util.Map;
+
+import org.jbehave.asciidoctor.reporter.RunSummary.ScenarioSummary;
+import org.jbehave.core.model.OutcomesTable;
+import org.jbehave.core.model.Story;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DeltaReportBehaviour {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void shouldSummarizeEveryScenarioOfTheRun() {
+
+		File summaryFile = new File(temporaryFolder.getRoot(),
+				RunSummary.SUMMARY_FILE);
+		run(new RunSummary(summaryFile), false);
+
+		Map<String, Map<String, ScenarioSummary>> summary = RunSummary
+				.load(summaryFile);
+
+		ScenarioSummary transfer = summary.get("/bank/transfer.story").get(
+				"Transfer");
+		assertThat(transfer.getResult(), is(StoryResult.SUCCESS));
+		assertThat(transfer.getSteps(), is("ss"));
+		assertThat(summary.get("/bank/transfer.story").get("Withdraw")
+				.getSteps(), is("p"));
+	}
+
+	@Test
+	public void shouldTellUntitledScenariosApartByTheirPlaceInTheStory() {
+
+		File summaryFile = new File(temporaryFolder.getRoot(),
+				RunSummary.SUMMARY_FILE);
+		AsciidoctorReporterConfiguration configuration = new AsciidoctorReporterConfiguration()
+				.withListener(new RunSummary(summaryFile));
+
+		AsciidoctorStoryReporter reporter = new AsciidoctorStoryReporter(
+				new InMemoryReportSink(), null, configuration);
+		reporter.beforeStory(new Story("/bank/untitled.story"), false);
+		reporter.beforeScenario(null);
+		reporter.successful("Given an account with 20");
+		reporter.afterScenario();
+		reporter.beforeScenario("");
+		reporter.pending("When I withdraw 5");
+		reporter.afterScenario();
+		reporter.afterStory(false);
+
+		AsciidoctorStoryReporter afterStories = new AsciidoctorStoryReporter(
+				new InMemoryReportSink(), null, configuration);
+		afterStories.beforeStory(
+				new Story(ProfilingStoryReporter.AFTER_STORIES), false);
+		afterStories.afterStory(false);
+
+		Map<String, ScenarioSummary> scenarios = RunSummary.load(summaryFile)
+				.get("/bank/untitled.story");
+		assertThat(scenarios.get("Scenario 1").getSteps(), is("s"));
+		assertThat(scenarios.get("Scenario 2").getSteps(), is("p"));
+	}
+
+	@Test
+	public void shouldReportOnlyWhatChangedSinceTheBaseline() throws Exception {
+
+		File baseline = new File(temporaryFolder.getRoot(), "baseline.tsv");
+		run(new RunSummary(baseline), false);
+
+		File deltaFile = new File(temporaryFolder.getRoot(),
+				DeltaReport.DELTA_FILE);
+		run(new DeltaReport(baseline, deltaFile), true);
+
+		String delta = ReportSinkBehaviour.read(deltaFile);
+		assertThat(delta, containsString("== New Failures (1)"));
+		assertThat(delta,
+				containsString("|/bank/transfer.story|Transfer|Then the balance is 10"));
+		assertThat(delta, containsString("== New Scenarios (1)"));
+		assertThat(delta, containsString("|/bank/transfer.story|Deposit|"));
+		assertThat(delta, containsString("== Removed Scenarios (1)"));
+		assertThat(delta, containsString("|/bank/transfer.story|Withdraw|removed"));
+		assertThat(delta, not(containsString("Fixed")));
+	}
+
+	@Test
+	public void shouldSayNothingChangedAgainstTheSameRun() throws Exception {
+
+		File baseline = new File(temporaryFolder.getRoot(), "baseline.tsv");
+		run(new RunSummary(baseline), false);
+
+		File deltaFile = new File(temporaryFolder.getRoot(),
+				DeltaReport.DELTA_FILE);
+		run(new DeltaReport(baseline, deltaFile), false);
+
+		assertThat(ReportSinkBehaviour.read(deltaFile),
+				containsString("Nothing changed."));
+	}
+
+	@Test
+	public void shouldReportEveryScenarioAsNewWithoutABaselineYet()
+			throws Exception {
+
+		File baseline = new File(temporaryFolder.getRoot(), "missing.tsv");
+		File deltaFile = new File(temporaryFolder.getRoot(),
+				DeltaReport.DELTA_FILE);
+		run(new AsciidoctorReporterConfiguration().withDeltaBaseline(baseline)
+				.deltaReport(temporaryFolder.getRoot()), false);
+
+		assertThat(ReportSinkBehaviour.read(deltaFile),
+				containsString("== New Scenarios (2)"));
+	}
+
+	private static void run(ReportListener listener, boolean changed) {
+
+		AsciidoctorReporterConfiguration configuration = new AsciidoctorReporterConfiguration()
+				.withListener(listener);
+
+		AsciidoctorStoryReporter reporter = new AsciidoctorStoryReporter(
+				new InMemoryReportSink(), null, configuration);
+		reporter.beforeStory(new Story("/bank/transfer.story"), false);
+		reporter.beforeScenario("Transfer");
+		reporter.successful("Given an account with 20");
+		if (changed) {
+			reporter.failedOutcomes("Then the balance is 10",
+					new OutcomesTable());
+		} else {
+			reporter.successful("Then the balance is 10");
+		}
+		reporter.afterScenario();
+		reporter.beforeScenario(changed ? "Deposit" : "Withdraw");
+		reporter.pending("When I withdraw 5");
+		reporter.afterScenario();
+		reporter.afterStory(false);
+
+		AsciidoctorStoryReporter afterStories = new AsciidoctorStoryReporter(
+				new InMemoryReportSink(), null, configuration);
+		afterStories.beforeStory(
+				new Story(ProfilingStoryReporter.AFTER_STORIES), false);
+		afterStories.afterStory(false);
+	}
+
+}
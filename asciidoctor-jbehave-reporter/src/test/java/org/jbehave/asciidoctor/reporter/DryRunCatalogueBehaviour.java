@@ -0,0 +1,112 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+
+import org.jbehave.core.failures.UUIDExceptionWrapper;
+import org.jbehave.core.io.StoryLocation;
+import org.jbehave.core.model.Story;
+import org.jbehave.core.reporters.FilePrintStreamFactory;
+import org.jbehave.core.reporters.StoryReporter;
+import org.jbehave.core.reporters.StoryReporterBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DryRunCatalogueBehaviour {
+
+	private static final String NEW_LINE = System.getProperty("line.separator");
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void shouldCatalogueTheStructureOfEveryDryRunStory()
+			throws Exception {
+
+		File classes = temporaryFolder.newFolder("classes");
+		AsciidoctorReporterConfiguration configuration = new AsciidoctorReporterConfiguration()
+				.withDryRunCatalogue(true).withStoryStatistics(true);
+		StoryReporterBuilder builder = new StoryReporterBuilder()
+				.withCodeLocation(classes.toURI().toURL());
+
+		StoryReporter login = newStoryReporter(configuration, builder,
+				classes, "org/acme/login.story");
+		login.dryRun();
+		login.beforeStory(new Story("org/acme/login.story"), false);
+		login.beforeScenario("Login");
+		login.successful("Given a user");
+		login.failed("When the user logs in", new UUIDExceptionWrapper(
+				new IllegalStateException("no session")));
+		login.afterScenario();
+		login.afterStory(false);
+
+		StoryReporter signup = newStoryReporter(configuration, builder,
+				classes, "org/acme/signup.story");
+		signup.dryRun();
+		signup.beforeStory(new Story("org/acme/signup.story"), false);
+		signup.beforeScenario("Signup");
+		signup.pending("Then the user is welcome");
+		signup.afterScenario();
+		signup.afterStory(false);
+
+		StoryReporter afterStories = newStoryReporter(configuration, builder,
+				classes, ProfilingStoryReporter.AFTER_STORIES);
+		afterStories.dryRun();
+		afterStories.beforeStory(new Story(
+				ProfilingStoryReporter.AFTER_STORIES), false);
+		afterStories.afterStory(false);
+
+		File outputDirectory = builder.outputDirectory();
+		String catalogue = ReportSinkBehaviour.read(new File(outputDirectory,
+				DryRunCatalogue.CATALOGUE_FILE));
+
+		assertThat(catalogue, startsWith("= Story Catalogue" + NEW_LINE));
+		assertThat(catalogue, containsString("== org/acme/login.story" + NEW_LINE
+				+ NEW_LINE + "=== Scenario: Login" + NEW_LINE + NEW_LINE
+				+ "*Given* a user" + NEW_LINE + NEW_LINE
+				+ "*When* the user logs in" + NEW_LINE));
+		assertThat(catalogue, containsString("*Then* the user is welcome"));
+		assertThat(catalogue, not(containsString("icon:")));
+		assertThat(catalogue, not(containsString("no session")));
+		assertThat(catalogue, not(containsString("Statistics")));
+		assertThat(catalogue, not(containsString(ProfilingStoryReporter.AFTER_STORIES)));
+		assertThat(new File(outputDirectory, "org.acme.login.adoc").exists(),
+				is(false));
+	}
+
+	@Test
+	public void shouldReportStoriesThatAreNotDryRunsAsUsual() {
+
+		DryRunCatalogue catalogue = new DryRunCatalogue(new File(
+				temporaryFolder.getRoot(), DryRunCatalogue.CATALOGUE_FILE),
+				FragmentTemplates.defaults(), 1024);
+		InMemoryReportSink sink = new InMemoryReportSink();
+		AsciidoctorStoryReporter reporter = new AsciidoctorStoryReporter(sink,
+				null, new AsciidoctorReporterConfiguration());
+		reporter.setCatalogue(catalogue);
+
+		reporter.beforeStory(new Story("/path/to/story"), false);
+		reporter.successful("Given a step");
+		reporter.afterStory(false);
+
+		assertThat(sink.toString(), containsString("icon:thumbs-up"));
+		assertThat(catalogue.stories(), is(0));
+	}
+
+	private static StoryReporter newStoryReporter(
+			AsciidoctorReporterConfiguration configuration,
+			StoryReporterBuilder builder, File classes, String storyPath)
+			throws Exception {
+		return AsciidoctorStoryReporter.ASCIIDOC(configuration)
+				.createStoryReporter(
+						new FilePrintStreamFactory(new StoryLocation(classes
+								.toURI().toURL(), storyPath)), builder);
+	}
+
+}
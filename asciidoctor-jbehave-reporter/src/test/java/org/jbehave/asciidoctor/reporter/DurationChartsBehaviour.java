@@ -0,0 +1,104 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.jbehave.core.model.Story;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DurationChartsBehaviour {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void shouldDrawOnlyTheSlowestScenariosWhateverTheirNumber()
+			throws IOException {
+
+		DurationCharts.SlowestScenarios scenarios = new DurationCharts.SlowestScenarios();
+		for (int i = 0; i < 1000; i++) {
+			scenarios.add("Scenario " + i, TimeUnit.MILLISECONDS.toNanos(i),
+					i == 990 ? StoryResult.FAIL : StoryResult.SUCCESS);
+		}
+
+		File chart = temporaryFolder.newFile("story.scenarios.svg");
+		scenarios.write(chart);
+		String svg = ReportSinkBehaviour.read(chart);
+
+		assertThat(svg, containsString("Slowest 20 of 1000 scenarios"));
+		assertThat(svg, containsString("Scenario 999"));
+		assertThat(svg, containsString("Scenario 980"));
+		assertThat(svg, not(containsString("Scenario 979")));
+		assertThat(svg, containsString("#d9534f"));
+		assertThat(svg.split("<rect ").length - 2, is(DurationCharts.MAX_BARS));
+		assertThat(chart.length(), lessThan(8L * 1024));
+	}
+
+	@Test
+	public void shouldBucketStoryDurationsByPowersOfTwo() {
+
+		assertThat(DurationCharts.bucketOf(0), is(0));
+		assertThat(DurationCharts.bucketOf(1), is(1));
+		assertThat(DurationCharts.bucketOf(3), is(2));
+		assertThat(DurationCharts.bucketOf(1024), is(11));
+		assertThat(DurationCharts.bucketOf(Long.MAX_VALUE),
+				is(DurationCharts.BUCKETS - 1));
+	}
+
+	@Test
+	public void shouldEmbedChartsUnderTheStoryResult() throws IOException {
+
+		File outputDirectory = temporaryFolder.newFolder("jbehave");
+		AsciidoctorReporterConfiguration configuration = new AsciidoctorReporterConfiguration()
+				.withDurationCharts(true);
+
+		InMemoryReportSink sink = new InMemoryReportSink();
+		AsciidoctorStoryReporter reporter = new AsciidoctorStoryReporter(sink,
+				null, configuration);
+		reporter.setReportFile(new File(outputDirectory, "path.to.story.adoc"));
+		reporter.beforeStory(new Story("/path/to/story"), false);
+		reporter.beforeScenario("Login <as> \"admin\" & logout");
+		reporter.successful("Given a step");
+		reporter.afterScenario();
+		reporter.afterStory(false);
+
+		assertThat(sink.toString(), containsString("image::path.to.story"
+				+ DurationCharts.SCENARIO_CHART_EXTENSION + "[]"));
+		String svg = ReportSinkBehaviour.read(new File(outputDirectory,
+				"path.to.story" + DurationCharts.SCENARIO_CHART_EXTENSION));
+		assertThat(svg, containsString("Login &lt;as&gt; &quot;admin&quot; &amp; logout"));
+
+		reporter = new AsciidoctorStoryReporter(new InMemoryReportSink(), null,
+				configuration);
+		reporter.setReportFile(new File(outputDirectory, "path.to.empty.adoc"));
+		reporter.beforeStory(new Story("/path/to/empty"), false);
+		reporter.afterStory(false);
+
+		assertThat(new File(outputDirectory, "path.to.empty"
+				+ DurationCharts.SCENARIO_CHART_EXTENSION).exists(), is(false));
+
+		InMemoryReportSink afterStories = new InMemoryReportSink();
+		reporter = new AsciidoctorStoryReporter(afterStories, null,
+				configuration);
+		reporter.setReportFile(new File(outputDirectory, "AfterStories.adoc"));
+		reporter.beforeStory(new Story(ProfilingStoryReporter.AFTER_STORIES),
+				false);
+		reporter.afterStory(false);
+
+		assertThat(afterStories.toString(), containsString("image::"
+				+ DurationCharts.SUITE_CHART + "[]"));
+		assertThat(ReportSinkBehaviour.read(new File(outputDirectory,
+				DurationCharts.SUITE_CHART)),
+				containsString("Duration of 2 stories"));
+	}
+
+}
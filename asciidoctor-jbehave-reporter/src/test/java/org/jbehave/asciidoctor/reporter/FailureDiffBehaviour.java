@@ -0,0 +1,138 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+
+import org.hamcrest.Matchers;
+import org.jbehave.core.failures.UUIDExceptionWrapper;
+import org.jbehave.core.i18n.LocalizedKeywords;
+import org.jbehave.core.model.OutcomesTable;
+import org.jbehave.core.model.Story;
+import org.junit.Test;
+
+public class FailureDiffBehaviour {
+
+	private static final String NEW_LINE = System.getProperty("line.separator");
+
+	private final FailureDiff failureDiff = new FailureDiff();
+
+	@Test
+	public void shouldShowOnlyTheChangedHunksOfAMegabytePayload() {
+
+		String expected = jsonPayload(1024 * 1024);
+		String actual = expected.replace("\"id\":1000,", "\"id\":1000,\"extra\":true,")
+				.replace("\"name\":\"item 20000\"", "\"name\":\"renamed\"");
+
+		long start = System.nanoTime();
+		FailureDiff.Comparison comparison = failureDiff.compare(expected, actual);
+		long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+		assertThat(elapsedMillis, lessThan(2000L));
+		assertThat(comparison.summary(), containsString("2 hunks"));
+		assertThat(comparison.summary(), not(containsString("stopped")));
+		assertThat(comparison.hunks(), containsString(NEW_LINE + "+\"extra\":true," + NEW_LINE));
+		assertThat(comparison.hunks(), containsString(NEW_LINE + "-\"name\":\"item 20000\"}," + NEW_LINE));
+		assertThat(comparison.hunks(), containsString(NEW_LINE + "+\"name\":\"renamed\"}," + NEW_LINE));
+		assertThat(comparison.hunks().length(), lessThan(1024));
+	}
+
+	@Test
+	public void shouldKeepContextAroundEveryChange() {
+
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 20; i++) {
+			expected.append("line ").append(i).append('\n');
+		}
+		String actual = expected.toString().replace("line 10\n", "line ten\n");
+
+		String hunks = failureDiff.compare(expected.toString(), actual).hunks();
+
+		assertThat(hunks, is("@@ -8,7 +8,7 @@" + NEW_LINE + " line 7" + NEW_LINE
+				+ " line 8" + NEW_LINE + " line 9" + NEW_LINE + "-line 10"
+				+ NEW_LINE + "+line ten" + NEW_LINE + " line 11" + NEW_LINE
+				+ " line 12" + NEW_LINE + " line 13" + NEW_LINE));
+	}
+
+	@Test
+	public void shouldShowWhatIsLeftAsOneChangeOnceCapped() {
+
+		Random random = new Random(42);
+		StringBuilder expected = new StringBuilder();
+		StringBuilder actual = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			expected.append(random.nextInt(1000)).append('\n');
+			actual.append(random.nextInt(1000)).append('\n');
+		}
+
+		FailureDiff.Comparison comparison = new FailureDiff(0, 200, 50, 40)
+				.compare(expected.toString(), actual.toString());
+
+		assertThat(comparison.summary(), containsString("Comparison stopped"));
+		assertThat(comparison.summary(), containsString("Showing the first 40 lines"));
+		assertThat(comparison.hunks().split(NEW_LINE).length, is(40));
+	}
+
+	@Test
+	public void shouldFindTheComparedValuesOfAssertionMessages() {
+
+		String value = jsonPayload(2048);
+
+		assertThat(failureDiff.comparedValues("\nExpected: \"" + value
+				+ "\"\n     but: was \"" + value + "x\"")[1], is(value + "x"));
+		assertThat(failureDiff.comparedValues("expected:<" + value
+				+ "> but was:<" + value + "x>")[0], is(value));
+		assertThat(failureDiff.comparedValues("Expected: a\n     but: b"),
+				is(nullValue()));
+	}
+
+	@Test
+	public void shouldReportDifferencesOfLongFailures() {
+
+		String expected = jsonPayload(64 * 1024);
+		String actual = expected.replace("\"id\":100,", "\"id\":101,");
+
+		OutcomesTable outcomes = new OutcomesTable(new LocalizedKeywords(),
+				"dd/MM/yyyy");
+		outcomes.addOutcome("the payload", actual, Matchers.equalTo(expected));
+		outcomes.addOutcome("a number", 1, Matchers.equalTo(2));
+
+		InMemoryReportSink sink = new InMemoryReportSink();
+		AsciidoctorStoryReporter reporter = new AsciidoctorStoryReporter(sink,
+				null, new AsciidoctorReporterConfiguration());
+		reporter.beforeStory(new Story("/path/to/story"), false);
+		reporter.failed("Then I get the payload", new UUIDExceptionWrapper(
+				new AssertionError("\nExpected: \"" + expected
+						+ "\"\n     but: was \"" + actual + "\"")));
+		reporter.failedOutcomes("Then the payload is", outcomes);
+		reporter.afterStory(false);
+
+		String report = sink.toString();
+
+		assertThat(report.length(), lessThan(4 * 1024));
+		assertThat(report, containsString("[source,diff]" + NEW_LINE + "----"
+				+ NEW_LINE + "@@ "));
+		assertThat(report, containsString("-\"id\":100," + NEW_LINE
+				+ "+\"id\":101,"));
+		assertThat(report, containsString(".the payload" + NEW_LINE
+				+ "[source,diff]"));
+		assertThat(report, containsString("|a number" + NEW_LINE + "|1"));
+	}
+
+	private static String jsonPayload(int length) {
+
+		StringBuilder json = new StringBuilder("[");
+		for (int i = 0; json.length() < length; i++) {
+			json.append("{\"id\":").append(i).append(",\"name\":\"item ")
+					.append(i).append("\"},");
+		}
+		json.setCharAt(json.length() - 1, ']');
+		return json.toString();
+	}
+
+}
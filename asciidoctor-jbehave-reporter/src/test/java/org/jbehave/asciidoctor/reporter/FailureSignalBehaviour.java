@@ -0,0 +1,128 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.jbehave.core.failures.UUIDExceptionWrapper;
+import org.jbehave.core.model.Story;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FailureSignalBehaviour {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void shouldSignalTheFirstFailureAndCountFailuresByStory()
+			throws Exception {
+
+		final List<String> signalled = new CopyOnWriteArrayList<String>();
+		File signalFile = new File(temporaryFolder.getRoot(),
+				FailureSignal.SIGNAL_FILE);
+		FailureSignal signal = new FailureSignal(signalFile,
+				new FailureSignalCallback() {
+					@Override
+					public void onFailure(FailureSignal.Failure failure,
+							Map<String, Integer> failuresByStory) {
+						signalled.add(failure.isFirst() + " " + failure
+								+ " " + failuresByStory);
+					}
+				});
+		AsciidoctorReporterConfiguration configuration = new AsciidoctorReporterConfiguration()
+				.withListener(signal);
+
+		AsciidoctorStoryReporter smoke = new AsciidoctorStoryReporter(
+				new InMemoryReportSink(), null, configuration);
+		smoke.beforeStory(new Story("/smoke.story"), false);
+		smoke.beforeScenario("Login");
+		smoke.successful("Given a user");
+		smoke.failed("When the user logs in", new UUIDExceptionWrapper(
+				new IllegalStateException("no session")));
+
+		String firstSignal = ReportSinkBehaviour.read(signalFile);
+		assertThat(firstSignal, startsWith("{\"type\":\"firstFailure\","
+				+ "\"story\":\"/smoke.story\",\"scenario\":\"Login\","
+				+ "\"step\":\"When the user logs in\",\"fingerprint\":\""));
+		assertThat(firstSignal, containsString("{\"type\":\"story\",\"story\":\"/smoke.story\",\"failed\":1}"));
+
+		smoke.failed("Then the user is home", new UUIDExceptionWrapper(
+				new IllegalStateException("no session")));
+		smoke.afterScenario();
+		smoke.afterStory(false);
+
+		assertThat(ReportSinkBehaviour.read(signalFile), containsString(
+				"{\"type\":\"story\",\"story\":\"/smoke.story\",\"failed\":2}"));
+		assertThat(ReportSinkBehaviour.read(signalFile), startsWith(firstSignal
+				.substring(0, firstSignal.indexOf('\n'))));
+		assertThat(signalled.size(), is(2));
+		assertThat(signalled.get(0), startsWith("true /smoke.story / Login / When the user logs in"));
+		assertThat(signalled.get(1), startsWith("false /smoke.story / Login / Then the user is home"));
+		assertThat(signalled.get(1), containsString("{/smoke.story=2}"));
+		assertThat(new File(temporaryFolder.getRoot(),
+				FailureSignal.SIGNAL_FILE + ".tmp").exists(), is(false));
+	}
+
+	@Test
+	public void shouldWriteTheFirstFailureAtOnceAndLaterOnesAtMostOncePerInterval()
+			throws Exception {
+
+		File signalFile = new File(temporaryFolder.getRoot(),
+				FailureSignal.SIGNAL_FILE);
+		AsciidoctorReporterConfiguration configuration = new AsciidoctorReporterConfiguration()
+				.withListener(new FailureSignal(signalFile, null, 60000));
+
+		AsciidoctorStoryReporter reporter = new AsciidoctorStoryReporter(
+				new InMemoryReportSink(), null, configuration);
+		reporter.beforeStory(new Story("/flaky.story"), false);
+		reporter.beforeScenario("Retry");
+		reporter.failed("When the service is called", new UUIDExceptionWrapper(
+				new IllegalStateException("timeout")));
+		String firstSignal = ReportSinkBehaviour.read(signalFile);
+
+		for (int i = 0; i < 5; i++) {
+			reporter.failed("When the service is called again",
+					new UUIDExceptionWrapper(new IllegalStateException(
+							"timeout")));
+		}
+
+		assertThat(ReportSinkBehaviour.read(signalFile), is(firstSignal));
+
+		reporter.afterScenario();
+		reporter.afterStory(false);
+
+		assertThat(ReportSinkBehaviour.read(signalFile), containsString(
+				"{\"type\":\"story\",\"story\":\"/flaky.story\",\"failed\":6}"));
+	}
+
+	@Test
+	public void shouldRemoveTheSignalOfAPreviousRun() throws Exception {
+
+		File signalFile = temporaryFolder.newFile(FailureSignal.SIGNAL_FILE);
+		FileOutputStream previous = new FileOutputStream(signalFile);
+		previous.write("{\"type\":\"firstFailure\"}\n".getBytes("UTF-8"));
+		previous.close();
+
+		AsciidoctorReporterConfiguration configuration = new AsciidoctorReporterConfiguration()
+				.withFailureSignal(true);
+		AsciidoctorStoryReporter reporter = new AsciidoctorStoryReporter(
+				new InMemoryReportSink(), null, configuration
+						.withListener(configuration
+								.failureSignal(temporaryFolder.getRoot())));
+		reporter.beforeStory(new Story("/passing.story"), false);
+		reporter.successful("Given a step");
+		reporter.afterStory(false);
+
+		assertThat(signalFile.exists(), is(false));
+	}
+
+}
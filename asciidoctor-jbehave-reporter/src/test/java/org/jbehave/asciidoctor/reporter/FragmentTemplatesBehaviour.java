@@ -0,0 +1,69 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Properties;
+
+import org.jbehave.core.model.Scenario;
+import org.jbehave.core.model.Story;
+import org.junit.Test;
+
+public class FragmentTemplatesBehaviour {
+
+	private static final String NEW_LINE = System.getProperty("line.separator");
+
+	@Test
+	public void shouldRenderUserProvidedTemplates() {
+
+		Properties overrides = new Properties();
+		overrides.setProperty("story", "= ${name}\n${storyResult}\n");
+		overrides.setProperty("story-success-with-warning", "*PENDING*");
+		overrides.setProperty("scenario", "${section} ${title}\n");
+		overrides.setProperty("successful", "* [x] ${keyword}${text}\n");
+		overrides.setProperty("pending", "* [ ] ${keyword}${text}\n");
+
+		InMemoryReportSink sink = new InMemoryReportSink();
+		AsciidoctorStoryReporter reporter = new AsciidoctorStoryReporter(sink,
+				null, new AsciidoctorReporterConfiguration()
+						.withTemplates(FragmentTemplates
+								.withOverrides(overrides)));
+
+		reporter.beforeStory(new Story("/path/to/story", null, null, null,
+				new ArrayList<Scenario>()), false);
+		reporter.beforeScenario("Checklist");
+		reporter.successful("Given a template");
+		reporter.pending("Then");
+		reporter.afterScenario();
+		reporter.afterStory(false);
+
+		assertThat(sink.toString(), is("= /path/to/story" + NEW_LINE
+				+ "*PENDING*" + NEW_LINE + "=== Checklist" + NEW_LINE
+				+ "* [x] Given a template" + NEW_LINE + "* [ ] Then"
+				+ NEW_LINE));
+	}
+
+	@Test
+	public void shouldCompileTemplatesIntoLiteralsAndSlots() {
+
+		FragmentTemplate template = FragmentTemplate.compile(
+				ReportFragment.META_PROPERTY, "${name}=${value}, ${name}");
+
+		assertThat(template.render("author", "Mauro"),
+				is("author=Mauro, author"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectSlotsTheFragmentDoesNotProvide() {
+		FragmentTemplate.compile(ReportFragment.SUCCESSFUL, "${step}");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectUnknownFragments() {
+		Properties overrides = new Properties();
+		overrides.setProperty("succesful", "${keyword}");
+		FragmentTemplates.withOverrides(overrides);
+	}
+
+}
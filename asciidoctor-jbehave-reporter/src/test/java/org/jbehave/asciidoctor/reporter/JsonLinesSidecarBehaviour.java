@@ -0,0 +1,60 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+
+import org.junit.Test;
+
+public class JsonLinesSidecarBehaviour {
+
+	@Test
+	public void shouldWriteOneJsonLinePerEvent() {
+
+		InMemoryReportSink sidecar = new InMemoryReportSink();
+		AsciidoctorStoryReporter reporter = new AsciidoctorStoryReporter(
+				new InMemoryReportSink(), null, 0);
+		reporter.addListener(new JsonLinesSidecar(sidecar));
+
+		StoryNarrator.narrateAnInterestingStoryWithFailures(reporter, false);
+
+		String[] lines = sidecar.toString().split("\n");
+
+		assertThat(lines[0], startsWith("{\"event\":\"storyStarted\""));
+		assertThat(lines[0], containsString("\"story\":\"/path/to/story\""));
+		assertThat(lines[0], containsString("\"givenStory\":false"));
+		assertThat(lines[1], containsString("\"scenario\":\"I ask for a loan\""));
+		assertThat(sidecar.toString(), containsString("\"outcome\":\"failed\""));
+		assertThat(sidecar.toString(), containsString("\"fingerprint\":\""));
+		assertThat(lines[lines.length - 1],
+				startsWith("{\"event\":\"storyFinished\""));
+		assertThat(lines[lines.length - 1],
+				containsString("\"result\":\"FAIL\""));
+	}
+
+	@Test
+	public void shouldEscapeJsonStrings() {
+
+		InMemoryReportSink sink = new InMemoryReportSink();
+		JsonLinesWriter writer = new JsonLinesWriter(sink);
+
+		writer.beginRecord()
+				.field(JsonLinesWriter.name("step"),
+						"Given a \"quoted\"\tstep \\ é\u0001")
+				.endRecord();
+		writer.flush();
+
+		assertThat(sink.toString(),
+				is("{\"step\":\"Given a \\\"quoted\\\"\\tstep \\\\ é\\u0001\"}\n"));
+	}
+
+	@Test
+	public void shouldPlaceSidecarNextToTheReport() {
+		assertThat(JsonLinesSidecar.sidecarFileOf(new File("target/a.story.adoc")),
+				is(new File("target/a.story.jsonl")));
+	}
+
+}
@@ -0,0 +1,105 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LiveDashboardBehaviour {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private LiveDashboard dashboard;
+
+	@Before
+	public void startDashboard() throws IOException {
+		dashboard = new LiveDashboard(0, temporaryFolder.getRoot());
+	}
+
+	@After
+	public void stopDashboard() {
+		dashboard.close();
+	}
+
+	@Test
+	public void shouldStreamCoalescedBatchesOfEvents() throws Exception {
+
+		HttpURLConnection events = (HttpURLConnection) new URL(
+				dashboard.getUrl() + "events").openConnection();
+		InputStream stream = events.getInputStream();
+
+		dashboard.onNext(ReportEvent.storyStarted("/path/to/story", false));
+		dashboard.onNext(ReportEvent.scenarioStarted("/path/to/story", false,
+				"Many steps"));
+		for (int i = 0; i < 5000; i++) {
+			dashboard.onNext(ReportEvent.step("/path/to/story", false,
+					"Many steps", "Given step " + i, StepOutcome.SUCCESSFUL,
+					0, null));
+		}
+		Thread.sleep(3 * LiveDashboard.BATCH_INTERVAL_MILLIS);
+		dashboard.onNext(ReportEvent.storyFinished("/path/to/story", false,
+				StoryResult.SUCCESS, 0));
+		dashboard.onComplete();
+
+		String received = read(stream);
+
+		assertThat(received.split("event: batch").length - 1, lessThan(10));
+		assertThat(received, containsString("\"step\":\"Given step 4999\""));
+		assertThat(received, containsString("\"successful\":5000"));
+		assertThat(received, containsString("\"storiesFinished\":1"));
+		assertThat(received, containsString("\"result\":\"SUCCESS\""));
+		assertThat(received, containsString("event: complete"));
+	}
+
+	@Test
+	public void shouldServeThePageAndTheReportsWrittenSoFar() throws Exception {
+
+		FileOutputStream report = new FileOutputStream(new File(
+				temporaryFolder.getRoot(), "path.to.story.adoc"));
+		report.write("== First scenario".getBytes("UTF-8"));
+		report.close();
+
+		assertThat(get(""), containsString("new EventSource('/events')"));
+		assertThat(get("reports/"), containsString("path.to.story.adoc"));
+		assertThat(get("reports/path.to.story.adoc"),
+				is("== First scenario"));
+
+		HttpURLConnection outside = (HttpURLConnection) new URL(
+				dashboard.getUrl() + "reports/../secret").openConnection();
+		assertThat(outside.getResponseCode(), is(404));
+	}
+
+	private String get(String path) throws IOException {
+		return read(new URL(dashboard.getUrl() + path).openStream());
+	}
+
+	private static String read(InputStream input) throws IOException {
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		try {
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = input.read(buffer)) > -1) {
+				content.write(buffer, 0, read);
+			}
+		} finally {
+			input.close();
+		}
+		return content.toString("UTF-8");
+	}
+
+}
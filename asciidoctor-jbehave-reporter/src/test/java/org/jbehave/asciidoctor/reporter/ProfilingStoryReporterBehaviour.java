@@ -0,0 +1,63 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+
+import org.jbehave.core.model.Story;
+import org.junit.Test;
+
+public class ProfilingStoryReporterBehaviour {
+
+	@Test
+	public void shouldAppendReportingOverheadToEveryStory() {
+
+		ReportingOverheadProfiler profiler = new ReportingOverheadProfiler();
+		InMemoryReportSink sink = new InMemoryReportSink();
+
+		StoryNarrator.narrateAnInterestingStoryWithSuccess(
+				new ProfilingStoryReporter(new AsciidoctorStoryReporter(sink,
+						null, 0), profiler), false);
+
+		String report = sink.toString();
+		assertThat(report, containsString(".Reporting Overhead"));
+		assertThat(report, containsString("|successful|11|"));
+		assertThat(report, containsString("|beforeScenario|2|"));
+		assertThat(report, containsString("|Total|"));
+		// appended once afterStory has written the story out
+		assertThat(report, containsString("|afterStory|1|"));
+		assertThat(report.trim().endsWith("|==="), is(true));
+
+		ReportingOverhead suite = profiler.suite();
+		assertThat(suite.stories(), is(1));
+		assertThat(suite.calls(ReporterCallback.SUCCESSFUL), is(11L));
+		assertThat(suite.calls(ReporterCallback.AFTER_STORY), is(1L));
+		assertThat(suite.wallNanos(), greaterThan(0L));
+	}
+
+	@Test
+	public void shouldReportSuiteOverheadInTheAfterStoriesReport() {
+
+		ReportingOverheadProfiler profiler = new ReportingOverheadProfiler();
+
+		for (int i = 0; i < 3; i++) {
+			StoryNarrator.narrateAnInterestingStoryWithWarnings(
+					new ProfilingStoryReporter(new AsciidoctorStoryReporter(
+							new InMemoryReportSink(), null, 0), profiler), false);
+		}
+
+		InMemoryReportSink afterStories = new InMemoryReportSink();
+		ProfilingStoryReporter reporter = new ProfilingStoryReporter(
+				new AsciidoctorStoryReporter(afterStories, null, 0), profiler);
+		reporter.beforeStory(new Story(ProfilingStoryReporter.AFTER_STORIES),
+				false);
+		reporter.afterStory(false);
+
+		assertThat(afterStories.toString(),
+				containsString(".Suite Reporting Overhead (3 stories)"));
+		assertThat(afterStories.toString(), containsString("|pending|6|"));
+		assertThat(profiler.suite().stories(), is(4));
+	}
+
+}
@@ -0,0 +1,96 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+
+import org.jbehave.core.model.Story;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProgressiveReportBehaviour {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void shouldWriteEveryScenarioAsSoonAsItFinishes() {
+
+		InMemoryReportSink sink = new InMemoryReportSink();
+		AsciidoctorStoryReporter reporter = new AsciidoctorStoryReporter(sink,
+				null, new AsciidoctorReporterConfiguration()
+						.withProgressiveReport(true)
+						.withProgressiveFlushInterval(Long.MAX_VALUE));
+
+		reporter.beforeStory(new Story("/path/to/long.story"), false);
+		reporter.beforeScenario("First");
+		reporter.successful("Given a long running step");
+
+		assertThat(sink.toString(), is(""));
+
+		reporter.afterScenario();
+
+		assertThat(sink.toString(), containsString("Given"));
+		assertThat(sink.toString(), not(containsString("[.lead]")));
+
+		reporter.beforeScenario("Second");
+		reporter.pending("When it is not implemented");
+		reporter.afterScenario();
+		reporter.afterStory(false);
+
+		assertThat(sink.toString(), containsString("Second"));
+		assertThat(sink.toString().trim(),
+				endsWith("This story can be shipped with caution."));
+	}
+
+	@Test
+	public void shouldFlushOnceTheByteThresholdIsReached() {
+
+		InMemoryReportSink sink = new InMemoryReportSink();
+		AsciidoctorStoryReporter reporter = new AsciidoctorStoryReporter(sink,
+				null, new AsciidoctorReporterConfiguration()
+						.withProgressiveReport(true)
+						.withProgressiveFlushInterval(Long.MAX_VALUE)
+						.withProgressiveFlushBytes(1));
+
+		reporter.beforeStory(new Story("/path/to/long.story"), false);
+		reporter.beforeScenario("First");
+		reporter.successful("Given a long running step");
+
+		assertThat(sink.toString(), containsString("Given"));
+	}
+
+	@Test
+	public void shouldKeepTheStatusOfInFlightStories() throws Exception {
+
+		File statusFile = new File(temporaryFolder.getRoot(),
+				ProgressStatus.STATUS_FILE);
+		ProgressStatus status = new ProgressStatus(statusFile, 0,
+				FragmentTemplates.defaults());
+
+		AsciidoctorStoryReporter reporter = new AsciidoctorStoryReporter(
+				new InMemoryReportSink(), null,
+				new AsciidoctorReporterConfiguration().withListener(status));
+
+		reporter.beforeStory(new Story("/path/to/long.story"), false);
+		reporter.beforeScenario("First");
+		reporter.successful("Given a long running step");
+
+		String inFlight = ReportSinkBehaviour.read(statusFile);
+		assertThat(inFlight, containsString("|/path/to/long.story|First|Given a long running step|successful"));
+
+		reporter.afterScenario();
+		reporter.afterStory(false);
+
+		assertThat(ReportSinkBehaviour.read(statusFile),
+				not(containsString("/path/to/long.story")));
+		assertThat(new File(temporaryFolder.getRoot(), "status.adoc.tmp")
+				.exists(), is(false));
+	}
+
+}
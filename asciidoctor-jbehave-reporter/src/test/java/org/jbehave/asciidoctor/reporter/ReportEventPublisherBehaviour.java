@@ -0,0 +1,140 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jbehave.core.model.Story;
+import org.junit.Test;
+
+public class ReportEventPublisherBehaviour {
+
+	private final ReportEventPublisher publisher = new ReportEventPublisher();
+
+	@Test
+	public void shouldDeliverEveryEventOfTheSuiteAsRequested()
+			throws Exception {
+
+		RecordingSubscriber first = new RecordingSubscriber(1);
+		RecordingSubscriber second = new RecordingSubscriber(Long.MAX_VALUE);
+		publisher.subscribe(first);
+		publisher.subscribe(second);
+
+		narrateSuite();
+
+		assertThat(first.finished.await(5, TimeUnit.SECONDS), is(true));
+		assertThat(second.finished.await(5, TimeUnit.SECONDS), is(true));
+		assertThat(first.failure, is(nullValue()));
+		assertThat(first.events, is(second.events));
+		assertThat(first.events.get(0).getType(),
+				is(ReportEvent.Type.STORY_STARTED));
+		assertThat(first.events.get(first.events.size() - 1).getStoryPath(),
+				is(ProfilingStoryReporter.AFTER_STORIES));
+		assertThat(publisher.subscribers(), is(0));
+	}
+
+	@Test
+	public void shouldDropEventsBeyondTheBufferOfASubscriberNotRequesting()
+			throws Exception {
+
+		RecordingSubscriber idle = new RecordingSubscriber(0);
+		publisher.subscribe(idle, 4);
+
+		narrateSuite();
+
+		assertThat(idle.subscribed.await(5, TimeUnit.SECONDS), is(true));
+		assertThat(idle.events.size(), is(0));
+		long dropped = idle.subscription.dropped();
+
+		idle.subscription.request(Long.MAX_VALUE);
+
+		assertThat(idle.finished.await(5, TimeUnit.SECONDS), is(true));
+		assertThat(idle.events.size(), is(4));
+		assertThat(dropped > 0, is(true));
+	}
+
+	@Test
+	public void shouldFailOnlyTheSubscriberThatThrows() throws Exception {
+
+		RecordingSubscriber failing = new RecordingSubscriber(Long.MAX_VALUE) {
+			@Override
+			public void onNext(ReportEvent event) {
+				throw new IllegalStateException("cannot consume " + event);
+			}
+		};
+		RecordingSubscriber healthy = new RecordingSubscriber(Long.MAX_VALUE);
+		publisher.subscribe(failing);
+		publisher.subscribe(healthy);
+
+		narrateSuite();
+
+		assertThat(failing.finished.await(5, TimeUnit.SECONDS), is(true));
+		assertThat(failing.failure, instanceOf(IllegalStateException.class));
+		assertThat(healthy.finished.await(5, TimeUnit.SECONDS), is(true));
+		assertThat(healthy.failure, is(nullValue()));
+	}
+
+	private void narrateSuite() throws Exception {
+
+		AsciidoctorReporterConfiguration configuration = new AsciidoctorReporterConfiguration()
+				.withListener(publisher);
+
+		StoryNarrator.narrateAnInterestingStoryWithFailures(new AsciidoctorStoryReporter(
+				new InMemoryReportSink(), null, configuration), false);
+
+		AsciidoctorStoryReporter afterStories = new AsciidoctorStoryReporter(
+				new InMemoryReportSink(), null, configuration);
+		afterStories.beforeStory(
+				new Story(ProfilingStoryReporter.AFTER_STORIES), false);
+		afterStories.afterStory(false);
+	}
+
+	private static class RecordingSubscriber implements ReportEventSubscriber {
+
+		private final long batch;
+		private final List<ReportEvent> events = new CopyOnWriteArrayList<ReportEvent>();
+		private final CountDownLatch subscribed = new CountDownLatch(1);
+		private final CountDownLatch finished = new CountDownLatch(1);
+		private volatile ReportEventSubscription subscription;
+		private volatile Throwable failure;
+
+		private RecordingSubscriber(long batch) {
+			this.batch = batch;
+		}
+
+		@Override
+		public void onSubscribe(ReportEventSubscription subscription) {
+			this.subscription = subscription;
+			if (batch > 0) {
+				subscription.request(batch);
+			}
+			subscribed.countDown();
+		}
+
+		@Override
+		public void onNext(ReportEvent event) {
+			events.add(event);
+			if (batch == 1) {
+				subscription.request(1);
+			}
+		}
+
+		@Override
+		public void onError(Throwable failure) {
+			this.failure = failure;
+			finished.countDown();
+		}
+
+		@Override
+		public void onComplete() {
+			finished.countDown();
+		}
+	}
+
+}
@@ -0,0 +1,83 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.Map;
+
+import org.jbehave.core.io.StoryLocation;
+import org.jbehave.core.reporters.FilePrintStreamFactory;
+import org.jbehave.core.reporters.FilePrintStreamFactory.FileConfiguration;
+import org.jbehave.core.reporters.FilePrintStreamFactory.ResolveToPackagedName;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReportFileLayoutBehaviour {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void shouldFanReportsOutByHashOrPackage() {
+
+		assertThat(ReportFileLayout.FLAT.relativePath("org.acme.login.adoc"),
+				is("org.acme.login.adoc"));
+		assertThat(ReportFileLayout.PACKAGE.relativePath("org.acme.login.adoc"),
+				is("org/acme/login.adoc"));
+		assertThat(ReportFileLayout.PACKAGE.relativePath("AfterStories.adoc"),
+				is("AfterStories.adoc"));
+		assertThat(ReportFileLayout.HASHED.relativePath("org.acme.login.adoc")
+				.matches("[0-9a-f]{2}/[0-9a-f]{2}/org\\.acme\\.login\\.adoc"),
+				is(true));
+	}
+
+	@Test
+	public void shouldLinkReportsRelativeToEachOther() {
+
+		assertThat(ReportFileLayout.link("ab/cd/a.adoc", "ab/ef/b.adoc"),
+				is("../ef/b.adoc"));
+		assertThat(ReportFileLayout.link("org/acme/a.adoc", "org/acme/b.adoc"),
+				is("b.adoc"));
+		assertThat(ReportFileLayout.link("a.adoc", "org/b.adoc"),
+				is("org/b.adoc"));
+	}
+
+	@Test
+	public void shouldWriteReportsInTheLayoutAndListThemInTheManifest()
+			throws Exception {
+
+		File classes = temporaryFolder.newFolder("classes");
+		File outputDirectory = new File(temporaryFolder.getRoot(), "jbehave");
+		AsciidoctorReporterConfiguration configuration = new AsciidoctorReporterConfiguration()
+				.withReportFileLayout(ReportFileLayout.PACKAGE);
+
+		LayoutPrintStreamFactory factory = new LayoutPrintStreamFactory(
+				new FilePrintStreamFactory(new StoryLocation(classes.toURI()
+						.toURL(), "org/acme/login.story"), new FileConfiguration(
+						"jbehave", "adoc", new ResolveToPackagedName())),
+				configuration.reportFileLayout(), configuration
+						.reportManifest(outputDirectory), classes.toURI()
+						.toURL());
+
+		PrintStream output = factory.createPrintStream();
+		output.print("report");
+		output.close();
+
+		File report = new File(outputDirectory, "org/acme/login.adoc");
+		assertThat(factory.getOutputFile(), is(report));
+		assertThat(ReportSinkBehaviour.read(report), is("report"));
+		assertThat(new File(outputDirectory, "org.acme.login.adoc").exists(),
+				is(false));
+
+		Map<String, String> manifest = ReportManifest.read(outputDirectory);
+		assertThat(manifest.get("org.acme.login.adoc"),
+				is("org/acme/login.adoc"));
+
+		assertThat(factory.linkTo("org/acme/users/signup.story"),
+				is("users/signup.adoc"));
+	}
+
+}
@@ -0,0 +1,175 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReportMergerBehaviour {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void shouldMergeShardsInStoryPathOrder() throws IOException {
+
+		File first = temporaryFolder.newFolder("shard1");
+		File second = temporaryFolder.newFolder("shard2");
+		write(first, "a.story.adoc", "[[a.story]]\n== a.story\n");
+		write(first, "c.story.adoc", "[[c.story]]\n== c.story\n");
+		write(first, "c.story.stats", "steps=3\nscenarios=1\n");
+		write(first, DeltaReport.DELTA_FILE, "== New Failures (1)\n");
+		write(second, DryRunCatalogue.CATALOGUE_FILE, "== Catalogue\n");
+		write(second, "b.story.adoc", "[[b.story]]\n== b.story\n");
+		write(second, "b.story.stats", "steps=2\n");
+
+		File target = new File(temporaryFolder.getRoot(), "merged");
+		int merged = new ReportMerger(target).merge(Arrays.asList(first,
+				second));
+
+		assertThat(merged, is(3));
+		String index = ReportSinkBehaviour.read(new File(target,
+				ReportMerger.INDEX));
+		assertThat(index.indexOf("include::a.story.adoc[]") < index
+				.indexOf("include::b.story.adoc[]"), is(true));
+		assertThat(index.indexOf("include::b.story.adoc[]") < index
+				.indexOf("include::c.story.adoc[]"), is(true));
+		assertThat(ReportSinkBehaviour.read(new File(target,
+				ReportMerger.SUMMARY)), containsString("steps=5"));
+		assertThat(ReportSinkBehaviour.read(new File(target, "b.story.adoc")),
+				is("[[b.story]]\n== b.story\n"));
+	}
+
+	@Test
+	public void shouldRenameCollidingReportsAndAnchors() throws IOException {
+
+		File first = temporaryFolder.newFolder("shard1");
+		File second = temporaryFolder.newFolder("shard2");
+		write(first, "AfterStories.adoc", "[[AfterStories]]\n== AfterStories\n");
+		write(first, "x.login.story.adoc", "[[login.story]]\n== login.story\n");
+		write(second, "AfterStories.adoc", "[[AfterStories]]\n== AfterStories\n");
+		write(second, "y.login.story.adoc",
+				"[[login.story]]\n== login.story\n<<login.story, again>>\n");
+
+		File target = new File(temporaryFolder.getRoot(), "merged");
+		new ReportMerger(target).merge(Arrays.asList(first, second));
+
+		String index = ReportSinkBehaviour.read(new File(target,
+				ReportMerger.INDEX));
+		assertThat(index, containsString("include::AfterStories.adoc[]"));
+		assertThat(index, containsString("include::AfterStories-2.adoc[]"));
+
+		String renamed = ReportSinkBehaviour.read(new File(target,
+				"y.login.story.adoc"));
+		assertThat(renamed, containsString("[[login.story_2]]"));
+		assertThat(renamed, containsString("<<login.story_2, again>>"));
+	}
+
+	@Test
+	public void shouldMergeShardsWrittenInALayoutThroughTheirManifest()
+			throws IOException {
+
+		File shard = temporaryFolder.newFolder("shard1");
+		new File(shard, "org/acme").mkdirs();
+		write(shard, "org/acme/login.adoc", "[[login.story]]\n== login.story\n");
+		new ReportManifest(shard).record("org.acme.login.adoc",
+				"org/acme/login.adoc");
+
+		File target = new File(temporaryFolder.getRoot(), "merged");
+		new ReportMerger(target).merge(Arrays.asList(shard));
+
+		assertThat(ReportSinkBehaviour.read(new File(target,
+				"org/acme/login.adoc")), containsString("== login.story"));
+		assertThat(ReportSinkBehaviour.read(new File(target,
+				ReportMerger.INDEX)), containsString("include::org/acme/login.adoc[]"));
+		assertThat(ReportManifest.read(target).get("org.acme.login.adoc"),
+				is("org/acme/login.adoc"));
+	}
+
+	@Test
+	public void shouldPointLinksFromOtherReportsOfTheShardAtRenamedAnchors()
+			throws IOException {
+
+		File first = temporaryFolder.newFolder("shard1");
+		File second = temporaryFolder.newFolder("shard2");
+		write(first, "x.login.story.adoc", "[[login.story]]\n== login.story\n");
+		write(first, "w.uses.story.adoc", "<<login.story, given>>\n");
+		write(second, "y.login.story.adoc", "[[login.story]]\n== login.story\n");
+		write(second, "a.uses.story.adoc", "<<login.story, given>>\n");
+
+		File target = new File(temporaryFolder.getRoot(), "merged");
+		new ReportMerger(target).merge(Arrays.asList(first, second));
+
+		assertThat(ReportSinkBehaviour.read(new File(target,
+				"a.uses.story.adoc")), is("<<login.story_2, given>>\n"));
+		assertThat(ReportSinkBehaviour.read(new File(target,
+				"w.uses.story.adoc")), is("<<login.story, given>>\n"));
+	}
+
+	@Test
+	public void shouldPointLinksAcrossDocumentsAtRenamedReportsAndAnchors()
+			throws IOException {
+
+		File first = temporaryFolder.newFolder("shard1");
+		File second = temporaryFolder.newFolder("shard2");
+		ReportManifest manifest = null;
+		for (File shard : Arrays.asList(first, second)) {
+			new File(shard, "org/acme").mkdirs();
+			write(shard, "org/acme/login.adoc", "[[login.story]]\n== login.story\n");
+			manifest = new ReportManifest(shard);
+			manifest.record("org.acme.login.adoc", "org/acme/login.adoc");
+		}
+		new File(second, "org/shop").mkdirs();
+		write(second, "org/shop/cart.adoc",
+				"<<../acme/login.adoc#login.story, given>>\n");
+		manifest.record("org.shop.cart.adoc", "org/shop/cart.adoc");
+
+		File target = new File(temporaryFolder.getRoot(), "merged");
+		new ReportMerger(target).merge(Arrays.asList(first, second));
+
+		assertThat(ReportSinkBehaviour.read(new File(target,
+				"org/acme/login-2.adoc")), containsString("[[login.story_2]]"));
+		assertThat(ReportSinkBehaviour.read(new File(target,
+				"org/shop/cart.adoc")),
+				is("<<../acme/login-2.adoc#login.story_2, given>>\n"));
+	}
+
+	@Test
+	public void shouldAddUpTheFlatStatisticsOfShardsWrittenInALayout()
+			throws IOException {
+
+		File shard = temporaryFolder.newFolder("shard1");
+		new File(shard, "org/acme").mkdirs();
+		write(shard, "org/acme/login.adoc", "[[login.story]]\n== login.story\n");
+		write(shard, "org.acme.login.stats", "steps=4\n");
+		new ReportManifest(shard).record("org.acme.login.adoc",
+				"org/acme/login.adoc");
+
+		File target = new File(temporaryFolder.getRoot(), "merged");
+		new ReportMerger(target).merge(Arrays.asList(shard));
+
+		assertThat(ReportSinkBehaviour.read(new File(target,
+				ReportMerger.SUMMARY)), containsString("steps=4"));
+		assertThat(new File(target, "org.acme.login.stats").isFile(), is(true));
+	}
+
+	private static void write(File directory, String name, String content)
+			throws IOException {
+		FileOutputStream output = new FileOutputStream(new File(directory,
+				name));
+		try {
+			output.write(content.getBytes("UTF-8"));
+		} finally {
+			output.close();
+		}
+	}
+
+}
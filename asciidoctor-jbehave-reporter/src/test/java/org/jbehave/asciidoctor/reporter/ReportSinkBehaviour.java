@@ -0,0 +1,116 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReportSinkBehaviour {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void shouldWriteTheSameReportThroughEverySink() throws IOException {
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		StoryNarrator.narrateAnInterestingStoryWithSuccess(
+				new AsciidoctorStoryReporter(new PrintStream(out, true, "UTF-8"),
+						null, 0), false);
+
+		InMemoryReportSink inMemory = new InMemoryReportSink();
+		StoryNarrator.narrateAnInterestingStoryWithSuccess(
+				new AsciidoctorStoryReporter(inMemory, null, 0), false);
+
+		File outputFile = new File(temporaryFolder.getRoot(), "story.adoc");
+		StoryNarrator.narrateAnInterestingStoryWithSuccess(
+				new AsciidoctorStoryReporter(new FileChannelReportSink(
+						outputFile, 64, FlushPolicy.ON_BUFFER_FULL), null, 0),
+				false);
+
+		assertThat(inMemory.toString(), is(out.toString("UTF-8")));
+		assertThat(read(outputFile), is(out.toString("UTF-8")));
+	}
+
+	@Test
+	public void shouldWriteTextAsUtf8WhateverTheCharsetOfTheStream()
+			throws IOException {
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ReportSink sink = new PrintStreamReportSink(new PrintStream(out, true,
+				"ISO-8859-1"));
+		sink.write("Grüße aus Köln \u2713");
+		sink.close();
+
+		assertThat(out.toString("UTF-8"), is("Grüße aus Köln \u2713"));
+	}
+
+	@Test
+	public void shouldGatherBuffersLargerThanTheStagingArea()
+			throws IOException {
+
+		File outputFile = new File(temporaryFolder.getRoot(), "gather.adoc");
+		FileChannelReportSink sink = new FileChannelReportSink(outputFile, 16,
+				FlushPolicy.ON_BUFFER_FULL);
+
+		sink.write("head:");
+		sink.write(ByteBuffer.wrap("first buffer bigger than staging;"
+				.getBytes("UTF-8")), direct("direct;"));
+		sink.write("tail ¶");
+		sink.close();
+
+		assertThat(read(outputFile),
+				is("head:first buffer bigger than staging;direct;tail ¶"));
+	}
+
+	@Test
+	public void shouldAppendWhenWrittenAgainAfterClose() throws IOException {
+
+		File outputFile = new File(temporaryFolder.getRoot(), "append.adoc");
+		FileChannelReportSink sink = new FileChannelReportSink(outputFile, 32,
+				FlushPolicy.ON_WRITE);
+
+		sink.write("first story");
+		assertThat(read(outputFile), is("first story"));
+
+		sink.close();
+		sink.write(", second story");
+		sink.close();
+
+		assertThat(read(outputFile), is("first story, second story"));
+	}
+
+	private ByteBuffer direct(String content) throws IOException {
+		byte[] bytes = content.getBytes("UTF-8");
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+		buffer.put(bytes);
+		buffer.flip();
+		return buffer;
+	}
+
+	static String read(File file) throws IOException {
+		InputStream input = new FileInputStream(file);
+		try {
+			ByteArrayOutputStream content = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				content.write(buffer, 0, read);
+			}
+			return content.toString("UTF-8");
+		} finally {
+			input.close();
+		}
+	}
+
+}
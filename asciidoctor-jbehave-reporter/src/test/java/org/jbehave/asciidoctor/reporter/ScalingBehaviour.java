@@ -0,0 +1,156 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+import java.nio.ByteBuffer;
+
+import org.jbehave.core.reporters.StoryReporter;
+import org.junit.Test;
+
+/**
+ * Drives the reporter with generated stories of growing size. Run with
+ * <code>-Pscaling</code> to go up to a million steps under a capped heap,
+ * otherwise sizes stay small enough for every build.
+ */
+public class ScalingBehaviour {
+
+	private static final int MAX_STEPS = Integer.getInteger("scaling.maxSteps",
+			100000);
+
+	// a quadratic reporter would take 100 times longer for 10 times the steps
+	private static final long MAX_GROWTH = 30;
+
+	@Test
+	public void shouldTakeNearLinearTimeInTheNumberOfSteps() {
+
+		long smaller = bestOf(3, MAX_STEPS / 10);
+		long larger = bestOf(3, MAX_STEPS);
+
+		assertThat(larger / Math.max(smaller, 1), lessThan(MAX_GROWTH));
+	}
+
+	@Test
+	public void shouldKeepInFlightContentBoundedWhenReportingProgressively() {
+
+		DirectChunkPool pool = new DirectChunkPool(16 * 1024, 64);
+		CountingReportSink sink = new CountingReportSink();
+
+		SyntheticStoryNarrator.narrateStoryWithSteps(
+				new AsciidoctorStoryReporter(sink, null,
+						new AsciidoctorReporterConfiguration()
+								.withStoryContentAllocator(pool)
+								.withProgressiveReport(true)
+								.withProgressiveFlushBytes(32 * 1024)),
+				MAX_STEPS, 1000);
+
+		assertThat(sink.bytes, greaterThan((long) MAX_STEPS * 30));
+		assertThat(pool.peakInUseChunks(), lessThanOrEqualTo(4));
+		assertThat(pool.overflows(), lessThanOrEqualTo(0L));
+	}
+
+	@Test
+	public void shouldReleaseStoryContentOnceTheStoryIsWritten() {
+
+		Runtime runtime = Runtime.getRuntime();
+		long before = usedHeap(runtime);
+
+		AsciidoctorStoryReporter reporter = new AsciidoctorStoryReporter(
+				new CountingReportSink(), null, 0);
+		SyntheticStoryNarrator.narrateStoryWithSteps(reporter, MAX_STEPS / 10,
+				100);
+
+		long retained = usedHeap(runtime) - before;
+
+		// the reporter is still reachable but must not hold the story
+		assertThat(reporter, notNullValue());
+		assertThat(retained, lessThan(8L * 1024 * 1024));
+	}
+
+	@Test
+	public void shouldReportLargeExamplesTablesInLinearTime() {
+
+		long smaller = examples(MAX_STEPS / 100);
+		long larger = examples(MAX_STEPS / 10);
+
+		assertThat(larger / Math.max(smaller, 1), lessThan(MAX_GROWTH));
+	}
+
+	@Test
+	public void shouldReportDeeplyNestedGivenStories() {
+
+		CountingReportSink sink = new CountingReportSink();
+
+		SyntheticStoryNarrator.narrateNestedGivenStories(
+				new AsciidoctorStoryReporter(sink, null, 0), 500, 10);
+
+		assertThat(sink.bytes, greaterThan(500L * 10 * 30));
+	}
+
+	private static long bestOf(int runs, int steps) {
+
+		long best = Long.MAX_VALUE;
+
+		for (int i = 0; i < runs; i++) {
+			StoryReporter reporter = new AsciidoctorStoryReporter(
+					new CountingReportSink(), null, 0);
+			long start = System.nanoTime();
+			SyntheticStoryNarrator.narrateStoryWithSteps(reporter, steps, 100);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+
+		return best;
+	}
+
+	private static long examples(int rows) {
+
+		long best = Long.MAX_VALUE;
+
+		for (int i = 0; i < 3; i++) {
+			StoryReporter reporter = new AsciidoctorStoryReporter(
+					new CountingReportSink(), null, 0);
+			long start = System.nanoTime();
+			SyntheticStoryNarrator.narrateStoryWithExamples(reporter, rows);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+
+		return best;
+	}
+
+	private static long usedHeap(Runtime runtime) {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static class CountingReportSink implements ReportSink {
+
+		private long bytes;
+
+		@Override
+		public void write(CharSequence content) {
+			this.bytes += content.length();
+		}
+
+		@Override
+		public void write(ByteBuffer... content) {
+			for (ByteBuffer buffer : content) {
+				this.bytes += buffer.remaining();
+				buffer.position(buffer.limit());
+			}
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+}
@@ -0,0 +1,154 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ShardPlannerBehaviour {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void shouldBalanceShardsByDuration() {
+
+		Map<String, Long> durations = new HashMap<String, Long>();
+		List<String> storyPaths = new ArrayList<String>();
+		for (long i = 4; i <= 10; i++) {
+			durations.put("story" + i + ".story", i);
+			storyPaths.add("story" + i + ".story");
+		}
+
+		ShardPlanner.ShardPlan plan = new ShardPlanner(durations,
+				new HashMap<String, Long>()).plan(storyPaths, 3);
+
+		assertThat(plan.shards(), is(3));
+		assertThat(plan.expectedNanos(0) + plan.expectedNanos(1)
+				+ plan.expectedNanos(2), is(49L));
+		assertThat(plan.makespanNanos(), lessThanOrEqualTo(17L * 4 / 3));
+		assertThat(plan.storyPaths(0).get(0), is("story10.story"));
+	}
+
+	@Test
+	public void shouldEstimateNewStoriesFromTheMedianAndTheirGivenStories() {
+
+		Map<String, Long> durations = new HashMap<String, Long>();
+		durations.put("a.story", 10L);
+		durations.put("b.story", 20L);
+		durations.put("c.story", 1000L);
+		Map<String, Long> givenDurations = new HashMap<String, Long>();
+		givenDurations.put("login.story", 5L);
+
+		ShardPlanner planner = new ShardPlanner(durations, givenDurations)
+				.withGivenStories(Collections.singletonMap("new.story",
+						asList("login.story", "unknown.story")));
+
+		ShardPlanner.ShardPlan plan = planner.plan(asList("a.story",
+				"b.story", "c.story", "new.story"), 1);
+
+		assertThat(plan.expectedNanos(0), is(10L + 20 + 1000 + 20 + 5));
+		assertThat(plan.storyPaths(0), is(asList("c.story", "new.story",
+				"b.story", "a.story")));
+	}
+
+	@Test
+	public void shouldPlanLargeSuitesQuickly() {
+
+		Random random = new Random(46);
+		Map<String, Long> durations = new HashMap<String, Long>();
+		List<String> storyPaths = new ArrayList<String>();
+		long total = 0;
+		for (int i = 0; i < 50000; i++) {
+			long duration = 1000000L + random.nextInt(100000000);
+			durations.put("stories/story" + i + ".story", duration);
+			storyPaths.add("stories/story" + i + ".story");
+			total += duration;
+		}
+
+		long start = System.nanoTime();
+		ShardPlanner.ShardPlan plan = new ShardPlanner(durations,
+				new HashMap<String, Long>()).plan(storyPaths, 16);
+		long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+		assertThat(elapsedMillis, lessThan(2000L));
+		assertThat(plan.makespanNanos(), lessThan(total / 16 * 101 / 100));
+	}
+
+	@Test
+	public void shouldPlanFromTheRecordedHistory() throws IOException {
+
+		File historyFile = new File(temporaryFolder.getRoot(),
+				StoryDurationHistory.HISTORY_FILE);
+		StoryDurationHistory history = new StoryDurationHistory(historyFile);
+		history.onEvent(ReportEvent.storyFinished("login.story", true,
+				StoryResult.SUCCESS, 5));
+		history.onEvent(ReportEvent.storyFinished("a.story", false,
+				StoryResult.SUCCESS, 30));
+		history.onEvent(ReportEvent.storyFinished("b.story", false,
+				StoryResult.SUCCESS, 20));
+		history.onEvent(ReportEvent.storyFinished(
+				ProfilingStoryReporter.AFTER_STORIES, false,
+				StoryResult.SUCCESS, 0));
+
+		assertThat(StoryDurationHistory.loadGivenStories(historyFile).get(
+				"login.story"), is(5L));
+		assertThat(StoryDurationHistory.load(historyFile).containsKey(
+				"login.story"), is(false));
+
+		File shards = new File(temporaryFolder.getRoot(), "shards");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ShardPlanner.run(new String[] { historyFile.getPath(), "2",
+				shards.getPath() }, new PrintStream(out, true));
+
+		assertThat(new File(shards, "shard-1.txt").length(),
+				is((long) "a.story\n".length()));
+		assertThat(new File(shards, "shard-2.txt").length(),
+				is((long) "b.story\n".length()));
+		assertThat(out.toString(), containsString("Shard 2: 1 stories"));
+		assertThat(out.toString(), containsString("Expected makespan: 0 s"));
+
+		// a new story running the login is expected to take longer than a
+		File storyPaths = write("stories.txt", "a.story\nb.story\nnew.story\n");
+		File givenStories = write("given-stories.txt",
+				"new.story\tlogin.story\n");
+		ShardPlanner.ShardPlan plan = ShardPlanner.run(new String[] {
+				historyFile.getPath(), "1", shards.getPath(),
+				storyPaths.getPath(), givenStories.getPath() }, new PrintStream(
+				new ByteArrayOutputStream()));
+
+		assertThat(plan.storyPaths(0), is(asList("new.story", "a.story",
+				"b.story")));
+		assertThat(plan.expectedNanos(0), is(30L + 20 + 30 + 5));
+	}
+
+	private File write(String name, String content) throws IOException {
+		File file = new File(temporaryFolder.getRoot(), name);
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(content.getBytes("UTF-8"));
+		} finally {
+			output.close();
+		}
+		return file;
+	}
+
+}
@@ -0,0 +1,87 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jbehave.core.model.Story;
+import org.jbehave.core.steps.StepCreator;
+import org.junit.Test;
+
+public class StepLatenciesBehaviour {
+
+	@Test
+	public void shouldReduceStepsToTheirPattern() {
+
+		assertThat(StepLatencies.patternOf("When I request $"
+				+ StepCreator.PARAMETER_VALUE_START + "20"
+				+ StepCreator.PARAMETER_VALUE_END + " from "
+				+ StepCreator.PARAMETER_VALUE_START + "Liz"
+				+ StepCreator.PARAMETER_VALUE_END),
+				is("When I request $<value> from <value>"));
+		assertThat(StepLatencies.patternOf("Given a plain step"),
+				is("Given a plain step"));
+	}
+
+	@Test
+	public void shouldKeepPercentilesWithinTheBucketPrecision() {
+
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int millis = 1; millis <= 1000; millis++) {
+			histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+		}
+
+		assertThat(histogram.count(), is(1000L));
+		assertThat(histogram.maxMicros(), is(1000000L));
+		assertThat(histogram.percentileMicros(50), greaterThanOrEqualTo(500000L));
+		assertThat(histogram.percentileMicros(50), lessThanOrEqualTo(500000L * 107 / 100));
+		assertThat(histogram.percentileMicros(99), greaterThanOrEqualTo(990000L));
+		assertThat(histogram.percentileMicros(100), is(1000000L));
+	}
+
+	@Test
+	public void shouldMapEveryValueIntoItsBucket() {
+		for (long micros = 0; micros < 1L << 20; micros += 7) {
+			int bucket = LatencyHistogram.bucketOf(micros);
+			assertThat(micros <= LatencyHistogram.highestValueOf(bucket), is(true));
+			assertThat(bucket == 0
+					|| micros > LatencyHistogram.highestValueOf(bucket - 1), is(true));
+		}
+	}
+
+	@Test
+	public void shouldReportStepLatenciesOfTheSuiteInTheAfterStoriesReport() {
+
+		AsciidoctorReporterConfiguration configuration = new AsciidoctorReporterConfiguration()
+				.withStepLatencies(true);
+
+		AsciidoctorStoryReporter reporter = new AsciidoctorStoryReporter(
+				new InMemoryReportSink(), null, configuration);
+		reporter.beforeStory(new Story("/path/to/story"), false);
+		reporter.beforeScenario("Requests");
+		for (int amount = 0; amount < 3; amount++) {
+			reporter.beforeStep("When I request");
+			reporter.successful("When I request $"
+					+ StepCreator.PARAMETER_VALUE_START + amount
+					+ StepCreator.PARAMETER_VALUE_END);
+		}
+		reporter.afterScenario();
+		reporter.afterStory(false);
+
+		InMemoryReportSink afterStories = new InMemoryReportSink();
+		reporter = new AsciidoctorStoryReporter(afterStories, null,
+				configuration);
+		reporter.beforeStory(new Story(ProfilingStoryReporter.AFTER_STORIES),
+				false);
+		reporter.afterStory(false);
+
+		assertThat(afterStories.toString(), containsString(".Step Latencies (ms)"));
+		assertThat(afterStories.toString(),
+				containsString("|When I request $<value>|3|"));
+	}
+
+}
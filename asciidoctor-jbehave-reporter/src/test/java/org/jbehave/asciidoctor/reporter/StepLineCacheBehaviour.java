@@ -0,0 +1,71 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class StepLineCacheBehaviour {
+
+	@Test
+	public void shouldRenderTheSameReportWithCachedStepLines() {
+
+		InMemoryReportSink uncached = new InMemoryReportSink();
+		StoryNarrator.narrateAnInterestingStoryWithSuccess(
+				new AsciidoctorStoryReporter(uncached, null, 0), false);
+
+		StepLineCache cache = new StepLineCache();
+		for (int i = 0; i < 2; i++) {
+			InMemoryReportSink cached = new InMemoryReportSink();
+			StoryNarrator.narrateAnInterestingStoryWithSuccess(
+					new AsciidoctorStoryReporter(cached, null,
+							new AsciidoctorReporterConfiguration()
+									.withStepLineCache(cache)), false);
+			assertThat(cached.toString(), is(uncached.toString()));
+		}
+
+		assertThat(cache.misses(), is(11L));
+		assertThat(cache.hits(), is(11L));
+		assertThat(cache.hitRatio(), is(0.5));
+	}
+
+	@Test
+	public void shouldEvictTheLeastRecentlyUsedLine() {
+
+		StepLineCache cache = new StepLineCache(32,
+				EvictionPolicy.LEAST_RECENTLY_USED);
+		FragmentTemplate template = FragmentTemplates.defaults().get(
+				ReportFragment.SUCCESSFUL);
+
+		for (int i = 0; i < 1000; i++) {
+			cache.put(template, "Given step " + i, new byte[] { 1 });
+			cache.get(template, "Given step 0");
+		}
+
+		assertThat(cache.get(template, "Given step 0"), notNullValue());
+		assertThat(cache.get(template, "Given step 1"), nullValue());
+		assertThat(cache.size() <= 32, is(true));
+		assertThat(cache.evictions(), greaterThan(900L));
+	}
+
+	@Test
+	public void shouldEvictTheFirstLineInWhenFirstInFirstOut() {
+
+		StepLineCache cache = new StepLineCache(16,
+				EvictionPolicy.FIRST_IN_FIRST_OUT);
+		FragmentTemplate template = FragmentTemplates.defaults().get(
+				ReportFragment.SUCCESSFUL);
+
+		cache.put(template, "Given step 0", new byte[] { 1 });
+		for (int i = 1; i < 1000; i++) {
+			cache.get(template, "Given step 0");
+			cache.put(template, "Given step " + i, new byte[] { 1 });
+		}
+
+		assertThat(cache.get(template, "Given step 0"), nullValue());
+	}
+
+}
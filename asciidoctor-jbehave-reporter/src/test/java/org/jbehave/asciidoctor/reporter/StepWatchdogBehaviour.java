@@ -0,0 +1,139 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+
+import org.jbehave.core.failures.UUIDExceptionWrapper;
+import org.jbehave.core.model.Story;
+import org.jbehave.core.model.StoryDuration;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StepWatchdogBehaviour {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private StepWatchdog watchdog;
+
+	@After
+	public void closeWatchdog() {
+		if (this.watchdog != null) {
+			this.watchdog.close();
+		}
+	}
+
+	@Test
+	public void shouldWriteDiagnosticsOfAStepRunningPastTheThreshold()
+			throws Exception {
+
+		File diagnostics = temporaryFolder.newFolder("diagnostics");
+		watchdog = new StepWatchdog(10, diagnostics);
+
+		watchdog.stepStarted("path/to/story.story", "When I wait forever");
+		Thread.sleep(20);
+		watchdog.check();
+
+		File stuck = new File(diagnostics, "path_to_story.story"
+				+ StepWatchdog.DIAGNOSTICS_EXTENSION);
+		assertThat(stuck.isFile(), is(true));
+
+		String dump = read(stuck);
+		assertThat(dump, containsString("Step: When I wait forever"));
+		assertThat(dump, containsString(Thread.currentThread().getName()));
+		assertThat(dump, containsString("shouldWriteDiagnosticsOfAStepRunningPastTheThreshold"));
+		assertThat(watchdog.inFlight("path/to/story.story")
+				.getDiagnosticsFile(), is(stuck));
+	}
+
+	@Test
+	public void shouldForgetFinishedSteps() {
+
+		watchdog = new StepWatchdog(10, null);
+
+		watchdog.stepStarted("story", "Given a quick step");
+		assertThat(watchdog.inFlight("story"), is(notNullValue()));
+
+		watchdog.stepFinished("story");
+		assertThat(watchdog.inFlight("story"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldReportWhereTheStepACancelledStoryWasStuckIn()
+			throws Exception {
+
+		watchdog = new StepWatchdog(10, null);
+		InMemoryReportSink sink = new InMemoryReportSink();
+		final AsciidoctorStoryReporter reporter = new AsciidoctorStoryReporter(
+				sink, null, new AsciidoctorReporterConfiguration()
+						.withStepWatchdog(watchdog));
+		final CountDownLatch hanging = new CountDownLatch(1);
+		final CountDownLatch timeout = new CountDownLatch(1);
+
+		// JBehave interrupts the step, which fails, then cancels the story on
+		// the same worker thread
+		Thread worker = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				Story story = new Story("/path/to/story");
+				reporter.beforeStory(story, false);
+				reporter.beforeScenario("Waiting");
+				reporter.beforeStep("When I wait forever");
+				try {
+					hangInStep(hanging, timeout);
+					reporter.successful("When I wait forever");
+				} catch (InterruptedException e) {
+					reporter.failed("When I wait forever",
+							new UUIDExceptionWrapper(e));
+				}
+				reporter.storyCancelled(story, new StoryDuration(2, 1));
+				reporter.afterScenario();
+				reporter.afterStory(false);
+			}
+		}, "story-worker");
+		worker.start();
+
+		hanging.await();
+		Thread.sleep(20);
+		watchdog.check();
+		worker.interrupt();
+		worker.join(5000);
+
+		assertThat(sink.toString(), containsString(".Step in Flight when Cancelled"));
+		assertThat(sink.toString(), containsString("When I wait forever running for"));
+		assertThat(sink.toString(), containsString("\"story-worker\""));
+		assertThat(sink.toString(), containsString("hangInStep"));
+		assertThat(watchdog.inFlight("/path/to/story"), is(nullValue()));
+	}
+
+	private static void hangInStep(CountDownLatch hanging,
+			CountDownLatch timeout) throws InterruptedException {
+		hanging.countDown();
+		timeout.await();
+	}
+
+	private static String read(File file) throws IOException {
+		FileInputStream input = new FileInputStream(file);
+		try {
+			byte[] content = new byte[(int) file.length()];
+			int read = 0;
+			while (read < content.length) {
+				read += input.read(content, read, content.length - read);
+			}
+			return new String(content, "UTF-8");
+		} finally {
+			input.close();
+		}
+	}
+
+}
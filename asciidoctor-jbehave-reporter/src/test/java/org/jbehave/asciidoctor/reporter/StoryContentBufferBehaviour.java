@@ -0,0 +1,91 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+
+import org.jbehave.core.model.Scenario;
+import org.jbehave.core.model.Story;
+import org.junit.Test;
+
+public class StoryContentBufferBehaviour {
+
+	@Test
+	public void shouldReportTheSameContentFromOffHeapChunks() {
+
+		InMemoryReportSink onHeap = new InMemoryReportSink();
+		StoryNarrator.narrateAnInterestingStoryWithWarnings(
+				new AsciidoctorStoryReporter(onHeap, null, 0), false);
+
+		DirectChunkPool pool = new DirectChunkPool(64, 1024);
+		InMemoryReportSink offHeap = new InMemoryReportSink();
+		StoryNarrator.narrateAnInterestingStoryWithWarnings(
+				new AsciidoctorStoryReporter(offHeap, null,
+						new AsciidoctorReporterConfiguration()
+								.withStoryContentAllocator(pool)), false);
+
+		assertThat(offHeap.toString(), is(onHeap.toString()));
+		assertThat(pool.allocatedChunks(), greaterThan(1));
+		assertThat(pool.inUseChunks(), is(0));
+	}
+
+	@Test
+	public void shouldRecycleChunksBetweenStories() {
+
+		DirectChunkPool pool = new DirectChunkPool(128, 1024);
+		AsciidoctorStoryReporter reporter = new AsciidoctorStoryReporter(
+				new InMemoryReportSink(), null,
+				new AsciidoctorReporterConfiguration()
+						.withStoryContentAllocator(pool));
+
+		StoryNarrator.narrateAnInterestingStoryWithSuccess(reporter, false);
+		int allocatedByFirstStory = pool.allocatedChunks();
+
+		StoryNarrator.narrateAnInterestingStoryWithSuccess(reporter, false);
+
+		assertThat(pool.allocatedChunks(), is(allocatedByFirstStory));
+		assertThat(pool.peakInUseChunks(), is(allocatedByFirstStory));
+		assertThat(pool.idleChunks(), is(allocatedByFirstStory));
+	}
+
+	@Test
+	public void shouldServeChunksFromTheHeapOnceThePoolIsExhausted() {
+
+		DirectChunkPool pool = new DirectChunkPool(64, 2);
+		InMemoryReportSink sink = new InMemoryReportSink();
+
+		StoryNarrator.narrateAnInterestingStoryWithSuccess(
+				new AsciidoctorStoryReporter(sink, null,
+						new AsciidoctorReporterConfiguration()
+								.withStoryContentAllocator(pool)), false);
+
+		assertThat(pool.allocatedChunks(), is(2));
+		assertThat(pool.overflows(), greaterThan(0L));
+		assertThat(sink.toString().endsWith("*Then* I give it to Paul "
+				+ "icon:thumbs-up[role=\"green\"]" + System.getProperty("line.separator")
+				+ System.getProperty("line.separator")), is(true));
+	}
+
+	@Test
+	public void shouldNotInterpretPercentSignsInTheStoryContent() {
+
+		InMemoryReportSink sink = new InMemoryReportSink();
+		AsciidoctorStoryReporter reporter = new AsciidoctorStoryReporter(sink,
+				null, 0);
+
+		reporter.beforeStory(new Story("/path/to/story", null, null, null,
+				new ArrayList<Scenario>()), false);
+		reporter.beforeScenario("Discounts");
+		reporter.successful("Then the discount is 50%s off");
+		reporter.afterScenario();
+		reporter.afterStory(false);
+
+		assertThat(sink.toString().contains("*Then* the discount is 50%s off"),
+				is(true));
+		assertThat(sink.toString().contains("This story is ready to be shipped."),
+				is(true));
+	}
+
+}
@@ -0,0 +1,70 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StoryOrderingBehaviour {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void shouldKeepStoryDurationsAcrossRuns() {
+
+		File historyFile = new File(temporaryFolder.getRoot(),
+				"history/" + StoryDurationHistory.HISTORY_FILE);
+
+		run(new StoryDurationHistory(historyFile), "a.story", 100, "b.story",
+				300);
+		run(new StoryDurationHistory(historyFile), "a.story", 300);
+
+		Map<String, Long> durations = StoryDurationHistory.load(historyFile);
+		assertThat(durations.get("a.story"), is(200L));
+		assertThat(durations.get("b.story"), is(300L));
+		assertThat(durations.containsKey(ProfilingStoryReporter.AFTER_STORIES),
+				is(false));
+	}
+
+	@Test
+	public void shouldOrderLongestStoriesFirst() {
+
+		Map<String, Long> durations = new HashMap<String, Long>();
+		durations.put("short.story", 10L);
+		durations.put("long.story", 1000L);
+		durations.put("medium.story", 200L);
+
+		// unknown stories are expected to take the average
+		assertThat(StoryOrdering.longestFirst(asList("short.story",
+				"new.story", "medium.story", "long.story"), durations),
+				is(asList("long.story", "new.story", "medium.story",
+						"short.story")));
+	}
+
+	@Test
+	public void shouldKeepTheOrderWithoutHistory() {
+		assertThat(StoryOrdering.longestFirst(asList("b.story", "a.story"),
+				new File(temporaryFolder.getRoot(), "missing.tsv")),
+				is(asList("b.story", "a.story")));
+	}
+
+	private static void run(StoryDurationHistory history, Object... stories) {
+
+		for (int i = 0; i < stories.length; i += 2) {
+			history.onEvent(ReportEvent.storyFinished((String) stories[i],
+					false, StoryResult.SUCCESS, (Integer) stories[i + 1]));
+		}
+		history.onEvent(ReportEvent.storyFinished(
+				ProfilingStoryReporter.AFTER_STORIES, false,
+				StoryResult.SUCCESS, 5));
+	}
+
+}
@@ -0,0 +1,53 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class StoryStatisticsBehaviour {
+
+	@Test
+	public void shouldRenderStatisticsNextToTheStoryResult() {
+
+		InMemoryReportSink sink = new InMemoryReportSink();
+		StoryNarrator.narrateAnInterestingStoryWithFailures(
+				new AsciidoctorStoryReporter(sink, null,
+						new AsciidoctorReporterConfiguration()
+								.withStoryStatistics(true)), false);
+
+		String report = sink.toString();
+		int lead = report.indexOf("This story contains errors");
+		int statistics = report.indexOf(".Statistics");
+
+		assertThat(lead > 0 && statistics > lead, is(true));
+		assertThat(statistics < report.indexOf("I ask for a loan"), is(true));
+		assertThat(report, containsString("|I ask for a loan|7|1|1|1|1|0|"));
+		assertThat(report, containsString("|Parametrised Scenario|4|0|1|0|0|2|"));
+		assertThat(report, containsString("|Total|11|1|2|1|1|2|"));
+	}
+
+	@Test
+	public void shouldCountEveryOutcomeOnce() {
+
+		StoryStatistics statistics = new StoryStatistics();
+		statistics.storyStarted();
+		statistics.scenarioStarted("A scenario");
+		statistics.step(StepOutcome.SUCCESSFUL);
+		statistics.step(StepOutcome.RESTARTED);
+		statistics.example();
+		statistics.scenarioFinished();
+		statistics.step(StepOutcome.PENDING);
+		statistics.storyFinished();
+
+		assertThat(statistics.steps(StepOutcome.SUCCESSFUL), is(1L));
+		assertThat(statistics.steps(StepOutcome.RESTARTED), is(1L));
+		assertThat(statistics.steps(StepOutcome.PENDING), is(1L));
+		assertThat(statistics.examples(), is(1L));
+		assertThat(statistics.scenarios(), is(1));
+		assertThat(statistics.render(FragmentTemplates.defaults()),
+				containsString("|A scenario|1|0|0|0|1|1|"));
+	}
+
+}
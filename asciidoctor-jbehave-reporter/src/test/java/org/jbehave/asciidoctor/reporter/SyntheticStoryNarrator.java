@@ -0,0 +1,81 @@
+package org.jbehave.asciidoctor.reporter;
+
+import static java.util.Arrays.asList;
+
+import org.jbehave.core.model.ExamplesTable;
+import org.jbehave.core.model.Story;
+import org.jbehave.core.reporters.StoryReporter;
+
+/**
+ * Narrates generated stories of any size, to drive the reporter far beyond
+ * what the {@link StoryNarrator} stories do.
+ */
+class SyntheticStoryNarrator {
+
+	static void narrateStoryWithSteps(StoryReporter reporter, int steps,
+			int stepsPerScenario) {
+
+		reporter.beforeStory(new Story("/synthetic/steps.story"), false);
+		narrateScenarios(reporter, steps, stepsPerScenario);
+		reporter.afterStory(false);
+	}
+
+	static void narrateStoryWithExamples(StoryReporter reporter, int rows) {
+
+		StringBuilder table = new StringBuilder("|amount|account|\n");
+		for (int i = 0; i < rows; i++) {
+			table.append('|').append(i).append("|account-").append(i)
+					.append("|\n");
+		}
+
+		reporter.beforeStory(new Story("/synthetic/examples.story"), false);
+		reporter.beforeScenario("Scenario with many examples");
+		reporter.beforeExamples(asList("Given <amount> in <account>"),
+				new ExamplesTable(table.toString()));
+		reporter.afterExamples();
+		reporter.afterScenario();
+		reporter.afterStory(false);
+	}
+
+	static void narrateNestedGivenStories(StoryReporter reporter, int depth,
+			int stepsPerStory) {
+
+		reporter.beforeStory(new Story("/synthetic/nested.story"), false);
+		for (int i = 0; i < depth; i++) {
+			reporter.beforeStory(new Story("/synthetic/given" + i + ".story"),
+					true);
+			narrateScenarios(reporter, stepsPerStory, stepsPerStory);
+		}
+		for (int i = 0; i < depth; i++) {
+			reporter.afterStory(true);
+		}
+		reporter.afterStory(false);
+	}
+
+	private static void narrateScenarios(StoryReporter reporter, int steps,
+			int stepsPerScenario) {
+
+		for (int step = 0; step < steps; step++) {
+
+			if (step % stepsPerScenario == 0) {
+				if (step > 0) {
+					reporter.afterScenario();
+				}
+				reporter.beforeScenario("Scenario " + step / stepsPerScenario);
+			}
+
+			reporter.beforeStep("Given step " + step);
+			if (step % 100 == 99) {
+				reporter.pending("When pending step " + step);
+			} else {
+				reporter.successful("Given a successful step number " + step
+						+ " with a value of $" + step);
+			}
+		}
+
+		if (steps > 0) {
+			reporter.afterScenario();
+		}
+	}
+
+}